@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+/**
+ * Builds the ProtectedAction objects used by the benchmarks.  Each index
+ * gets its own permission name so actions built for different indices
+ * never compare equal.
+ */
+class BenchmarkActions {
+    private static final String         PERMISSION_PREFIX = "com.hiqes.andele.benchmark.PERMISSION_";
+
+    private static final ProtectedAction.ActionCallback     ACTION_CB =
+        new ProtectedAction.ActionCallback() {
+            @Override
+            public void doAction(ProtectedAction action) {
+                //  DO NOTHING
+            }
+        };
+
+    private static final ProtectedAction.UserPromptCallback PROMPT_CB =
+        new ProtectedAction.UserPromptCallback() {
+            @Override
+            public void showEducateModal(ProtectedAction action, int reqCode) {
+                //  DO NOTHING
+            }
+
+            @Override
+            public void showEducate(ProtectedAction action) {
+                //  DO NOTHING
+            }
+
+            @Override
+            public void showDeniedCritical(ProtectedAction action) {
+                //  DO NOTHING
+            }
+
+            @Override
+            public void showDeniedReminder(ProtectedAction action) {
+                //  DO NOTHING
+            }
+
+            @Override
+            public void showDeniedFeedback(ProtectedAction action) {
+                //  DO NOTHING
+            }
+        };
+
+    private BenchmarkActions() {
+    }
+
+    static String permission(int index) {
+        return PERMISSION_PREFIX + index;
+    }
+
+    static ProtectedAction build(String permission) {
+        return new ProtectedAction.Builder()
+                .withPermission(permission)
+                .withUsage(PermissionUse.FEATURE)
+                .actionCallback(ACTION_CB)
+                .userPromptCallback(PROMPT_CB)
+                .build();
+    }
+
+    static ProtectedAction build(int index) {
+        return build(permission(index));
+    }
+
+    //  Build actions for indices [first, first + count)
+    static ProtectedAction[] build(int first, int count) {
+        ProtectedAction[]       ret = new ProtectedAction[count];
+
+        for (int i = 0; i < count; i++) {
+            ret[i] = build(first + i);
+        }
+
+        return ret;
+    }
+}
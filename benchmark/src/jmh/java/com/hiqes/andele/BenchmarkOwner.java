@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.view.View;
+
+/**
+ * A {@link RequestOwner} which needs no running Activity or Fragment.  All
+ * permissions are reported as granted and no calls are made out to the
+ * (absent) Android framework, so the benchmarks only measure Andele code.
+ */
+class BenchmarkOwner extends RequestOwner {
+    private static final ComponentName  HOST_NAME =
+        new ComponentName("com.hiqes.andele.benchmark", "com.hiqes.andele.benchmark.HostActivity");
+
+    private final Application           mApp = new Application();
+
+    @Override
+    public int checkSelfPermission(String permission) {
+        return PackageManager.PERMISSION_GRANTED;
+    }
+
+    @Override
+    public void requestPermissions(String[] permissions, int code) {
+        //  Never called by the benchmarks
+    }
+
+    @Override
+    public boolean shouldShowRequestPermissionRationale(String permission) {
+        return false;
+    }
+
+    @Override
+    public boolean isSameOwner(RequestOwner otherOwner) {
+        return otherOwner == this;
+    }
+
+    @Override
+    public boolean isParentActivity(Object obj) {
+        return false;
+    }
+
+    @Override
+    public Context getUiContext() {
+        return mApp;
+    }
+
+    @Override
+    public View getRootView() {
+        return null;
+    }
+
+    @Override
+    PackageManager getPackageManager() {
+        return null;
+    }
+
+    @Override
+    Application getApplication() {
+        return mApp;
+    }
+
+    @Override
+    ComponentName getHostComponentName() {
+        return HOST_NAME;
+    }
+
+    @Override
+    int getTaskId() {
+        return 0;
+    }
+
+    @Override
+    Activity getHostActivity() {
+        return null;
+    }
+}
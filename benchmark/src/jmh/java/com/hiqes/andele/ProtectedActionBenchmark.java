@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the ProtectedAction and PermissionDetails methods used as map
+ * keys throughout the library.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProtectedActionBenchmark {
+    private ProtectedAction             mAction;
+    private ProtectedAction             mEqualAction;
+    private ProtectedAction             mOtherAction;
+    private PermissionDetails           mDetails;
+
+    @Setup
+    public void setup() {
+        //  Build the equal action from a separate String so equals has to
+        //  compare the permission names rather than just references.
+        mAction = BenchmarkActions.build(0);
+        mEqualAction = BenchmarkActions.build(new String(BenchmarkActions.permission(0)));
+        mOtherAction = BenchmarkActions.build(1);
+        mDetails = mAction.getPermissionDetails();
+    }
+
+    @Benchmark
+    public int hashCodeAction() {
+        return mAction.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsEqual() {
+        return mAction.equals(mEqualAction);
+    }
+
+    @Benchmark
+    public boolean equalsOther() {
+        return mAction.equals(mOtherAction);
+    }
+
+    @Benchmark
+    public String asKey() {
+        return mDetails.asKey();
+    }
+}
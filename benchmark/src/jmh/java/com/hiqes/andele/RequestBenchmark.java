@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures comparing requests with each other, which is done when
+ * removing a request by object.  The disjoint case has no action in
+ * common and is rejected by the bitsets alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestBenchmark {
+    @Param({"1", "8", "64", "512"})
+    public int                          actionCount;
+
+    private Request                     mRequest;
+    private Request                     mDisjointRequest;
+    private Request                     mSameRequest;
+
+    @Setup
+    public void setup() {
+        RequestOwner            owner = new BenchmarkOwner();
+
+        mRequest = new Request(owner, BenchmarkActions.build(0, actionCount), null);
+        mDisjointRequest = new Request(owner, BenchmarkActions.build(actionCount, actionCount), null);
+
+        //  Equal but separately built actions, as an app re-creating its
+        //  actions on rotation would have.
+        mSameRequest = new Request(owner, BenchmarkActions.build(0, actionCount), null);
+    }
+
+    @Benchmark
+    public boolean isSameDisjoint() {
+        return mRequest.isSameRequest(mDisjointRequest);
+    }
+
+    @Benchmark
+    public boolean isSameRequest() {
+        return mRequest.isSameRequest(mSameRequest);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link RequestManager} table operations with a given number
+ * of requests already queued.  Real apps rarely have more than a handful
+ * of requests in flight, the larger sizes are there to show how the
+ * lookups scale.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestManagerBenchmark {
+    private static final int            MISSING_CODE = Integer.MAX_VALUE;
+
+    @Param({"1", "16", "256", "4096"})
+    public int                          tableSize;
+
+    private RequestManager              mManager;
+    private RequestOwner                mOwner;
+    private ProtectedAction[][]         mQueuedActions;
+    private int[]                       mQueuedCodes;
+    private ProtectedAction[]           mNewActions;
+    private int                         mNextIndex;
+
+    //  The default allocator only has room for a few hundred codes per
+    //  owner type, so hand out codes from a simple free stack instead.
+    private static class StackAllocator implements RequestCodeAllocator {
+        private final int[]             mFree;
+        private int                     mFreeCount;
+
+        StackAllocator(int capacity) {
+            mFree = new int[capacity];
+            for (int i = 0; i < capacity; i++) {
+                mFree[i] = capacity - 1 - i;
+            }
+
+            mFreeCount = capacity;
+        }
+
+        @Override
+        public int allocate(RequestOwner owner) {
+            return (mFreeCount > 0) ? mFree[--mFreeCount] : -1;
+        }
+
+        @Override
+        public void release(int code) {
+            mFree[mFreeCount++] = code;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        mManager = new RequestManager();
+        mManager.setAllocator(new StackAllocator(tableSize + 1));
+        mOwner = new BenchmarkOwner();
+
+        mQueuedActions = new ProtectedAction[tableSize][];
+        mQueuedCodes = new int[tableSize];
+        for (int i = 0; i < tableSize; i++) {
+            mQueuedActions[i] = new ProtectedAction[] { BenchmarkActions.build(i) };
+            mQueuedCodes[i] = mManager.queueRequest(mOwner, mQueuedActions[i], null);
+        }
+
+        //  One spare code is left for queuing an action not in the table
+        mNewActions = new ProtectedAction[] { BenchmarkActions.build(tableSize) };
+    }
+
+    private int nextIndex() {
+        int                     ret = mNextIndex;
+
+        mNextIndex = (ret + 1 < tableSize) ? ret + 1 : 0;
+        return ret;
+    }
+
+    @Benchmark
+    public Request getRequest() {
+        return mManager.getRequest(mQueuedCodes[nextIndex()]);
+    }
+
+    @Benchmark
+    public Request getRequestMissing() {
+        return mManager.getRequest(MISSING_CODE);
+    }
+
+    @Benchmark
+    public int queueDuplicate() {
+        //  Already queued, so this only runs the duplicate check
+        return mManager.queueRequest(mOwner, mQueuedActions[nextIndex()], null);
+    }
+
+    @Benchmark
+    public Request queueThenRemove() {
+        int                     code = mManager.queueRequest(mOwner, mNewActions, null);
+
+        return mManager.removeRequest(code);
+    }
+
+    @Benchmark
+    public Request queueThenRemoveByObject() {
+        int                     code = mManager.queueRequest(mOwner, mNewActions, null);
+
+        return mManager.removeRequest(mManager.getRequest(code));
+    }
+}
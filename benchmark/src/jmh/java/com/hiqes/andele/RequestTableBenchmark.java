@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a burst of permission results against the table holding the
+ * active requests: each result looks up its request and then removes it.
+ * The boxed HashMap the table replaced is measured alongside it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestTableBenchmark {
+    private static final int            BURST_SIZE = 64;
+
+    private int[]                       mCodes;
+    private Request[]                   mReqs;
+    private final HashMap<Integer, Request> mMap = new HashMap<>();
+    private final RequestTable          mTable = new RequestTable();
+
+    @Setup
+    public void setup() {
+        Random                  rand = new Random(0xa5a5);
+        RequestOwner            owner = new BenchmarkOwner();
+
+        mCodes = new int[BURST_SIZE];
+        mReqs = new Request[BURST_SIZE];
+        for (int i = 0; i < BURST_SIZE; i++) {
+            mCodes[i] = rand.nextInt() & 0x7FFFFFFF;
+            mReqs[i] = new Request(owner, BenchmarkActions.build(i, 1), null);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST_SIZE)
+    public int burstHashMap() {
+        int                     found = 0;
+
+        for (int i = 0; i < mCodes.length; i++) {
+            mMap.put(mCodes[i], mReqs[i]);
+        }
+
+        for (int i = 0; i < mCodes.length; i++) {
+            if (mMap.get(mCodes[i]) != null) {
+                found++;
+            }
+
+            mMap.remove(mCodes[i]);
+        }
+
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST_SIZE)
+    public int burstTable() {
+        int                     found = 0;
+
+        for (int i = 0; i < mCodes.length; i++) {
+            mTable.put(mCodes[i], mReqs[i]);
+        }
+
+        for (int i = 0; i < mCodes.length; i++) {
+            if (mTable.get(mCodes[i]) != null) {
+                found++;
+            }
+
+            mTable.remove(mCodes[i]);
+        }
+
+        return found;
+    }
+}
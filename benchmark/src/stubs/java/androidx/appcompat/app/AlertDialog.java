@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.appcompat.app;
+
+import android.app.Dialog;
+import android.content.Context;
+import android.content.DialogInterface;
+
+//  Compile time stand-in for the AndroidX AlertDialog, dialogs are never
+//  shown by the benchmarks.
+public class AlertDialog extends Dialog {
+    AlertDialog(Context context) {
+        super(context);
+    }
+
+    public static class Builder {
+        public Builder(Context context) {
+        }
+
+        public Builder setCancelable(boolean cancelable) {
+            return this;
+        }
+
+        public Builder setTitle(int titleId) {
+            return this;
+        }
+
+        public Builder setMessage(CharSequence message) {
+            return this;
+        }
+
+        public Builder setNegativeButton(int textId, DialogInterface.OnClickListener listener) {
+            return this;
+        }
+
+        public Builder setPositiveButton(int textId, DialogInterface.OnClickListener listener) {
+            return this;
+        }
+
+        public AlertDialog create() {
+            return null;
+        }
+    }
+}
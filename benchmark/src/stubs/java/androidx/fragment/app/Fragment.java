@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.fragment.app;
+
+import android.content.Context;
+import android.view.View;
+
+//  Compile time stand-in for the AndroidX Fragment, only the methods
+//  used by the library are present and none of them are benchmarked.
+public class Fragment {
+    public final FragmentActivity getActivity() {
+        return null;
+    }
+
+    public final int getId() {
+        return 0;
+    }
+
+    public final String getTag() {
+        return null;
+    }
+
+    public final View getView() {
+        return null;
+    }
+
+    public final Context getContext() {
+        return null;
+    }
+
+    public final boolean isAdded() {
+        return false;
+    }
+
+    public final void requestPermissions(String[] permissions, int requestCode) {
+    }
+
+    public boolean shouldShowRequestPermissionRationale(String permission) {
+        return false;
+    }
+}
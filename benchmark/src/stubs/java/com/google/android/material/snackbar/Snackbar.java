@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.snackbar;
+
+import android.view.View;
+
+//  Compile time stand-in for the material Snackbar
+public class Snackbar {
+    public static final int LENGTH_LONG = 0;
+
+    public static Snackbar make(View view, CharSequence text, int duration) {
+        return null;
+    }
+
+    public Snackbar setAction(int resId, View.OnClickListener listener) {
+        return this;
+    }
+
+    public void show() {
+    }
+}
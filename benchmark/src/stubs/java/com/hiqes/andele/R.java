@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+//  Stand-in for the generated resource IDs of the library, the values do
+//  not matter as no resources are loaded.
+public final class R {
+    public static final class string {
+        public static final int andele__default_denied_critical = 1;
+        public static final int andele__default_denied_reminder = 2;
+        public static final int andele__default_denied_feeback = 3;
+        public static final int andele__settings_label = 4;
+        public static final int andele__critical_title = 5;
+        public static final int andele__exit_text = 6;
+    }
+}
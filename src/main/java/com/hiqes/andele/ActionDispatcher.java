@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The optional dedicated thread Andele uses to deliver action callbacks
+ * and internal messages for requests made from worker threads.  The
+ * thread is only started the first time it is needed.  The number of
+ * messages waiting on it is bounded, once the limit is reached callers
+ * are expected to send to the main thread instead so a slow action can
+ * not build up an unbounded backlog.
+ */
+class ActionDispatcher {
+    private static final String         TAG = ActionDispatcher.class.getSimpleName();
+    private static final String         THREAD_NAME = "andele-dispatch";
+
+    static final int                    DEFAULT_MAX_QUEUED = 64;
+
+    private final AtomicInteger         mQueued = new AtomicInteger();
+    private volatile int                mMaxQueued = DEFAULT_MAX_QUEUED;
+    private volatile int                mPriority = Process.THREAD_PRIORITY_DEFAULT;
+    private HandlerThread               mThread;
+
+    /**
+     * Change the thread priority and queue limit.  A priority change is
+     * applied right away if the thread is already running.
+     * <p>
+     * @param priority    A priority from {@link android.os.Process}, for
+     *                    example {@code THREAD_PRIORITY_BACKGROUND}.
+     * @param maxQueued   The most messages which may wait on the thread.
+     */
+    void configure(int priority, int maxQueued) {
+        if (maxQueued <= 0) {
+            throw new IllegalArgumentException("Max queued must be positive");
+        }
+
+        mMaxQueued = maxQueued;
+        synchronized (this) {
+            mPriority = priority;
+            if (mThread != null) {
+                Process.setThreadPriority(mThread.getThreadId(), priority);
+            }
+        }
+    }
+
+    synchronized Looper getLooper() {
+        if (mThread == null) {
+            mThread = new HandlerThread(THREAD_NAME, mPriority);
+            mThread.start();
+            Log.d(TAG, "getLooper: started dispatch thread, priority ", mPriority);
+        }
+
+        //  Blocks until the thread has its looper, only on the first call
+        return mThread.getLooper();
+    }
+
+    /**
+     * Reserve a slot for a message to be sent to the thread.  Each
+     * successful reserve must be matched by a {@link #release()}, once the
+     * message has been handled or if it could not be sent.
+     * <p>
+     * @return true if there was room, false if the queue is full.
+     */
+    boolean tryReserve() {
+        int                     cur;
+
+        do {
+            cur = mQueued.get();
+            if (cur >= mMaxQueued) {
+                return false;
+            }
+        } while (!mQueued.compareAndSet(cur, cur + 1));
+
+        return true;
+    }
+
+    void release() {
+        mQueued.decrementAndGet();
+    }
+
+    int getQueuedCount() {
+        return mQueued.get();
+    }
+}
@@ -16,6 +16,7 @@
 package com.hiqes.andele;
 
 import android.app.Activity;
+import android.app.Application;
 import android.app.Fragment;
 import android.content.Context;
 import android.content.pm.PackageManager;
@@ -23,9 +24,13 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import androidx.appcompat.app.AppCompatActivity;
-import android.text.TextUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 
 /**
@@ -38,115 +43,695 @@ import java.util.ArrayList;
 public class Andele {
     static private final String                TAG = Andele.class.getSimpleName();
 
-    static private final int                   MSG_DO_ACTION = 1;
+    static private final int                   MSG_RESULTS = 2;
     static private final int                   MSG_SHOW_EDUCATE = 10;
-    static private final int                   MSG_SHOW_EDUCATE_REMINDER = 13;
-    static private final int                   MSG_SHOW_DENIED_CRITICAL = 14;
-    static private final int                   MSG_SHOW_DENIED_FEEDBACK = 15;
-    static private final int                   MSG_DENIED = 16;
     static private final int                   MSG_GO_TO_SETTINGS = 50;
 
+    static private final String[]              NO_PERMISSIONS = new String[0];
+    static private final int[]                 NO_RESULTS = new int[0];
+    static private final int                   MIN_SNAPSHOT_MISSES = 2;
+
+    /**
+     * Deliver results for requests made from a worker thread on that
+     * thread's Looper.  A thread without a Looper gets its results on the
+     * dedicated Andele thread.  This is the default.
+     */
+    public static final int                    DISPATCH_CALLER = 0;
+
+    /**
+     * Deliver results for requests made from a worker thread on the main
+     * thread.
+     */
+    public static final int                    DISPATCH_MAIN = 1;
+
+    /**
+     * Deliver results for requests made from a worker thread on the
+     * dedicated Andele thread.
+     */
+    public static final int                    DISPATCH_DEDICATED = 2;
+
     private static final RequestManager        sReqMgr = new RequestManager();
-    private static PermResultHandler           sHandler;
+    private static final GrantCache            sGrantCache = new GrantCache();
+    private static final PermissionInfoCache   sPermInfoCache = new PermissionInfoCache();
+    private static final ActionDispatcher      sDispatcher = new ActionDispatcher();
+    private static final OwnerReaper           sReaper = new OwnerReaper(sReqMgr);
+    private static volatile PermResultHandler  sHandler;
+    private static volatile PermResultHandler  sDispatchHandler;
+    private static volatile int                sWorkerDispatch = DISPATCH_CALLER;
+    private static volatile Executor           sDefaultExecutor;
+    private static volatile ActionObserver     sActionObserver;
+    private static volatile OrphanListener     sOrphanListener;
+    private static volatile Metrics            sMetrics;
+
+    //  Coalesced requests are sent from the main thread once their window
+    //  is over.  Only requests which got this far have set up sHandler.
+    private static final RequestCoalescer      sCoalescer = new RequestCoalescer(new RequestCoalescer.Sink() {
+        @Override
+        public void schedule(Runnable flush, long delayMillis) {
+            sHandler.postDelayed(flush, delayMillis);
+        }
+
+        @Override
+        public void requestPermissions(Request[] batch, String[] permissions, int reqCode) {
+            sScheduler.submit(batch, permissions, reqCode);
+        }
+    });
+
+    //  Then wait for their turn at the system dialog
+    private static final RequestScheduler      sScheduler = new RequestScheduler(new RequestScheduler.Sink() {
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            sHandler.postDelayed(task, delayMillis);
+        }
+
+        @Override
+        public boolean isQueued(int reqCode) {
+            return sReqMgr.isQueued(reqCode);
+        }
+
+        @Override
+        public void send(Request[] batch, String[] permissions, int reqCode) {
+            long    now = System.nanoTime();
+
+            for (int i = 0; i < batch.length; i++) {
+                batch[i].setSentNanos(now);
+            }
+
+            try {
+                batch[0].getOwner().requestPermissions(permissions, reqCode);
+            } catch (IllegalStateException e) {
+                //  The host went away while the requests waited.  Forget
+                //  about them so they are asked for again next time.
+                Log.w(TAG, "requestPermissions: host gone, dropping req ", reqCode);
+                cancelRequest(reqCode);
+            }
+        }
+
+        @Override
+        public void drop(Request[] batch, int reqCode) {
+            dropRequests(batch);
+        }
+    });
+
+    //  Permission state changes go out on the main thread.  The handler
+    //  is only made once there is something to deliver.
+    private static final PermissionStateBus    sStateBus = new PermissionStateBus(new Executor() {
+        private volatile Handler    mMainHandler;
+
+        @Override
+        public void execute(Runnable command) {
+            if (mMainHandler == null) {
+                synchronized (this) {
+                    if (mMainHandler == null) {
+                        mMainHandler = new Handler(Looper.getMainLooper());
+                    }
+                }
+            }
+
+            mMainHandler.post(command);
+        }
+    });
+
+    static {
+        sReqMgr.setEvictionListener(new RequestManager.EvictionListener() {
+            @Override
+            public void onRequestEvicted(Request req) {
+                final OrphanListener    listener = sOrphanListener;
+                final ProtectedAction[] actions = req.getActions();
+
+                //  Its results are never coming, don't let it hold up
+                //  the dialogs for its task.
+                sScheduler.complete(req.getCode());
+                sCoalescer.takeBatch(req.getCode());
+
+                for (int i = 0; i < actions.length; i++) {
+                    failAsync(actions[i], "The request was dropped for ");
+                }
+
+                if (listener != null) {
+                    sHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            for (int i = 0; i < actions.length; i++) {
+                                listener.onOrphanEvicted(actions[i]);
+                            }
+                        }
+                    });
+                }
+            }
+        });
+
+        sGrantCache.setObserver(new GrantCache.Observer() {
+            @Override
+            public void onGrantState(String permission, int state) {
+                sStateBus.onGrantState(permission, state);
+                if (state == PackageManager.PERMISSION_GRANTED) {
+                    forgetDeniedForever(permission);
+                }
+            }
+
+            @Override
+            public void onInvalidated(Activity resumed) {
+                final Application       app;
+                final PackageManager    pm;
+
+                //  Re-check what subscribers care about, in case it was
+                //  changed in Settings.  One snapshot gets every state in
+                //  a single call, off the main thread since this is on
+                //  every resume.  The results feed back through
+                //  onGrantState, so only real changes go out.
+                if (sStateBus.getSubscribedPermissions().length == 0) {
+                    return;
+                }
+
+                app = resumed.getApplication();
+                pm = resumed.getPackageManager();
+                getDispatchHandler().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        takeGrantSnapshot(app, pm);
+                    }
+                });
+            }
+        });
+    }
+
+    //  One handler per worker thread Looper, rather than one per request.
+    //  The entry goes away with its thread.
+    private static final ThreadLocal<PermResultHandler>    sCallerHandler =
+        new ThreadLocal<>();
 
     private static void lazyInit(Context context) {
+        //  checkAndExecute may be called from worker threads, so make sure
+        //  only one main thread handler gets created.
         if (sHandler == null) {
-             sHandler = new PermResultHandler(context.getMainLooper());
+            synchronized (Andele.class) {
+                if (sHandler == null) {
+                    sHandler = new PermResultHandler(context.getMainLooper());
+                    sPermInfoCache.attach(context.getApplicationContext());
+
+                    //  Idle handlers go on the queue of the thread adding
+                    //  them, so do it from the main thread.
+                    sHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            Looper.myQueue().addIdleHandler(sReaper);
+                        }
+                    });
+                }
+            }
         }
     }
 
-    @SuppressWarnings("UnnecessaryLocalVariable")
+    private static PermResultHandler getDispatchHandler() {
+        if (sDispatchHandler == null) {
+            synchronized (Andele.class) {
+                if (sDispatchHandler == null) {
+                    sDispatchHandler = new PermResultHandler(sDispatcher.getLooper(), sDispatcher);
+                }
+            }
+        }
+
+        return sDispatchHandler;
+    }
+
     private static Handler getReqHandler() {
-        Handler handler = Util.isMainThread() ? sHandler : new PermResultHandler();
+        PermResultHandler       handler;
+        Looper                  looper;
+
+        if (Util.isMainThread()) {
+            return sHandler;
+        }
+
+        switch (sWorkerDispatch) {
+            case DISPATCH_MAIN:
+                handler = sHandler;
+                break;
+
+            case DISPATCH_DEDICATED:
+                handler = getDispatchHandler();
+                break;
+
+            default:
+                handler = sCallerHandler.get();
+                if (handler == null) {
+                    looper = Looper.myLooper();
+                    if (looper != null) {
+                        handler = new PermResultHandler(looper);
+                        sCallerHandler.set(handler);
+                    } else {
+                        //  No Looper to come back to on this thread
+                        handler = getDispatchHandler();
+                    }
+                }
+
+                break;
+        }
+
         return handler;
     }
 
+    private static void sendToRequest(Request req, int what, int arg1, Object obj) {
+        PermResultHandler       handler = (PermResultHandler)req.getHandler();
+
+        //  The dedicated thread's queue is bounded and a worker thread's
+        //  Looper may have quit since the request was made.  Either way,
+        //  run things on the main thread rather than lose them.
+        if (!handler.trySend(handler.obtainMessage(what, arg1, 0, obj))) {
+            Log.w(TAG, "sendToRequest: request handler unavailable, using main for msg ", what);
+            sHandler.sendMessage(sHandler.obtainMessage(what, arg1, 0, obj));
+        }
+    }
+
+    //  One message per handler for the whole batch: the grants go to the
+    //  request's handler, denials to main.  Usually both are main.
+    private static void sendResults(ResultBatch batch) {
+        boolean                 grants = batch.hasGrants();
+        boolean                 denials = batch.hasDenials();
+
+        if (grants && denials && (batch.mRequest.getHandler() == sHandler)) {
+            sHandler.sendMessage(sHandler.obtainMessage(MSG_RESULTS,
+                                                        ResultBatch.PART_GRANTS | ResultBatch.PART_DENIALS,
+                                                        0,
+                                                        batch));
+            return;
+        }
+
+        if (grants) {
+            sendToRequest(batch.mRequest, MSG_RESULTS, ResultBatch.PART_GRANTS, batch);
+        }
+
+        if (denials) {
+            sHandler.sendMessage(sHandler.obtainMessage(MSG_RESULTS, ResultBatch.PART_DENIALS, 0, batch));
+        }
+    }
+
+    //  Requests go through the coalescer so others from the same host
+    //  can share the system dialog.
+    //  Handle it just like the system does when a request is cancelled,
+    //  empty results.
+    private static void cancelRequest(int reqCode) {
+        onRequestPermissionsResult(reqCode, NO_PERMISSIONS, NO_RESULTS);
+    }
+
     private static void doRequest(int reqCode) {
         Request                 req;
 
         req = sReqMgr.getRequest(reqCode);
 
         if (req != null) {
+            sCoalescer.add(req);
+        }
+    }
+
+    //  The first check in the process.  The edu state is needed as soon
+    //  as a permission is missing, so start reading it now, off the main
+    //  thread.
+    private static void attachGrantCache(Application app) {
+        sGrantCache.attach(app);
+        Util.preloadEduState(app);
+    }
+
+    private static boolean isGranted(RequestOwner owner, ProtectedAction action) {
+        //  Make sure the grant cache will hear about resumes before the
+        //  first lookup.  After that this is just a flag check.
+        Metrics                 metrics = sMetrics;
+
+        if (!sGrantCache.isAttached()) {
+            attachGrantCache(owner.getApplication());
+        }
+
+        if (metrics != null) {
+            metrics.count(Metrics.COUNTER_CHECKS);
+        }
+
+        //  An action needing several permissions needs all of them
+        for (int i = 0; i < action.mAllDetails.length; i++) {
+            if (sGrantCache.checkSelfPermission(owner, action.mAllDetails[i].mPermission) !=
+                PackageManager.PERMISSION_GRANTED) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    //  Only secondary features skip the request, the mandatory ones still
+    //  go through so their denial UI is shown.  Actions needing several
+    //  permissions always go through, the denial is not tied to one.
+    private static boolean isDeniedForever(RequestOwner owner, ProtectedAction action) {
+        PermissionUse           usage = action.mPermDetails.mUsage;
+
+        return ((usage == PermissionUse.FEATURE) || (usage == PermissionUse.OPTIONAL)) &&
+               (action.mAllDetails.length == 1) &&
+               Util.isDeniedForever(owner.getApplication(), action.mPermDetails);
+    }
+
+    //  Requests dropped from a full dialog queue are never asked for.
+    //  Let go of them and deny each action, as if the user had cancelled
+    //  the dialog.  They are not orphans, so orphan listeners are not told.
+    static void dropRequests(Request[] batch) {
+        Metrics                 metrics = sMetrics;
+
+        //  Requests coalesced under the first one's code
+        sCoalescer.takeBatch(batch[0].getCode());
+
+        for (int i = 0; i < batch.length; i++) {
+            Request             req = batch[i];
             ProtectedAction[]   actions = req.getActions();
-            String[]            perms = new String[actions.length];
 
-            for (int i = 0; i < actions.length; i++) {
-                perms[i] = actions[i].mPermDetails.mPermission;
+            sReqMgr.removeRequest(req.getCode());
+            if (metrics != null) {
+                metrics.count(Metrics.COUNTER_DROPPED);
+            }
+
+            for (int j = 0; j < actions.length; j++) {
+                deliverDenied(req.getOwner(), actions[j]);
+            }
+        }
+    }
+
+    //  The user said not to ask again, the system would deny without
+    //  showing anything so don't bother it.  Same as a denial with no UI.
+    private static void denyForever(RequestOwner owner, ProtectedAction action) {
+        Log.d(TAG, "Permission denied forever: ", action.mPermDetails.mPermission);
+        deliverDenied(owner, action);
+    }
+
+    //  A denial Andele decided on without asking the system.  It never
+    //  comes back inline: it goes where the action would have run if it
+    //  has an executor, otherwise to the main thread like the denials
+    //  from results.
+    private static void deliverDenied(RequestOwner owner, final ProtectedAction action) {
+        Executor                executor = getExecutor(action);
+        Runnable                deny = new Runnable() {
+            @Override
+            public void run() {
+                long            start = callbackStart();
+
+                action.mListener.onPermissionDenied(action.mPermDetails);
+                callbackDone(start);
+            }
+        };
+
+        if (executor == null) {
+            lazyInit(owner.getApplication());
+            sHandler.post(deny);
+            return;
+        }
+
+        try {
+            executor.execute(deny);
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "deliverDenied: executor rejected denial, running inline: ", e.getMessage());
+            deny.run();
+        }
+    }
+
+    private static void forgetDeniedForever(String permission) {
+        Application             app = sGrantCache.getApplication();
+        int                     permId = PermissionRegistry.findPermissionId(permission);
+        PermissionDetails       details;
+
+        if ((app == null) || (permId < 0)) {
+            return;
+        }
+
+        details = PermissionRegistry.findDetails(permId, PermissionUse.FEATURE);
+        if (details != null) {
+            Util.clearDeniedForever(app, details);
+        }
+
+        details = PermissionRegistry.findDetails(permId, PermissionUse.OPTIONAL);
+        if (details != null) {
+            Util.clearDeniedForever(app, details);
+        }
+    }
+
+    private static void rememberDeniedForever(Request req, ResultBatch batch) {
+        ProtectedAction[]       actions = req.getActions();
+        Application             app = req.getOwner().getApplication();
+
+        //  Only secondary features end up plainly denied, the rest get UI
+        for (int i = 0; i < actions.length; i++) {
+            if ((batch.getOutcome(i) == ResultBatch.OUTCOME_DENIED) &&
+                (actions[i].mAllDetails.length == 1)) {
+                Util.setDeniedForever(app, actions[i].mPermDetails);
+            }
+        }
+    }
+
+    //  Runs the action on the current thread, timing it if anybody
+    //  is watching.
+    private static void runAction(ProtectedAction action) {
+        ActionObserver          observer = sActionObserver;
+        Metrics                 metrics = sMetrics;
+        long                    start;
+        long                    elapsed;
+
+        if ((observer == null) && (metrics == null)) {
+            action.mActionCb.doAction(action);
+            return;
+        }
+
+        start = System.nanoTime();
+        try {
+            action.mActionCb.doAction(action);
+        } finally {
+            elapsed = System.nanoTime() - start;
+            if (metrics != null) {
+                metrics.latency(Metrics.PHASE_APP_CALLBACK, elapsed);
+            }
+
+            if (observer != null) {
+                observer.onActionCompleted(action, elapsed);
+            }
+        }
+    }
+
+    //  Runs an action granted by a permission result, resultNanos is when
+    //  the result arrived (0 if nobody is measuring.)
+    private static void runGranted(ProtectedAction action, long resultNanos) {
+        Metrics                 metrics = sMetrics;
+
+        if ((metrics != null) && (resultNanos != 0)) {
+            metrics.latency(Metrics.PHASE_RESULT_TO_DISPATCH, System.nanoTime() - resultNanos);
+        }
+
+        runAction(action);
+    }
+
+    //  For timing app prompt and listener callbacks, returns 0 if nobody
+    //  is measuring.
+    private static long callbackStart() {
+        return (sMetrics == null) ? 0 : System.nanoTime();
+    }
+
+    private static void callbackDone(long start) {
+        Metrics                 metrics = sMetrics;
+
+        if ((metrics != null) && (start != 0)) {
+            metrics.latency(Metrics.PHASE_APP_CALLBACK, System.nanoTime() - start);
+        }
+    }
+
+    private static Executor getExecutor(ProtectedAction action) {
+        return (action.mExecutor != null) ? action.mExecutor : sDefaultExecutor;
+    }
+
+    //  Hand the action to an app supplied executor.  If the executor will
+    //  not take it, run it here rather than lose it.
+    private static void executeOn(Executor executor, ProtectedAction action, long resultNanos) {
+        try {
+            executor.execute(new ActionRunner(action, resultNanos));
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "executeOn: executor rejected action, running inline: ", e.getMessage());
+            runGranted(action, resultNanos);
+        }
+    }
+
+    private static void executeGranted(ProtectedAction action) {
+        Executor                executor = getExecutor(action);
+
+        //  Boom!  We got it already!  Call back the action immediately
+        //  as we are already in the same context, unless the app asked
+        //  for it to go elsewhere.
+        action.mListener.onPermissionGranted(action.mPermDetails);
+        if ((executor == null) || (executor == ProtectedAction.INLINE_EXECUTOR)) {
+            runAction(action);
+        } else {
+            executeOn(executor, action, 0);
+        }
+    }
+
+    //  Returns false if the request was dropped because it is a duplicate
+    private static boolean requestActions(RequestOwner owner, ProtectedAction[] needyActions, int firstEduIndex) {
+        //  Do a lazy init to make sure our main thread handler is setup
+        lazyInit(owner.getApplication());
+
+        if ((firstEduIndex != -1) && Log.isLoggable(android.util.Log.DEBUG, TAG)) {
+            Log.d(TAG,
+                  "Action with perm '" +
+                      needyActions[firstEduIndex].mPermDetails.mPermission +
+                      "' has edu, index: " +
+                      firstEduIndex);
+        }
+
+        //  First things first, queue the request with the needy actions
+        //  which contains just the subset of stuff that needs edu/req.
+        int reqCode = sReqMgr.queueRequest(owner, needyActions, getReqHandler());
+        if (reqCode >= 0) {
+            //  If firstEduIndex is not -1, somebody needs an explanation.
+            if (firstEduIndex != -1) {
+                Log.d(TAG, "Show edu for req ", reqCode);
+                showEducateUi(reqCode, firstEduIndex);
+            } else {
+                doRequest(reqCode);
+            }
+        } else {
+            Log.d(TAG, "checkAndExecute: req already queued and being processed");
+
+            //  A dropped action is fine if it was because an orphan of it
+            //  was restored by this request, it is then queued and will
+            //  see the result.  Otherwise results go to the other request's
+            //  callbacks, or nowhere if no codes were left.
+            for (int i = 0; i < needyActions.length; i++) {
+                if ((needyActions[i].mListener instanceof AsyncRequest) &&
+                    !sReqMgr.isActionQueued(needyActions[i])) {
+                    failAsync(needyActions[i], "The request could not be queued for ");
+                }
+            }
+        }
+
+        return reqCode >= 0;
+    }
+
+    //  The future of an async request only completes through the action's
+    //  callbacks.  When those are never coming it has to fail instead.
+    private static void failAsync(ProtectedAction action, String reason) {
+        if (action.mListener instanceof AsyncRequest) {
+            ((AsyncRequest<?>)action.mListener).fail(
+                new IllegalStateException(reason + action.mPermDetails.mPermission));
+        }
+    }
+
+    //  Each uncached check is a round trip to the system.  When several
+    //  are about to be made, get every state at once with a snapshot.
+    @SuppressWarnings("ForLoopReplaceableByForEach")
+    private static void warmGrantCache(RequestOwner owner, ProtectedAction[] actions) {
+        PackageManager          pm;
+        int                     uncached = 0;
+
+        for (int i = 0; i < actions.length; i++) {
+            PermissionDetails[] allDetails = actions[i].mAllDetails;
+
+            for (int j = 0; j < allDetails.length; j++) {
+                if (!sGrantCache.isCached(allDetails[j].mPermission)) {
+                    uncached++;
+                }
             }
+        }
+
+        if (uncached < MIN_SNAPSHOT_MISSES) {
+            return;
+        }
+
+        pm = owner.getPackageManager();
+        if (pm != null) {
+            takeGrantSnapshot(owner.getApplication(), pm);
+        }
+    }
+
+    private static GrantSnapshot takeGrantSnapshot(Application app, PackageManager pm) {
+        GrantSnapshot           ret;
+        int                     generation;
 
-            req.getOwner().requestPermissions(perms, reqCode);
+        if (!sGrantCache.isAttached()) {
+            attachGrantCache(app);
         }
+
+        generation = sGrantCache.getGeneration();
+        ret = GrantSnapshot.take(pm, app.getPackageName());
+        sGrantCache.fill(ret, generation);
+        return ret;
     }
 
     @SuppressWarnings("ForLoopReplaceableByForEach")
     private static void checkAndExecute(RequestOwner owner, ProtectedAction[] actions) {
-        ArrayList<ProtectedAction>  reqActions = null;
-        int                         status;
+        ProtectedAction[]           needyActions = null;
+        int                         needyCount = 0;
         int                         firstEduIndex = -1;
 
-        //  Do a lazy init to make sure our main thread handler is setup
-        lazyInit(owner.getApplication());
+        if (actions.length >= MIN_SNAPSHOT_MISSES) {
+            warmGrantCache(owner, actions);
+        }
 
         //  Walk through the actions, check the permissions.  If the app
         //  already has them then call back the app.  Otherwise, we'll need
-        //  to interface with the user on this.
+        //  to interface with the user on this.  Nothing is allocated
+        //  unless some action needs to be requested.
         for (int i = 0; i < actions.length; i++) {
             ProtectedAction     curAction = actions[i];
 
-            status = owner.checkSelfPermission(curAction.mPermDetails.mPermission);
-            if (status == PackageManager.PERMISSION_GRANTED) {
-                //  Boom!  We got it already!  Call back the action immediately
-                //  as we are already in the same context.
-                curAction.mListener.onPermissionGranted(curAction.mPermDetails);
-                curAction.mActionCb.doAction(curAction);
+            if (isGranted(owner, curAction)) {
+                executeGranted(curAction);
+            } else if (isDeniedForever(owner, curAction)) {
+                denyForever(owner, curAction);
             } else {
                 //  We don't have this one, so we need to ask for it or
-                //  possibly educate the user.
-                if (reqActions == null) {
-                    reqActions = new ArrayList<>();
+                //  possibly educate the user.  At most the remaining
+                //  actions can be needy.
+                if (needyActions == null) {
+                    needyActions = new ProtectedAction[actions.length - i];
                 }
 
-                reqActions.add(curAction);
-
                 if (curAction.hasUserEdu() && (firstEduIndex == -1)) {
-                    firstEduIndex = reqActions.indexOf(curAction);
-                    Log.d(TAG,
-                          "Action with perm '" +
-                              curAction.mPermDetails.mPermission +
-                              "' has edu, index: " +
-                              firstEduIndex);
+                    firstEduIndex = needyCount;
                 }
+
+                needyActions[needyCount++] = curAction;
             }
         }
 
-        //  If reqActions is not empty, we need to ask for the permission(s)
+        //  If there are needy actions, we need to ask for the permission(s)
         //  and possibly educate te user.
-        if ((reqActions != null) && (reqActions.size() > 0)) {
-            ProtectedAction[]   needyActions = new ProtectedAction[reqActions.size()];
-            needyActions = reqActions.toArray(needyActions);
-
-            //  First things first, queue the request with the needy actions
-            //  which contains just the subset of stuff that needs edu/req.
-            int reqCode = sReqMgr.queueRequest(owner, needyActions, getReqHandler());
-            if (reqCode >= 0) {
-                //  If firstEduIndex is not -1, somebody needs an explanation.
-                if (firstEduIndex != -1) {
-                    Log.d(TAG, "Show edu for req " + reqCode);
-                    showEducateUi(reqCode, firstEduIndex);
-                } else {
-                    doRequest(reqCode);
-                }
-            } else {
-                Log.d(TAG, "checkAndExecute: req already queued and being processed");
+        if (needyCount > 0) {
+            if (needyCount < needyActions.length) {
+                needyActions = Arrays.copyOf(needyActions, needyCount);
             }
+
+            requestActions(owner, needyActions, firstEduIndex);
         }
     }
 
-    private static void checkAndExecute(RequestOwner owner, ProtectedAction action) {
-        ProtectedAction[]       actions = new ProtectedAction[1];
+    //  Returns false if the action needed a request but an equal one is
+    //  already queued.
+    static boolean checkAndExecute(RequestOwner owner, ProtectedAction action) {
+        boolean                 ret = true;
+
+        //  Single action fast path, when the permission is already granted
+        //  this allocates nothing.
+        if (isGranted(owner, action)) {
+            executeGranted(action);
+        } else if (isDeniedForever(owner, action)) {
+            denyForever(owner, action);
+        } else {
+            ret = requestActions(owner,
+                                 new ProtectedAction[] { action },
+                                 action.hasUserEdu() ? 0 : -1);
+        }
 
-        actions[0] = action;
-        checkAndExecute(owner, actions);
+        return ret;
+    }
+
+    static <V> PermissionFuture<V> checkAndExecuteAsync(RequestOwner owner,
+                                                        ProtectedAction action,
+                                                        Callable<V> work) {
+        AsyncRequest<V>         async = new AsyncRequest<>(action, work);
+
+        //  If the request cannot be queued the future is failed on the way
+        checkAndExecute(owner, async.getAction());
+        return async.getFuture();
     }
 
     /**
@@ -190,7 +775,7 @@ public class Andele {
      */
     @SuppressWarnings({"WeakerAccess", "unused"})
     public static void checkAndExecute(Activity activity, ProtectedAction action) {
-        checkAndExecute(new RequestOwnerActivity(activity), action);
+        checkAndExecute(OwnerCache.forActivity(activity), action);
     }
 
     /**
@@ -209,7 +794,7 @@ public class Andele {
      */
     @SuppressWarnings({"WeakerAccess", "unused"})
     public static void checkAndExecute(AppCompatActivity activity, ProtectedAction action) {
-        checkAndExecute(new RequestOwnerAppCompatActivity(activity), action);
+        checkAndExecute(OwnerCache.forActivity(activity), action);
     }
 
     /**
@@ -228,7 +813,7 @@ public class Andele {
      */
     @SuppressWarnings({"WeakerAccess", "unused"})
     public static void checkAndExecute(Fragment fragment, ProtectedAction action) {
-        checkAndExecute(new RequestOwnerFragment(fragment), action);
+        checkAndExecute(OwnerCache.forFragment(fragment), action);
     }
 
     /**
@@ -247,43 +832,212 @@ public class Andele {
      */
     @SuppressWarnings({"WeakerAccess", "unused"})
     public static void checkAndExecute(androidx.fragment.app.Fragment fragment, ProtectedAction action) {
-        checkAndExecute(new RequestOwnerAndroidXFragment(fragment), action);
+        checkAndExecute(OwnerCache.forFragment(fragment), action);
     }
 
-    private static final ProtectedAction.ActionCallback mEmptyActionCallback = new ProtectedAction.ActionCallback() {
-        @Override
-        public void doAction(ProtectedAction action) {
-            //  Do nothing.  This is used for check-only tests so the code
-            //  is common.
-        }
-    };
-
-    @SuppressWarnings("ForLoopReplaceableByForEach")
-    private static void checkAndRequestMandatoryPermissions(RequestOwner owner, ProtectedAction[] actions) {
-        ArrayList<ProtectedAction>  revisedActions = new ArrayList<>();
-
-        //  It's important that this API only be used for CRITICAL and
-        //  ESSENTIAL type permission use.  This is a way of asking for
-        //  these perms up front in the app.
-        for (int i = 0; i < actions.length; i++) {
-            ProtectedAction     curAction = actions[i];
+    /**
+     * Asynchronous version of {@link #checkAndExecute(Activity, ProtectedAction)}.
+     * The action is checked, requested and run just the same, but the
+     * returned future completes once that is over: with the permission
+     * granted after the ActionCallback has returned, or with it denied.
+     * The future fails if the ActionCallback throws, or right away if an
+     * equal action is already being requested.
+     * <p>
+     * For an OPTIONAL permission which only showed education this time
+     * around, the future completes as denied.
+     * <p>
+     * The UserPromptCallback and Listener of the action are called as
+     * usual and are handed the app's own action.
+     *
+     * @param activity   The owning Activity from which the action is being made
+     * @param action     The ProtectedAction describing the permission needed,
+     *                   the ActionCallback to execute when granted, etc.
+     * @return A future for the outcome.
+     */
+    @SuppressWarnings("unused")
+    public static PermissionFuture<Void> checkAndExecuteAsync(Activity activity, ProtectedAction action) {
+        return checkAndExecuteAsync(OwnerCache.forActivity(activity), action, null);
+    }
 
-            if ((curAction.mPermDetails.mUsage != PermissionUse.CRITICAL) &&
-                (curAction.mPermDetails.mUsage != PermissionUse.ESSENTIAL)) {
-                Log.w(TAG,
-                      "checkAndRequestMandatoryPermissions: Toss perm \'" +
-                          curAction.mPermDetails.mPermission +
-                          "', marked " +
-                          curAction.mPermDetails.mUsage.name());
+    /**
+     * Asynchronous version of {@link #checkAndExecute(Activity, ProtectedAction)}
+     * which also produces a value.  Once the permission is granted and the
+     * ActionCallback has returned, {@code work} is called on the same
+     * thread and its return value becomes the value of the result.  See
+     * {@link #checkAndExecuteAsync(Activity, ProtectedAction)} for more
+     * details.
+     *
+     * @param activity   The owning Activity from which the action is being made
+     * @param action     The ProtectedAction describing the permission needed,
+     *                   the ActionCallback to execute when granted, etc.
+     * @param work       Produces the value once the action has run.
+     * @param <V>        The type of the value.
+     * @return A future for the outcome.
+     */
+    @SuppressWarnings("unused")
+    public static <V> PermissionFuture<V> checkAndExecuteAsync(Activity activity,
+                                                               ProtectedAction action,
+                                                               Callable<V> work) {
+        return checkAndExecuteAsync(OwnerCache.forActivity(activity), action, work);
+    }
+
+    /**
+     * Asynchronous version of {@link #checkAndExecute(AppCompatActivity, ProtectedAction)}.
+     * See {@link #checkAndExecuteAsync(Activity, ProtectedAction)} for
+     * details.
+     *
+     * @param activity   The owning Activity (compatibility library) from
+     *                   which the action is being made
+     * @param action     The ProtectedAction describing the permission needed,
+     *                   the ActionCallback to execute when granted, etc.
+     * @return A future for the outcome.
+     */
+    @SuppressWarnings("unused")
+    public static PermissionFuture<Void> checkAndExecuteAsync(AppCompatActivity activity, ProtectedAction action) {
+        return checkAndExecuteAsync(OwnerCache.forActivity(activity), action, null);
+    }
+
+    /**
+     * Asynchronous version of {@link #checkAndExecute(AppCompatActivity, ProtectedAction)}
+     * which also produces a value.  See
+     * {@link #checkAndExecuteAsync(Activity, ProtectedAction, Callable)} for
+     * details.
+     *
+     * @param activity   The owning Activity (compatibility library) from
+     *                   which the action is being made
+     * @param action     The ProtectedAction describing the permission needed,
+     *                   the ActionCallback to execute when granted, etc.
+     * @param work       Produces the value once the action has run.
+     * @param <V>        The type of the value.
+     * @return A future for the outcome.
+     */
+    @SuppressWarnings("unused")
+    public static <V> PermissionFuture<V> checkAndExecuteAsync(AppCompatActivity activity,
+                                                               ProtectedAction action,
+                                                               Callable<V> work) {
+        return checkAndExecuteAsync(OwnerCache.forActivity(activity), action, work);
+    }
+
+    /**
+     * Asynchronous version of {@link #checkAndExecute(Fragment, ProtectedAction)}.
+     * See {@link #checkAndExecuteAsync(Activity, ProtectedAction)} for
+     * details.
+     *
+     * @param fragment   The owning Fragment from which the action is being made
+     * @param action     The ProtectedAction describing the permission needed,
+     *                   the ActionCallback to execute when granted, etc.
+     * @return A future for the outcome.
+     */
+    @SuppressWarnings("unused")
+    public static PermissionFuture<Void> checkAndExecuteAsync(Fragment fragment, ProtectedAction action) {
+        return checkAndExecuteAsync(OwnerCache.forFragment(fragment), action, null);
+    }
+
+    /**
+     * Asynchronous version of {@link #checkAndExecute(Fragment, ProtectedAction)}
+     * which also produces a value.  See
+     * {@link #checkAndExecuteAsync(Activity, ProtectedAction, Callable)} for
+     * details.
+     *
+     * @param fragment   The owning Fragment from which the action is being made
+     * @param action     The ProtectedAction describing the permission needed,
+     *                   the ActionCallback to execute when granted, etc.
+     * @param work       Produces the value once the action has run.
+     * @param <V>        The type of the value.
+     * @return A future for the outcome.
+     */
+    @SuppressWarnings("unused")
+    public static <V> PermissionFuture<V> checkAndExecuteAsync(Fragment fragment,
+                                                               ProtectedAction action,
+                                                               Callable<V> work) {
+        return checkAndExecuteAsync(OwnerCache.forFragment(fragment), action, work);
+    }
+
+    /**
+     * Asynchronous version of {@link #checkAndExecute(androidx.fragment.app.Fragment, ProtectedAction)}.
+     * See {@link #checkAndExecuteAsync(Activity, ProtectedAction)} for
+     * details.
+     *
+     * @param fragment   The owning Fragment (support library) from which
+     *                   the action is being made
+     * @param action     The ProtectedAction describing the permission needed,
+     *                   the ActionCallback to execute when granted, etc.
+     * @return A future for the outcome.
+     */
+    @SuppressWarnings("unused")
+    public static PermissionFuture<Void> checkAndExecuteAsync(androidx.fragment.app.Fragment fragment,
+                                                              ProtectedAction action) {
+        return checkAndExecuteAsync(OwnerCache.forFragment(fragment), action, null);
+    }
+
+    /**
+     * Asynchronous version of {@link #checkAndExecute(androidx.fragment.app.Fragment, ProtectedAction)}
+     * which also produces a value.  See
+     * {@link #checkAndExecuteAsync(Activity, ProtectedAction, Callable)} for
+     * details.
+     *
+     * @param fragment   The owning Fragment (support library) from which
+     *                   the action is being made
+     * @param action     The ProtectedAction describing the permission needed,
+     *                   the ActionCallback to execute when granted, etc.
+     * @param work       Produces the value once the action has run.
+     * @param <V>        The type of the value.
+     * @return A future for the outcome.
+     */
+    @SuppressWarnings("unused")
+    public static <V> PermissionFuture<V> checkAndExecuteAsync(androidx.fragment.app.Fragment fragment,
+                                                               ProtectedAction action,
+                                                               Callable<V> work) {
+        return checkAndExecuteAsync(OwnerCache.forFragment(fragment), action, work);
+    }
+
+    private static final ProtectedAction.ActionCallback mEmptyActionCallback = new ProtectedAction.ActionCallback() {
+        @Override
+        public void doAction(ProtectedAction action) {
+            //  Do nothing.  This is used for check-only tests so the code
+            //  is common.
+        }
+    };
+
+    @SuppressWarnings("ForLoopReplaceableByForEach")
+    private static void checkAndRequestMandatoryPermissions(RequestOwner owner, ProtectedAction[] actions) {
+        ArrayList<ProtectedAction>  revisedActions = new ArrayList<>();
+
+        //  It's important that this API only be used for CRITICAL and
+        //  ESSENTIAL type permission use.  This is a way of asking for
+        //  these perms up front in the app.
+        for (int i = 0; i < actions.length; i++) {
+            ProtectedAction     curAction = actions[i];
+
+            if ((curAction.mPermDetails.mUsage != PermissionUse.CRITICAL) &&
+                (curAction.mPermDetails.mUsage != PermissionUse.ESSENTIAL)) {
+                if (Log.isLoggable(android.util.Log.WARN, TAG)) {
+                    Log.w(TAG,
+                          "checkAndRequestMandatoryPermissions: Toss perm \'" +
+                              curAction.mPermDetails.mPermission +
+                              "', marked " +
+                              curAction.mPermDetails.mUsage.name());
+                }
 
                 continue;
             }
 
+            //  Keep the action's first permission first, it is the one
+            //  used for prompts.
+            String[]            perms = new String[curAction.mAllDetails.length];
+
+            perms[0] = curAction.mPermDetails.mPermission;
+            for (int j = 0, k = 1; j < curAction.mAllDetails.length; j++) {
+                if (curAction.mAllDetails[j].mId != curAction.mPermDetails.mId) {
+                    perms[k++] = curAction.mAllDetails[j].mPermission;
+                }
+            }
+
             ProtectedAction.Builder bldr = new ProtectedAction.Builder();
             bldr.actionCallback(mEmptyActionCallback)
                 .userPromptCallback(curAction.mPromptCb)
                 .listener(curAction.mListener)
-                .withPermission(curAction.mPermDetails.mPermission)
+                .withPermissions(perms)
                 .withUsage(curAction.mPermDetails.mUsage);
             revisedActions.add(bldr.build());
         }
@@ -330,7 +1084,7 @@ public class Andele {
      */
     @SuppressWarnings({"WeakerAccess", "unused"})
     public static void checkAndRequestMandatoryPermissions(Activity activity, ProtectedAction[] actions) {
-        checkAndRequestMandatoryPermissions(new RequestOwnerActivity(activity), actions);
+        checkAndRequestMandatoryPermissions(OwnerCache.forActivity(activity), actions);
     }
 
     /**
@@ -344,7 +1098,7 @@ public class Andele {
      */
     @SuppressWarnings("unused")
     public static void checkAndRequestMandatoryPermissions(AppCompatActivity activity, ProtectedAction[] actions) {
-        checkAndRequestMandatoryPermissions(new RequestOwnerAppCompatActivity(activity), actions);
+        checkAndRequestMandatoryPermissions(OwnerCache.forActivity(activity), actions);
     }
 
     /**
@@ -358,7 +1112,7 @@ public class Andele {
      */
     @SuppressWarnings("unused")
     public static void checkAndRequestMandatoryPermissions(Fragment fragment, ProtectedAction[] actions) {
-        checkAndRequestMandatoryPermissions(new RequestOwnerFragment(fragment), actions);
+        checkAndRequestMandatoryPermissions(OwnerCache.forFragment(fragment), actions);
     }
 
     /**
@@ -372,7 +1126,7 @@ public class Andele {
      */
     @SuppressWarnings("unused")
     public static void checkAndRequestMandatoryPermissions(androidx.fragment.app.Fragment fragment, ProtectedAction[] actions) {
-        checkAndRequestMandatoryPermissions(new RequestOwnerAndroidXFragment(fragment), actions);
+        checkAndRequestMandatoryPermissions(OwnerCache.forFragment(fragment), actions);
     }
 
     /**
@@ -396,7 +1150,7 @@ public class Andele {
         //  Sanity check
         req = sReqMgr.getRequest(reqCode);
         if (req == null) {
-            Log.w(TAG, "markEducateModalDone: unknown req " + reqCode);
+            Log.w(TAG, "markEducateModalDone: unknown req ", reqCode);
             return;
         }
 
@@ -411,9 +1165,11 @@ public class Andele {
                                                action.mPermDetails.mUsage);
         }
 
+        //  Match by equality, the request may hold Andele's own wrapper
+        //  of the app's action (see checkAndExecuteAsync.)
         actions = req.getActions();
         for (int i = 0; i < actions.length; i++) {
-            if (actions[i] == action) {
+            if (actions[i].equals(action)) {
                 actionIndex = i;
                 break;
             }
@@ -423,202 +1179,761 @@ public class Andele {
             throw new IllegalArgumentException("Provided action not part of active request");
         }
 
-        //  Mark the action's permission has been done then re-call showEducateUi
-        //  so we'll move on to the next (if any.)
-        Util.setEduDone(req.getOwner().getUiContext(), action.mPermDetails);
-        showEducateUi(reqCode, actionIndex);
+        //  Mark the action's permission has been done then re-call showEducateUi
+        //  so we'll move on to the next (if any.)
+        Util.setEduDone(req.getOwner().getUiContext(), action.mPermDetails);
+        showEducateUi(reqCode, actionIndex);
+    }
+
+    /**
+     * After calling {@link #checkAndExecute}, Andele may have requested the required
+     * permissions for the ProtectedAction.  This is an asynchronous operation
+     * and will ultimately provide a response via the owner (Activity, Fragment,
+     * etc.)  The app must properly call this method from the owner's
+     * callback first to determine if this is a permission request that Andele
+     * is handling.  If the app is using Andele for all permissions handling
+     * (and it should!) then simply call through to this method and do nothing
+     * else.
+     * <p>
+     * Note that for Activities where permissions are being requested (this
+     * includes AppCompatActivity derivatives), care must be taken when
+     * Fragments are also in use or if you decided to mix and handle some
+     * permissions work yourself.  The best practice is to call through to
+     * {@code onRequestPermissionsResult()} and if it returns {@code false}
+     * call through to the superclass:
+     * <pre>
+     * {@code
+     * {@literal @>}Override
+     * public static void onRequestPermissionsResult(int reqCode, String[] permissions, int[] grantResults) {
+     *     if (!Andele.onRequestPermissionsResult(reqCode, permissions, grantResults)) {
+     *         super.onRequestPermissionsResult(reqCode, permissions, grantResults);
+     *     }
+     * }
+     * }
+     * </pre>
+     * @param reqCode   The request code for the permissions request
+     * @param permissions   The array of permissions which were requested
+     * @param grantResults  The results of the permissions request
+     * @return true if this method handled the results, otherwise false
+     */
+    @SuppressWarnings("unused")
+    public static boolean onRequestPermissionsResult(int reqCode, String[] permissions, int[] grantResults) {
+        boolean                 handled = false;
+        Request[]               batch;
+
+        //  Whatever the request, the results are the latest word on these
+        //  permissions so keep the grant cache up to date.
+        for (int i = 0; i < permissions.length; i++) {
+            sGrantCache.update(permissions[i], grantResults[i]);
+        }
+
+        //  The dialog for this code is done, let the next one go
+        sScheduler.complete(reqCode);
+
+        //  If several requests were asked for together, each one picks
+        //  its own permissions out of the combined results.
+        batch = sCoalescer.takeBatch(reqCode);
+        if (batch == null) {
+            return handleResults(reqCode, permissions, grantResults);
+        }
+
+        for (int i = 0; i < batch.length; i++) {
+            handled |= handleResults(batch[i].getCode(), permissions, grantResults);
+        }
+
+        return handled;
+    }
+
+    private static boolean handleResults(int reqCode, String[] permissions, int[] grantResults) {
+        boolean                 handled = false;
+        Request                 req;
+        boolean                 removeReq = true;
+        Metrics                 metrics = sMetrics;
+        long                    resultNanos = (metrics == null) ? 0 : System.nanoTime();
+
+        //  Get the request from the manager.  We do not remove it from the
+        //  manager until it is completely processed (success or fail.)
+        //  If we cannot find it, complain about it.
+        req = sReqMgr.getRequest(reqCode);
+        if (req == null) {
+            Log.w(TAG, "onRequestPermissionsResult: request not found for code ", reqCode);
+        } else {
+            ProtectedAction[]   reqActions = req.getActions();
+            ResultBatch         batch;
+
+            if ((metrics != null) && (req.getSentNanos() != 0)) {
+                metrics.latency(Metrics.PHASE_SYSTEM_DIALOG, resultNanos - req.getSentNanos());
+            }
+
+            //  Match all of the results to the request's actions in one
+            //  pass, then deal with the outcomes together.
+            batch = ResultBatch.match(req, permissions, grantResults, resultNanos);
+            if (batch.hasDenials()) {
+                rememberDeniedForever(req, batch);
+            }
+
+            //  Async requests report each permission's own result.  An
+            //  action the results say nothing about, for example when the
+            //  request was cancelled, hears nothing more once the request
+            //  is gone.
+            for (int i = 0; i < reqActions.length; i++) {
+                ProtectedAction curAction = reqActions[i];
+
+                if (curAction.mListener instanceof AsyncRequest) {
+                    if (batch.getOutcome(i) == ResultBatch.OUTCOME_NONE) {
+                        failAsync(curAction, "No result was given for ");
+                    } else {
+                        ((AsyncRequest<?>)curAction.mListener).setResults(batch);
+                    }
+                }
+            }
+
+            for (int i = 0; i < reqActions.length; i++) {
+                ProtectedAction curAction = reqActions[i];
+                Executor        executor;
+
+                if (batch.getOutcome(i) != ResultBatch.OUTCOME_GRANTED) {
+                    continue;
+                }
+
+                //  Call back the action handler, let them know the grant
+                //  was done.
+                curAction.mListener.onPermissionGranted(curAction.mPermDetails);
+
+                //  Actions with an executor of their own run now.  The
+                //  rest stay in the batch for the request's handler since
+                //  the original execute request could have come on a
+                //  different thread.
+                executor = getExecutor(curAction);
+                if (executor != null) {
+                    batch.clear(i);
+                    if (executor == ProtectedAction.INLINE_EXECUTOR) {
+                        runGranted(curAction, resultNanos);
+                    } else {
+                        executeOn(executor, curAction, resultNanos);
+                    }
+                }
+            }
+
+            //  Denial UI has to be shown before the request goes away
+            if (batch.hasPrompts()) {
+                removeReq = false;
+            }
+
+            sendResults(batch);
+            handled = true;
+        }
+
+        if (removeReq) {
+            sReqMgr.removeRequest(reqCode);
+        }
+
+        return handled;
+    }
+
+    /**
+     * Helper API to start the Settings app directly into the details page
+     * for the app. This allows the user to quickly change the permissions
+     * granted/denied for the app.
+     * <p>
+     * @param activity   The Activity in the running state making the request.
+     */
+    @SuppressWarnings({"WeakerAccess", "unused"})
+    public static void startSettingsApp(Activity activity) {
+        startSettingsApp((Context)activity);
+    }
+
+    /**
+     * Helper API to start the Settings app directly into the details page
+     * for the app. This allows the user to quickly change the permissions
+     * granted/denied for the app.
+     * <p>
+     * @param activity   The Activity in the running state making the request.
+     */
+    @SuppressWarnings({"WeakerAccess", "unused"})
+    public static void startSettingsApp(AppCompatActivity activity) {
+        startSettingsApp((Context)activity);
+    }
+
+    /**
+     * Helper API to start the Settings app directly into the details page
+     * for the app. This allows the user to quickly change the permissions
+     * granted/denied for the app.
+     * <p>
+     * @param fragment   The Fragment in the running state making the request.
+     */
+    @SuppressWarnings({"WeakerAccess", "unused"})
+    public static void startSettingsApp(Fragment fragment) {
+        startSettingsApp((Context)fragment.getActivity());
+    }
+
+    /**
+     * Helper API to start the Settings app directly into the details page
+     * for the app. This allows the user to quickly change the permissions
+     * granted/denied for the app.
+     * <p>
+     * @param fragment   The Fragment in the running state making the request.
+     */
+    @SuppressWarnings({"WeakerAccess", "unused"})
+    public static void startSettingsApp(androidx.fragment.app.Fragment fragment) {
+        startSettingsApp((Context)fragment.getActivity());
+    }
+
+
+    /**
+     * Interface for internal logging calls.  An external logger can be used
+     * by Andele by calling {@link Andele#setLogger(Logger)}.
+     */
+    public interface Logger {
+        /**
+         * Make a log entry with the provided information.
+         *
+         * @param priority  One of the priority values from {@link android.util.Log}.
+         * @param tag       A module specific tag for the log entry
+         * @param msg       The message to be logged
+         */
+        void log(int priority, String tag, String msg);
+    }
+
+
+    /**
+     * A {@link Logger} which can say up front whether it wants messages
+     * at a given priority.  Andele checks this before building a message,
+     * so levels the logger does not want cost nothing.  A plain
+     * {@code Logger} is handed every message.
+     */
+    public interface LevelLogger extends Logger {
+        /**
+         * Check if messages at the given priority and tag would be logged.
+         *
+         * @param priority  One of the priority values from {@link android.util.Log}.
+         * @param tag       A module specific tag for the log entry
+         * @return {@code true} if {@link #log(int, String, String)} should
+         *         be called for the message, {@code false} to drop it.
+         */
+        boolean isLoggable(int priority, String tag);
+    }
+
+
+    /**
+     * Use this to set an internal logger to be used by Andele.  By default
+     * Andele will not have logging enabled until it is built for debug.
+     *
+     * @param newLogger   A class implementing the {@code Logger} interface.
+     */
+    public static void setLogger(Logger newLogger) {
+        Log.setLogger(newLogger);
+    }
+
+
+    /**
+     * Storage used for Andele's education state, which tracks what
+     * education UI the user has already been shown for each permission.
+     * Andele loads everything from the backend once and keeps it in memory,
+     * handing changes back in batches on a background thread.  The default
+     * backend uses the app's private shared preferences.
+     */
+    public interface EduStateBackend {
+        /**
+         * Load all of the stored education state.  This is called once,
+         * the first time Andele needs the state.
+         *
+         * @param context   The application context
+         * @return A map of all stored flags, or null if nothing is stored.
+         */
+        Map<String, Boolean> load(Context context);
+
+        /**
+         * Store a batch of changes to the education state.  This is called
+         * on a background thread.
+         *
+         * @param context   The application context
+         * @param changes   The flags which changed since the last call
+         */
+        void store(Context context, Map<String, Boolean> changes);
+    }
+
+
+    /**
+     * Use this to replace the backend used to store education state.
+     * This should be done before Andele is used, typically from
+     * {@code Application.onCreate()}.  Pending changes are written
+     * to the old backend before this returns.
+     *
+     * @param backend   The backend to use for education state.
+     */
+    @SuppressWarnings("unused")
+    public static void setEduStateBackend(EduStateBackend backend) {
+        Util.setEduStateBackend(backend);
+    }
+
+
+    /**
+     * Wait for all education state changes made so far to be handed to
+     * the backend.  Changes are normally written in the background, this
+     * is mainly useful for tests or before the process is torn down.
+     *
+     * @param timeoutMillis   The maximum time to wait, in milliseconds.
+     * @return true if all changes have been written, false on timeout.
+     */
+    @SuppressWarnings("unused")
+    public static boolean flushEduState(long timeoutMillis) {
+        return Util.flushEduState(timeoutMillis);
+    }
+
+
+    /**
+     * Get the grant state of every permission the app requests, using a
+     * single call to the system rather than one call per permission.  This
+     * is handy when many permission gated things are shown at once, such
+     * as a screen full of widgets.  The snapshot also refreshes Andele's
+     * grant cache, so following checks of these permissions are cheap.
+     *
+     * @param context   Any Context from the app
+     * @return A snapshot of the app's grant state.
+     */
+    @SuppressWarnings("unused")
+    public static GrantSnapshot getGrantSnapshot(Context context) {
+        Application             app = (Application)context.getApplicationContext();
+
+        return takeGrantSnapshot(app, app.getPackageManager());
+    }
+
+
+    static PermissionInfoCache getPermissionInfoCache() {
+        return sPermInfoCache;
+    }
+
+    private static PermissionInfoCache getPermissionInfoCache(Context context) {
+        if (!sPermInfoCache.isAttached()) {
+            sPermInfoCache.attach(context.getApplicationContext());
+        }
+
+        return sPermInfoCache;
+    }
+
+
+    /**
+     * Get the label of a permission in the current locale, for example to
+     * list the permissions a feature needs.  Labels, and permissions the
+     * system does not know, are kept in a process wide cache which is
+     * dropped when packages change or the locale changes.  A miss asks the
+     * system, see {@link #preloadPermissionInfo(Context, String[], Executor)}
+     * to avoid that on the main thread.
+     *
+     * @param context      Any Context from the app
+     * @param permission   The permission to look up
+     * @return The label, or null if the system does not know the permission.
+     */
+    @SuppressWarnings("unused")
+    public static CharSequence getPermissionLabel(Context context, String permission) {
+        return getPermissionInfoCache(context).getLabel(context.getPackageManager(), permission);
+    }
+
+
+    /**
+     * Load the info and labels of permissions into Andele's cache ahead of
+     * time, so later lookups such as {@link #getPermissionLabel(Context, String)}
+     * do not have to ask the system.
+     *
+     * @param context       Any Context from the app
+     * @param permissions   The permissions to load
+     * @param executor      The Executor to do the loading on, which should
+     *                      not run on the main thread
+     */
+    @SuppressWarnings("unused")
+    public static void preloadPermissionInfo(Context context,
+                                             String[] permissions,
+                                             Executor executor) {
+        final PermissionInfoCache   cache = getPermissionInfoCache(context);
+        final PackageManager        pm = context.getPackageManager();
+        final String[]              perms = permissions.clone();
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                cache.preload(pm, perms);
+            }
+        });
+    }
+
+
+    /**
+     * Set the most permissions Andele keeps info and labels for.  The least
+     * recently used are dropped first.  The default is 64.
+     *
+     * @param maxSize   The most permissions to cache, must be positive
+     */
+    @SuppressWarnings("unused")
+    public static void setPermissionInfoCacheSize(int maxSize) {
+        sPermInfoCache.setMaxSize(maxSize);
+    }
+
+
+    /**
+     * Get the number of permission checks which were answered from Andele's
+     * grant cache instead of asking the system.
+     *
+     * @return The number of grant cache hits since the process started.
+     */
+    @SuppressWarnings("unused")
+    public static long getGrantCacheHitCount() {
+        return sGrantCache.getHitCount();
+    }
+
+
+    /**
+     * Get the number of permission checks which had to ask the system
+     * because the grant state was not in Andele's grant cache.  The cache
+     * is cleared each time an Activity resumes.
+     *
+     * @return The number of grant cache misses since the process started.
+     */
+    @SuppressWarnings("unused")
+    public static long getGrantCacheMissCount() {
+        return sGrantCache.getMissCount();
+    }
+
+
+    /**
+     * Choose which thread runs the action callbacks (and related internal
+     * work) for requests made from threads other than the main thread.
+     * Requests made on the main thread always complete on the main thread.
+     * Requests already queued keep the thread they were given.
+     *
+     * @param dispatch   One of {@link #DISPATCH_CALLER},
+     *                   {@link #DISPATCH_MAIN} or {@link #DISPATCH_DEDICATED}.
+     */
+    @SuppressWarnings("unused")
+    public static void setWorkerDispatch(int dispatch) {
+        if ((dispatch != DISPATCH_CALLER) &&
+            (dispatch != DISPATCH_MAIN) &&
+            (dispatch != DISPATCH_DEDICATED)) {
+            throw new IllegalArgumentException("Invalid dispatch: " + dispatch);
+        }
+
+        sWorkerDispatch = dispatch;
+    }
+
+
+    /**
+     * Listener for changes to the grant state of a permission, see
+     * {@link #subscribe(String, PermissionStateListener)}.
+     */
+    public interface PermissionStateListener {
+        /**
+         * Called on the main thread when Andele learns that the grant
+         * state of a permission has changed.
+         *
+         * @param permission   The permission which changed
+         * @param granted      true if the permission is now granted
+         */
+        void onPermissionStateChanged(String permission, boolean granted);
+    }
+
+
+    /**
+     * Subscribe to changes in the grant state of a permission.  Andele
+     * tells subscribers whenever it learns the state changed: from a
+     * permission result, from a check made through Andele, or from the
+     * re-check of subscribed permissions done each time an Activity
+     * resumes (in case the user changed things in Settings.)  Nothing is
+     * polled.  Changes are
+     * batched up and delivered once each on the main thread.  If Andele
+     * already knows the state of the permission, the new subscriber is
+     * told about it right away.
+     *
+     * @param permission   The permission to watch
+     * @param listener     The listener to be told about changes
+     */
+    @SuppressWarnings("unused")
+    public static void subscribe(String permission, PermissionStateListener listener) {
+        if ((permission == null) || (listener == null)) {
+            throw new IllegalArgumentException("Permission and listener are required");
+        }
+
+        sStateBus.subscribe(permission, listener);
     }
 
+
     /**
-     * After calling {@link #checkAndExecute}, Andele may have requested the required
-     * permissions for the ProtectedAction.  This is an asynchronous operation
-     * and will ultimately provide a response via the owner (Activity, Fragment,
-     * etc.)  The app must properly call this method from the owner's
-     * callback first to determine if this is a permission request that Andele
-     * is handling.  If the app is using Andele for all permissions handling
-     * (and it should!) then simply call through to this method and do nothing
-     * else.
-     * <p>
-     * Note that for Activities where permissions are being requested (this
-     * includes AppCompatActivity derivatives), care must be taken when
-     * Fragments are also in use or if you decided to mix and handle some
-     * permissions work yourself.  The best practice is to call through to
-     * {@code onRequestPermissionsResult()} and if it returns {@code false}
-     * call through to the superclass:
-     * <pre>
-     * {@code
-     * {@literal @>}Override
-     * public static void onRequestPermissionsResult(int reqCode, String[] permissions, int[] grantResults) {
-     *     if (!Andele.onRequestPermissionsResult(reqCode, permissions, grantResults)) {
-     *         super.onRequestPermissionsResult(reqCode, permissions, grantResults);
-     *     }
-     * }
-     * }
-     * </pre>
-     * @param reqCode   The request code for the permissions request
-     * @param permissions   The array of permissions which were requested
-     * @param grantResults  The results of the permissions request
-     * @return true if this method handled the results, otherwise false
+     * Stop a listener from hearing about changes to a permission.
+     *
+     * @param permission   The permission being watched
+     * @param listener     The listener passed to {@link #subscribe(String, PermissionStateListener)}
      */
     @SuppressWarnings("unused")
-    public static boolean onRequestPermissionsResult(int reqCode, String[] permissions, int[] grantResults) {
-        boolean                 handled = false;
-        Request                 req;
-        boolean                 removeReq = true;
+    public static void unsubscribe(String permission, PermissionStateListener listener) {
+        sStateBus.unsubscribe(permission, listener);
+    }
 
-        //  Get the request from the manager.  We do not remove it from the
-        //  manager until it is completely processed (success or fail.)
-        //  If we cannot find it, complain about it.
-        req = sReqMgr.getRequest(reqCode);
-        if (req == null) {
-            Log.w(TAG, "onRequestPermissionsResult: request not found for code " + reqCode);
-        } else {
-            ProtectedAction[] reqActions = req.getActions();
-            int actionCount = req.getActionCount();
 
-            for (int i = 0; i < permissions.length; i++) {
-                String curPerm = permissions[i];
+    /**
+     * Set the Executor used to run ActionCallbacks for ProtectedActions
+     * which were not built with one of their own.  Pass
+     * {@link ProtectedAction#INLINE_EXECUTOR} to always run actions on the
+     * thread where the grant is found, or null to go back to the default:
+     * run already granted actions on the calling thread and newly granted
+     * ones on the calling thread's Looper (see
+     * {@link #setWorkerDispatch(int)}).
+     *
+     * @param executor   The default executor for actions, or null.
+     */
+    @SuppressWarnings("unused")
+    public static void setDefaultActionExecutor(Executor executor) {
+        sDefaultExecutor = executor;
+    }
 
-                for (int j = 0; j < actionCount; j++) {
-                    ProtectedAction curAction = reqActions[j];
 
-                    if (!TextUtils.equals(curAction.mPermDetails.mPermission,
-                            curPerm)) {
-                        continue;
-                    }
+    /**
+     * Observer told about every ActionCallback Andele runs, for example to
+     * track how long protected work takes.
+     */
+    public interface ActionObserver {
+        /**
+         * Called on the thread which ran the action, once it has returned
+         * or thrown.
+         *
+         * @param action        The action which was run
+         * @param elapsedNanos  How long the ActionCallback took, in
+         *                      nanoseconds.
+         */
+        void onActionCompleted(ProtectedAction action, long elapsedNanos);
+    }
 
-                    Message msg;
-
-                    //  Found a match with the request, fire up
-                    //  the right message to deal with it.
-                    if (grantResults[i] == PackageManager.PERMISSION_GRANTED) {
-                        //  Call back the action handler, let them know
-                        //  the grant was done.
-                        curAction.mListener.onPermissionGranted(curAction.mPermDetails);
-
-                        //  Now allow the action to take place.  Use the
-                        //  request's handler for this since the original
-                        //  execute request could have come on a different
-                        //  thread.
-                        msg = new Message();
-                        msg.what = MSG_DO_ACTION;
-                        msg.obj = curAction;
-                        req.getHandler().sendMessage(msg);
-                    } else {
-                        //  The permission request was denied.  Now figure out
-                        //  what to show the user, if anything.
-                        PermissionUse curUsage = curAction.mPermDetails.mUsage;
-                        if (curUsage == PermissionUse.CRITICAL) {
-                            //  If the permission is CRITICAL we need to inform
-                            //  the user this is a big problem.
-                            removeReq = false;
-                            showDeniedCritical(req, j);
-                            continue;
-                        } else if (curUsage == PermissionUse.ESSENTIAL) {
-                            //  If this is an ESSENTIAL permission then remind
-                            //  the user of the problems with denial.
-                            removeReq = false;
-                            showDeniedReminder(req, j);
-                            continue;
-                        } else if (req.getOwner().shouldShowRequestPermissionRationale(curPerm)) {
-                            //  This permission covers a secondary type of feature
-                            //  so as long as the user is open to feedback go
-                            //  ahead and provide it.
-                            removeReq = false;
-                            showDeniedFeedback(req, j);
-                            continue;
-                        }
 
-                        //  If we get here there was either no UI to show for
-                        //  this action or the app disabled UX helper.
-                        notifyDenied(curAction);
-                    }
-                }
-            }
+    /**
+     * Receives measurements from the permission pipeline, see
+     * {@link #setMetrics(Metrics)}.  Implementations are called on
+     * whichever thread did the work, often the main thread, so they must
+     * be thread safe and quick.  {@link FixedMetrics} is a ready made
+     * implementation.
+     */
+    public interface Metrics {
+        /** Permission checks made by {@code checkAndExecute()} */
+        int COUNTER_CHECKS = 0;
 
-            handled = true;
-        }
+        /** Checks answered from the grant cache */
+        int COUNTER_CACHE_HITS = 1;
 
-        if (removeReq) {
-            sReqMgr.removeRequest(reqCode);
-        }
+        /** Requests queued to be asked for */
+        int COUNTER_QUEUED = 2;
 
-        return handled;
+        /** Requests dropped because an equal one was already queued */
+        int COUNTER_DEDUPLICATED = 3;
+
+        /** Requests orphaned by their Activity being destroyed */
+        int COUNTER_ORPHANED = 4;
+
+        /** Orphans picked up again by a re-created Activity */
+        int COUNTER_RESTORED = 5;
+
+        /** Requests given up on, see {@link OrphanListener} */
+        int COUNTER_EVICTED = 6;
+
+        /** Requests dropped from a full dialog queue, see {@link #setMaxPendingRequests(int)} */
+        int COUNTER_DROPPED = 7;
+
+        int COUNTER_COUNT = 8;
+
+        /** Requests in progress */
+        int GAUGE_ACTIVE_REQUESTS = 0;
+
+        /** Orphaned requests being kept */
+        int GAUGE_ORPHAN_REQUESTS = 1;
+
+        int GAUGE_COUNT = 2;
+
+        /** From queuing a request to showing its education UI */
+        int PHASE_TO_EDUCATE = 0;
+
+        /** From calling {@code requestPermissions()} to getting results */
+        int PHASE_SYSTEM_DIALOG = 1;
+
+        /** From getting results to running the granted action */
+        int PHASE_RESULT_TO_DISPATCH = 2;
+
+        /** Running app callbacks: actions, prompts and denials */
+        int PHASE_APP_CALLBACK = 3;
+
+        int PHASE_COUNT = 4;
+
+        /**
+         * Called each time something being counted happens.
+         *
+         * @param counter   One of the {@code COUNTER_} values
+         */
+        void count(int counter);
+
+        /**
+         * Called with the new value of a gauge when it may have changed.
+         *
+         * @param gauge   One of the {@code GAUGE_} values
+         * @param value   The current value
+         */
+        void gauge(int gauge, long value);
+
+        /**
+         * Called with how long one pass through a phase took.
+         *
+         * @param phase         One of the {@code PHASE_} values
+         * @param elapsedNanos  The time taken, in nanoseconds
+         */
+        void latency(int phase, long elapsedNanos);
     }
 
+
     /**
-     * Helper API to start the Settings app directly into the details page
-     * for the app. This allows the user to quickly change the permissions
-     * granted/denied for the app.
-     * <p>
-     * @param activity   The Activity in the running state making the request.
+     * Start sending measurements to a {@link Metrics}, or pass null to
+     * stop.  Nothing is measured while no metrics are set.
+     *
+     * @param metrics   The metrics to send to, or null.
      */
-    @SuppressWarnings({"WeakerAccess", "unused"})
-    public static void startSettingsApp(Activity activity) {
-        startSettingsApp((Context)activity);
+    @SuppressWarnings("unused")
+    public static void setMetrics(Metrics metrics) {
+        sMetrics = metrics;
+        sReqMgr.setMetrics(metrics);
+        sGrantCache.setMetrics(metrics);
     }
 
+
     /**
-     * Helper API to start the Settings app directly into the details page
-     * for the app. This allows the user to quickly change the permissions
-     * granted/denied for the app.
-     * <p>
-     * @param activity   The Activity in the running state making the request.
+     * Set an observer to be told when each action completes and how long
+     * it took.  Pass null to stop observing.  Actions are not timed while
+     * no observer is set.
+     *
+     * @param observer   The observer, or null.
      */
-    @SuppressWarnings({"WeakerAccess", "unused"})
-    public static void startSettingsApp(AppCompatActivity activity) {
-        startSettingsApp((Context)activity);
+    @SuppressWarnings("unused")
+    public static void setActionObserver(ActionObserver observer) {
+        sActionObserver = observer;
     }
 
+
     /**
-     * Helper API to start the Settings app directly into the details page
-     * for the app. This allows the user to quickly change the permissions
-     * granted/denied for the app.
-     * <p>
-     * @param fragment   The Fragment in the running state making the request.
+     * Configure the dedicated thread Andele uses for worker thread
+     * requests.  The thread is only started once it is first needed.
+     * When more than {@code maxQueued} messages are waiting on it, further
+     * work is run on the main thread instead.
+     *
+     * @param threadPriority   A priority from {@link android.os.Process},
+     *                         the default is {@code THREAD_PRIORITY_DEFAULT}.
+     * @param maxQueued        The most messages which may wait on the
+     *                         thread, the default is 64.
      */
-    @SuppressWarnings({"WeakerAccess", "unused"})
-    public static void startSettingsApp(Fragment fragment) {
-        startSettingsApp((Context)fragment.getActivity());
+    @SuppressWarnings("unused")
+    public static void configureDispatchThread(int threadPriority, int maxQueued) {
+        sDispatcher.configure(threadPriority, maxQueued);
     }
 
+
     /**
-     * Helper API to start the Settings app directly into the details page
-     * for the app. This allows the user to quickly change the permissions
-     * granted/denied for the app.
-     * <p>
-     * @param fragment   The Fragment in the running state making the request.
+     * Set how long Andele waits to gather up permission requests before
+     * asking the system for them.  Android only shows one permission
+     * dialog at a time, so requests made from the same Activity (or its
+     * Fragments) within the window are asked for together and each one
+     * gets its own results back.  The default is 16 milliseconds, about
+     * one frame.
+     *
+     * @param windowMs   The window in milliseconds, 0 asks for each
+     *                   request right away.
      */
-    @SuppressWarnings({"WeakerAccess", "unused"})
-    public static void startSettingsApp(androidx.fragment.app.Fragment fragment) {
-        startSettingsApp((Context)fragment.getActivity());
+    @SuppressWarnings("unused")
+    public static void setRequestCoalesceWindow(long windowMs) {
+        sCoalescer.setWindow(windowMs);
     }
 
 
     /**
-     * Interface for internal logging calls.  An external logger can be used
-     * by Andele by calling {@link Andele#setLogger(Logger)}.
+     * Set the most permission requests which may wait for another
+     * request's system dialog to close.  Only one dialog is shown per task
+     * at a time, waiting requests are asked for most important
+     * {@link PermissionUse} first.  When the limit is reached the least
+     * important request is dropped, as if the user had cancelled it: the
+     * Listener of each of its actions is told the permission was denied.
+     * The default is 16.
+     *
+     * @param maxPending   The most requests which may wait.
      */
-    public interface Logger {
+    @SuppressWarnings("unused")
+    public static void setMaxPendingRequests(int maxPending) {
+        sScheduler.setMaxPending(maxPending);
+    }
+
+
+    /**
+     * Get the number of permission requests waiting for another request's
+     * system dialog to close.
+     *
+     * @return The number of waiting requests.
+     */
+    @SuppressWarnings("unused")
+    public static int getPendingRequestCount() {
+        return sScheduler.getQueueDepth();
+    }
+
+
+    /**
+     * Listener for requests Andele gives up on because their Activity was
+     * destroyed and never came back (see
+     * {@link #setOrphanLimits(int, long)}) or their Activity or Fragment
+     * was garbage collected.
+     */
+    public interface OrphanListener {
         /**
-         * Make a log entry with the provided information.
+         * Called on the main thread for each action of a request which
+         * was dropped.  Neither the action nor its listener will hear
+         * anything more about the request.
          *
-         * @param priority  One of the priority values from {@link android.util.Log}.
-         * @param tag       A module specific tag for the log entry
-         * @param msg       The message to be logged
+         * @param action   The action which was dropped
          */
-        void log(int priority, String tag, String msg);
+        void onOrphanEvicted(ProtectedAction action);
     }
 
 
     /**
-     * Use this to set an internal logger to be used by Andele.  By default
-     * Andele will not have logging enabled until it is built for debug.
+     * Set limits on the requests Andele keeps after their Activity is
+     * destroyed while the user is being asked.  These "orphans" are picked
+     * up again if the Activity is re-created (for example after a
+     * rotation) or the results still arrive.  Orphans older than
+     * {@code maxAgeMs} are dropped, as is the oldest one whenever there
+     * are more than {@code maxOrphans}.  The defaults are 32 orphans and
+     * 10 minutes.
      *
-     * @param newLogger   A class implementing the {@code Logger} interface.
+     * @param maxOrphans   The most orphans to keep
+     * @param maxAgeMs     How long to keep an orphan, in milliseconds
      */
-    public static void setLogger(Logger newLogger) {
-        Log.setLogger(newLogger);
+    @SuppressWarnings("unused")
+    public static void setOrphanLimits(int maxOrphans, long maxAgeMs) {
+        sReqMgr.setOrphanLimits(maxOrphans, maxAgeMs);
+    }
+
+
+    /**
+     * Set a listener to be told about orphaned requests which are
+     * dropped, or null to stop listening.
+     *
+     * @param listener   The listener, or null.
+     */
+    @SuppressWarnings("unused")
+    public static void setOrphanListener(OrphanListener listener) {
+        sOrphanListener = listener;
+    }
+
+
+    /**
+     * Replace the allocator used for the request codes Andele passes to
+     * {@code requestPermissions}.  By default a {@link RangedRequestCodeAllocator}
+     * is used.  Apps which use request codes of their own should install
+     * an allocator which keeps clear of them.  This may only be called
+     * while Andele has no requests outstanding, typically from
+     * {@code Application.onCreate()}.
+     *
+     * @param allocator   The allocator to use for new requests.
+     */
+    @SuppressWarnings("unused")
+    public static void setRequestCodeAllocator(RequestCodeAllocator allocator) {
+        sReqMgr.setAllocator(allocator);
     }
 
 
@@ -631,13 +1946,6 @@ public class Andele {
         msg.sendToTarget();
     }
 
-    private static void notifyDenied(ProtectedAction action) {
-        Message                 msg = sHandler.obtainMessage(MSG_DENIED);
-
-        msg.obj = action;
-        msg.sendToTarget();
-    }
-
     private static void showEducateUi(int reqCode, int actionIndex) {
         Message                 msg = sHandler.obtainMessage(MSG_SHOW_EDUCATE);
 
@@ -646,37 +1954,113 @@ public class Andele {
         msg.sendToTarget();
     }
 
-    private static void showDeniedCritical(Request req, int actionIndex) {
-        Message                 msg = sHandler.obtainMessage(MSG_SHOW_DENIED_CRITICAL);
+    private static void runGrants(ResultBatch results) {
+        ProtectedAction[]       actions = results.mRequest.getActions();
 
-        msg.obj = req;
-        msg.arg1 = actionIndex;
-        msg.sendToTarget();
+        for (int i = 0; i < actions.length; i++) {
+            if (results.getOutcome(i) == ResultBatch.OUTCOME_GRANTED) {
+                runGranted(actions[i], results.mResultNanos);
+            }
+        }
     }
 
-    private static void showDeniedReminder(Request req, int actionIndex) {
-        Message                 msg = sHandler.obtainMessage(MSG_SHOW_EDUCATE_REMINDER);
+    private static void handleDenials(ResultBatch results) {
+        ProtectedAction[]       actions = results.mRequest.getActions();
 
-        msg.obj = req;
-        msg.arg1 = actionIndex;
-        msg.sendToTarget();
+        for (int i = 0; i < actions.length; i++) {
+            ProtectedAction     action = actions[i];
+            byte                outcome = results.getOutcome(i);
+            long                start;
+
+            if ((outcome == ResultBatch.OUTCOME_NONE) || (outcome == ResultBatch.OUTCOME_GRANTED)) {
+                continue;
+            }
+
+            start = callbackStart();
+            switch (outcome) {
+                case ResultBatch.OUTCOME_DENIED_CRITICAL:
+                    //  The app can't go on, the prompt takes it from here
+                    action.mPromptCb.showDeniedCritical(action);
+                    break;
+
+                case ResultBatch.OUTCOME_DENIED_REMINDER:
+                    action.mPromptCb.showDeniedReminder(action);
+                    action.mListener.onPermissionDenied(action.mPermDetails);
+                    break;
+
+                case ResultBatch.OUTCOME_DENIED_FEEDBACK:
+                    action.mPromptCb.showDeniedFeedback(action);
+                    action.mListener.onPermissionDenied(action.mPermDetails);
+                    break;
+
+                default:
+                    //  No UI to show for this action or the app disabled
+                    //  UX helper.
+                    action.mListener.onPermissionDenied(action.mPermDetails);
+                    break;
+            }
+
+            callbackDone(start);
+        }
     }
 
-    private static void showDeniedFeedback(Request req, int actionIndex) {
-        Message                 msg = sHandler.obtainMessage(MSG_SHOW_DENIED_FEEDBACK);
+    private static class ActionRunner implements Runnable {
+        private final ProtectedAction   mAction;
+        private final long              mResultNanos;
 
-        msg.obj = req;
-        msg.arg1 = actionIndex;
-        msg.sendToTarget();
+        ActionRunner(ProtectedAction action, long resultNanos) {
+            mAction = action;
+            mResultNanos = resultNanos;
+        }
+
+        @Override
+        public void run() {
+            runGranted(mAction, mResultNanos);
+        }
     }
 
+
     private static class PermResultHandler extends Handler {
-        PermResultHandler() {
-            super();
-        }
+        private final ActionDispatcher  mDispatcher;
 
         PermResultHandler(Looper looper) {
+            this(looper, null);
+        }
+
+        PermResultHandler(Looper looper, ActionDispatcher dispatcher) {
             super(looper);
+            mDispatcher = dispatcher;
+        }
+
+        //  On failure the message has been recycled, the caller must not
+        //  touch it again.
+        boolean trySend(Message msg) {
+            boolean             ret;
+
+            if (mDispatcher == null) {
+                ret = sendMessage(msg);
+            } else if (!mDispatcher.tryReserve()) {
+                msg.recycle();
+                ret = false;
+            } else {
+                ret = sendMessage(msg);
+                if (!ret) {
+                    mDispatcher.release();
+                }
+            }
+
+            return ret;
+        }
+
+        @Override
+        public void dispatchMessage(Message msg) {
+            try {
+                super.dispatchMessage(msg);
+            } finally {
+                if (mDispatcher != null) {
+                    mDispatcher.release();
+                }
+            }
         }
 
         @Override
@@ -686,12 +2070,28 @@ public class Andele {
             boolean             removeReq = false;
             boolean             curEduDone;
             Context             context;
+            long                start;
+            ResultBatch         results;
 
             switch(msg.what) {
-                case MSG_DO_ACTION:
+                case MSG_RESULTS:
+                    results = (ResultBatch)msg.obj;
+
                     //  It's go time!  Let the originator fire things up
-                    action = (ProtectedAction)msg.obj;
-                    action.mActionCb.doAction(action);
+                    if ((msg.arg1 & ResultBatch.PART_GRANTS) != 0) {
+                        runGrants(results);
+                    }
+
+                    //  Show whatever denial UI is needed, then the request
+                    //  is done with.
+                    if ((msg.arg1 & ResultBatch.PART_DENIALS) != 0) {
+                        handleDenials(results);
+                        if (results.hasPrompts()) {
+                            req = results.mRequest;
+                            removeReq = true;
+                        }
+                    }
+
                     break;
 
                 case MSG_SHOW_EDUCATE:
@@ -701,7 +2101,7 @@ public class Andele {
                     if (req == null) {
                         //  The request in the message is no longer in
                         //  the active queue.  Complain about it.
-                        Log.w(TAG, "Req id " + msg.arg1 + " does not exist");
+                        Log.w(TAG, "Req id ", msg.arg1, " does not exist");
                         break;
                     }
 
@@ -731,6 +2131,13 @@ public class Andele {
                     //  done now.  If it has been done, try to find the next
                     //  one to be done.
                     if (!curEduDone) {
+                        Metrics metrics = sMetrics;
+
+                        start = callbackStart();
+                        if (metrics != null) {
+                            metrics.latency(Metrics.PHASE_TO_EDUCATE, start - req.getQueuedNanos());
+                        }
+
                         //  The type of education depends on whether the
                         //  permission usage is ESSENTIAL or FEATURE.  When
                         //  it is ESSENTIAL, we need a modal type UI.  Otherwise
@@ -743,6 +2150,8 @@ public class Andele {
                             skipAsk = true;
                         }
 
+                        callbackDone(start);
+
                         //  Save off the show edu state for this permissin
                         if (curEduDone) {
                             Util.setEduDone(context, action.mPermDetails);
@@ -774,41 +2183,6 @@ public class Andele {
 
                     break;
 
-                case MSG_SHOW_DENIED_CRITICAL:
-                    req = (Request)msg.obj;
-                    action = req.getActions()[msg.arg1];
-                    action.mPromptCb.showDeniedCritical(action);
-                    removeReq = true;
-                    break;
-
-                case MSG_SHOW_EDUCATE_REMINDER:
-                    req = (Request)msg.obj;
-                    action = req.getActions()[msg.arg1];
-                    action.mPromptCb.showDeniedReminder(action);
-                    removeReq = true;
-
-                    //  After the user has been shown UI, notify app
-                    notifyDenied(action);
-                    break;
-
-                case MSG_SHOW_DENIED_FEEDBACK:
-                    req = (Request)msg.obj;
-                    action = req.getActions()[msg.arg1];
-                    action.mPromptCb.showDeniedFeedback(action);
-                    removeReq = true;
-
-                    //  After the user has been shown UI, notify app
-                    notifyDenied(action);
-                    break;
-
-                case MSG_DENIED:
-                    if (msg.obj != null) {
-                        action = (ProtectedAction)msg.obj;
-                        action.mListener.onPermissionDenied(action.mPermDetails);
-                    }
-
-                    break;
-
                 case MSG_GO_TO_SETTINGS:
                     //  Now create an Intent for Settings with the app's FQPN
                     //  so the user will be taken directly to it.
@@ -817,7 +2191,7 @@ public class Andele {
                     break;
 
                 default:
-                    Log.e(TAG, "Unknown message received: " + msg.what);
+                    Log.e(TAG, "Unknown message received: ", msg.what);
                     break;
             }
 
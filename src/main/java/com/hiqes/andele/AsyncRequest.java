@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import android.content.pm.PackageManager;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Ties a {@link PermissionFuture} to a ProtectedAction.  The app's action
+ * is wrapped in a new ProtectedAction, equal to the original, whose
+ * callbacks pass everything through to the app's and complete the future
+ * as the permission is granted or denied.
+ *
+ * @param <V>   The type of the value produced when the action runs.
+ */
+class AsyncRequest<V> implements ProtectedAction.ActionCallback,
+                                 ProtectedAction.Listener,
+                                 ProtectedAction.UserPromptCallback {
+    private final ProtectedAction       mAction;
+    private final ProtectedAction       mWrapped;
+    private final Callable<V>           mWork;
+    private final PermissionFuture<V>   mFuture = new PermissionFuture<>();
+    private volatile ResultBatch        mResults;
+
+    AsyncRequest(ProtectedAction action, Callable<V> work) {
+        mAction = action;
+        mWork = work;
+        mWrapped = new ProtectedAction(action.mPermDetails,
+                                       action.mAllDetails,
+                                       this,
+                                       this,
+                                       this,
+                                       action.mExecutor);
+    }
+
+    ProtectedAction getAction() {
+        return mWrapped;
+    }
+
+    PermissionFuture<V> getFuture() {
+        return mFuture;
+    }
+
+    /**
+     * Hold on to the results the action's outcome came from, so each
+     * permission is reported as it was actually answered.
+     */
+    void setResults(ResultBatch results) {
+        mResults = results;
+    }
+
+    //  Without results for a permission, for example when it was already
+    //  granted, it gets the action's overall outcome.
+    private PermissionResult<V> buildResult(boolean granted, V value) {
+        PermissionDetails[]     allDetails = mAction.mAllDetails;
+        ResultBatch             results = mResults;
+        String[]                perms = new String[allDetails.length];
+        boolean[]               grants = new boolean[allDetails.length];
+
+        for (int i = 0; i < allDetails.length; i++) {
+            int                 result = ResultBatch.NO_RESULT;
+
+            if (results != null) {
+                result = results.getGrantResult(allDetails[i].mPermission);
+            }
+
+            perms[i] = allDetails[i].mPermission;
+            if (result == ResultBatch.NO_RESULT) {
+                grants[i] = granted;
+            } else {
+                grants[i] = result == PackageManager.PERMISSION_GRANTED;
+            }
+        }
+
+        return new PermissionResult<>(perms, grants, value);
+    }
+
+    private void denied() {
+        mFuture.complete(buildResult(false, null));
+    }
+
+    void fail(Throwable error) {
+        mFuture.fail(error);
+    }
+
+    @Override
+    public void doAction(ProtectedAction action) {
+        V                       value = null;
+
+        //  Once cancelled, the app's work must not be started
+        if (mFuture.isCancelled()) {
+            return;
+        }
+
+        try {
+            mAction.mActionCb.doAction(mAction);
+            if (mWork != null) {
+                value = mWork.call();
+            }
+        } catch (Exception e) {
+            mFuture.fail(e);
+            return;
+        }
+
+        mFuture.complete(buildResult(true, value));
+    }
+
+    @Override
+    public void onPermissionGranted(PermissionDetails permission) {
+        mAction.mListener.onPermissionGranted(permission);
+    }
+
+    @Override
+    public void onPermissionDenied(PermissionDetails permission) {
+        mAction.mListener.onPermissionDenied(permission);
+        denied();
+    }
+
+    @Override
+    public void showEducateModal(ProtectedAction action, int reqCode) {
+        mAction.mPromptCb.showEducateModal(mAction, reqCode);
+    }
+
+    @Override
+    public void showEducate(ProtectedAction action) {
+        //  The permission is not asked for this time around
+        mAction.mPromptCb.showEducate(mAction);
+        denied();
+    }
+
+    @Override
+    public void showDeniedCritical(ProtectedAction action) {
+        //  The app is not told about this denial through its listener
+        mAction.mPromptCb.showDeniedCritical(mAction);
+        denied();
+    }
+
+    @Override
+    public void showDeniedReminder(ProtectedAction action) {
+        mAction.mPromptCb.showDeniedReminder(mAction);
+    }
+
+    @Override
+    public void showDeniedFeedback(ProtectedAction action) {
+        mAction.mPromptCb.showDeniedFeedback(mAction);
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import android.content.Context;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory copy of the education state flags tracked by {@link Util}.
+ * The backend is read once, on first use or ahead of time on the writer
+ * thread (see {@link #preload()}), after which reads are served from
+ * memory.  Changes are applied to memory immediately and written to
+ * the backend on a background thread; changes made before the writer
+ * gets to run are stored together as one batch.
+ */
+class EduStateStore {
+    private static final String             TAG = EduStateStore.class.getSimpleName();
+
+    private final Andele.EduStateBackend    mBackend;
+    private final Context                   mContext;
+    private final HashMap<String, Boolean>  mValues = new HashMap<>();
+    private HashMap<String, Boolean>        mPending = new HashMap<>();
+    private boolean                         mLoaded;
+    private boolean                         mFlushQueued;
+    private ExecutorService                 mWriter;
+
+    //  Per permission flags, indexed by details id, so repeated reads need
+    //  no key string.  Filled in from mValues on first use of each slot.
+    private static final byte               SLOT_UNKNOWN = 0;
+    private static final byte               SLOT_FALSE = 1;
+    private static final byte               SLOT_TRUE = 2;
+    private static final int                SLOTS_PER_DETAILS = 3;
+    private byte[]                          mSlots = new byte[0];
+
+    EduStateStore(Context context, Andele.EduStateBackend backend) {
+        mContext = context;
+        mBackend = backend;
+    }
+
+    private void loadIfNeeded() {
+        //  Must be called with the lock held
+        if (!mLoaded) {
+            Map<String, Boolean>    stored = mBackend.load(mContext);
+
+            if (stored != null) {
+                mValues.putAll(stored);
+            }
+
+            mLoaded = true;
+        }
+    }
+
+    /**
+     * Read the backend on the writer thread, so the first read from the
+     * main thread finds it loaded, or at worst waits for the rest of it.
+     */
+    synchronized void preload() {
+        if (mLoaded) {
+            return;
+        }
+
+        getWriter().execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (EduStateStore.this) {
+                    loadIfNeeded();
+                }
+            }
+        });
+    }
+
+    synchronized boolean getBoolean(String key) {
+        Boolean                 value;
+
+        loadIfNeeded();
+        value = mValues.get(key);
+        return (value != null) && value;
+    }
+
+    //  Must be called with the lock held
+    private int slotIndex(PermissionDetails perm, int flag) {
+        int                     index = (perm.mId * SLOTS_PER_DETAILS) + flag;
+
+        if (index >= mSlots.length) {
+            mSlots = Arrays.copyOf(mSlots, Math.max(index + 1, mSlots.length * 2));
+        }
+
+        return index;
+    }
+
+    /**
+     * Get one of a permission's flags.  Only the first read of a flag
+     * builds its key, after that this is an array lookup.
+     * <p>
+     * @param prefix   Key prefix naming the flag
+     * @param flag     Index of the flag, 0 to 2, unique per prefix
+     * @param perm     The permission the flag belongs to
+     */
+    synchronized boolean getFlag(String prefix, int flag, PermissionDetails perm) {
+        int                     index = slotIndex(perm, flag);
+        boolean                 ret;
+
+        if (mSlots[index] == SLOT_UNKNOWN) {
+            ret = getBoolean(prefix + perm.asKey());
+            mSlots[index] = ret ? SLOT_TRUE : SLOT_FALSE;
+        } else {
+            ret = (mSlots[index] == SLOT_TRUE);
+        }
+
+        return ret;
+    }
+
+    synchronized void putFlag(String prefix, int flag, PermissionDetails perm, boolean value) {
+        int                     index = slotIndex(perm, flag);
+
+        if (mSlots[index] == (value ? SLOT_TRUE : SLOT_FALSE)) {
+            //  No change, nothing to write
+            return;
+        }
+
+        mSlots[index] = value ? SLOT_TRUE : SLOT_FALSE;
+        putBoolean(prefix + perm.asKey(), value);
+    }
+
+    synchronized void putBoolean(String key, boolean value) {
+        Boolean                 prev;
+
+        loadIfNeeded();
+        prev = mValues.put(key, value);
+        if ((prev != null) && (prev == value)) {
+            //  No change, nothing to write
+            return;
+        }
+
+        mPending.put(key, value);
+        if (!mFlushQueued) {
+            mFlushQueued = true;
+            getWriter().execute(new Runnable() {
+                @Override
+                public void run() {
+                    writePending();
+                }
+            });
+        }
+    }
+
+    private ExecutorService getWriter() {
+        //  Must be called with the lock held
+        if (mWriter == null) {
+            mWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread      writer = new Thread(r, "andele-edu-writer");
+
+                    writer.setDaemon(true);
+                    return writer;
+                }
+            });
+        }
+
+        return mWriter;
+    }
+
+    private void writePending() {
+        HashMap<String, Boolean>    batch;
+
+        //  Swap out the pending changes so new ones can queue up while
+        //  this batch is being written.
+        synchronized (this) {
+            batch = mPending;
+            mPending = new HashMap<>();
+            mFlushQueued = false;
+        }
+
+        if (!batch.isEmpty()) {
+            try {
+                mBackend.store(mContext, batch);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "writePending: failed to store edu state: ", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Block until every change made so far has been handed to the backend.
+     * <p>
+     * @param timeoutMillis   Maximum time to wait
+     * @return true if all changes were written, false on timeout.
+     */
+    boolean flush(long timeoutMillis) {
+        ExecutorService         writer;
+
+        synchronized (this) {
+            if (mWriter == null) {
+                return true;
+            }
+
+            writer = mWriter;
+        }
+
+        //  The writer is a single thread, so once this task runs every
+        //  batch queued before it has been stored.
+        try {
+            writer.submit(new Runnable() {
+                @Override
+                public void run() {
+                    writePending();
+                }
+            }).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            Log.w(TAG, "flush: edu state not written: ", e.getMessage());
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Write out every change made so far, then stop the writer thread.
+     * Used when the store is replaced, it is not used afterwards.
+     * <p>
+     * @param timeoutMillis   Maximum time to wait for the changes
+     * @return true if all changes were written, false on timeout.
+     */
+    boolean close(long timeoutMillis) {
+        boolean                 ret = flush(timeoutMillis);
+
+        synchronized (this) {
+            if (mWriter != null) {
+                //  Anything still queued after a timeout is run first
+                mWriter.shutdown();
+                mWriter = null;
+            }
+        }
+
+        return ret;
+    }
+}
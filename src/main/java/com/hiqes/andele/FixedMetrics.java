@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * An {@link Andele.Metrics} which keeps everything in a fixed amount of
+ * memory: a counter per counter, the last value of each gauge and a log2
+ * histogram per phase.  Histogram bucket {@code i} holds latencies of at
+ * least 2<sup>i-1</sup> and less than 2<sup>i</sup> nanoseconds (bucket
+ * 0 holds 0), so percentiles are reported as the upper bound of their
+ * bucket.  Recording is lock free and does not allocate.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class FixedMetrics implements Andele.Metrics {
+    public static final int             BUCKET_COUNT = 64;
+
+    private final AtomicLongArray       mCounters = new AtomicLongArray(COUNTER_COUNT);
+    private final AtomicLongArray       mGauges = new AtomicLongArray(GAUGE_COUNT);
+    private final AtomicLongArray       mBuckets = new AtomicLongArray(PHASE_COUNT * BUCKET_COUNT);
+    private final AtomicLongArray       mTotals = new AtomicLongArray(PHASE_COUNT);
+
+    static int getBucket(long elapsedNanos) {
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+
+        return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(elapsedNanos));
+    }
+
+    @Override
+    public void count(int counter) {
+        mCounters.incrementAndGet(counter);
+    }
+
+    @Override
+    public void gauge(int gauge, long value) {
+        mGauges.set(gauge, value);
+    }
+
+    @Override
+    public void latency(int phase, long elapsedNanos) {
+        mBuckets.incrementAndGet((phase * BUCKET_COUNT) + getBucket(elapsedNanos));
+        mTotals.addAndGet(phase, Math.max(0, elapsedNanos));
+    }
+
+    public long getCount(int counter) {
+        return mCounters.get(counter);
+    }
+
+    public long getGauge(int gauge) {
+        return mGauges.get(gauge);
+    }
+
+    /**
+     * Get the number of latencies recorded for a phase.
+     */
+    public long getLatencyCount(int phase) {
+        long                    ret = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            ret += mBuckets.get((phase * BUCKET_COUNT) + i);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Get the sum of the latencies recorded for a phase, in nanoseconds.
+     */
+    public long getLatencyTotal(int phase) {
+        return mTotals.get(phase);
+    }
+
+    /**
+     * Get a copy of the histogram for a phase.
+     *
+     * @return The count in each of the {@link #BUCKET_COUNT} buckets.
+     */
+    public long[] getLatencyBuckets(int phase) {
+        long[]                  ret = new long[BUCKET_COUNT];
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            ret[i] = mBuckets.get((phase * BUCKET_COUNT) + i);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Estimate a latency percentile for a phase.
+     *
+     * @param phase        One of the {@code PHASE_} values
+     * @param percentile   The percentile, from 0 to 100
+     * @return The upper bound of the bucket holding the percentile, in
+     *         nanoseconds, or 0 if nothing has been recorded.
+     */
+    public long getLatencyPercentile(int phase, double percentile) {
+        long[]                  buckets = getLatencyBuckets(phase);
+        long                    total = 0;
+        long                    seen = 0;
+        long                    target;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += buckets[i];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        target = Math.max(1, (long)Math.ceil((percentile / 100.0) * total));
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= target) {
+                return (i == 0) ? 0 : ((i >= 63) ? Long.MAX_VALUE : (1L << i) - 1);
+            }
+        }
+
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Clear all counters, gauges and histograms.
+     */
+    public void reset() {
+        for (int i = 0; i < mCounters.length(); i++) {
+            mCounters.set(i, 0);
+        }
+
+        for (int i = 0; i < mGauges.length(); i++) {
+            mGauges.set(i, 0);
+        }
+
+        for (int i = 0; i < mBuckets.length(); i++) {
+            mBuckets.set(i, 0);
+        }
+
+        for (int i = 0; i < mTotals.length(); i++) {
+            mTotals.set(i, 0);
+        }
+    }
+}
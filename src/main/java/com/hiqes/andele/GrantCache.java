@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the grant state of permissions, keyed by permission name, so
+ * repeated checks of the same permission do not each make a round trip
+ * to the system.  Entries are filled in by checks and by permission
+ * results.  The user can change permissions from Settings while the app
+ * is in the background, so the whole cache is dropped whenever any
+ * Activity resumes.  Nothing is persisted, so a new process always starts
+ * out empty.
+ */
+class GrantCache {
+    /**
+     * Told about every grant state the cache learns, from a check which
+     * missed or from a permission result.  Cache hits are not reported.
+     * Also told when the cache is dropped because an Activity resumed.
+     */
+    interface Observer {
+        void onGrantState(String permission, int state);
+        void onInvalidated(Activity resumed);
+    }
+
+    private final ConcurrentHashMap<String, Integer>    mStates = new ConcurrentHashMap<>();
+    private final AtomicInteger                         mGeneration = new AtomicInteger();
+    private final AtomicLong                            mHits = new AtomicLong();
+    private final AtomicLong                            mMisses = new AtomicLong();
+    private final AtomicBoolean                         mAttached = new AtomicBoolean();
+    private volatile Observer                           mObserver;
+    private volatile Andele.Metrics                     mMetrics;
+    private volatile Application                        mApp;
+
+    void setObserver(Observer observer) {
+        mObserver = observer;
+    }
+
+    void setMetrics(Andele.Metrics metrics) {
+        mMetrics = metrics;
+    }
+
+    private void notifyObserver(String permission, int state) {
+        Observer                observer = mObserver;
+
+        if (observer != null) {
+            observer.onGrantState(permission, state);
+        }
+    }
+
+    /**
+     * Start watching Activity lifecycle events for the app so the cache
+     * can be invalidated on resume.  Only the first call has any effect.
+     * <p>
+     * @param app   The application to watch.
+     */
+    void attach(Application app) {
+        if (mAttached.compareAndSet(false, true)) {
+            mApp = app;
+            app.registerActivityLifecycleCallbacks(new ResumeWatcher());
+        }
+    }
+
+    boolean isAttached() {
+        return mAttached.get();
+    }
+
+    Application getApplication() {
+        return mApp;
+    }
+
+    /**
+     * Get the grant state of a permission, asking the owner (and so the
+     * system) only if the state is not cached.
+     * <p>
+     * @param owner        The owner to check with on a miss
+     * @param permission   The permission to check
+     * @return {@code PackageManager.PERMISSION_GRANTED} or
+     *         {@code PackageManager.PERMISSION_DENIED}
+     */
+    int checkSelfPermission(RequestOwner owner, String permission) {
+        Integer                 state = mStates.get(permission);
+        int                     generation;
+        int                     ret;
+
+        if (state != null) {
+            Andele.Metrics      metrics = mMetrics;
+
+            mHits.incrementAndGet();
+            if (metrics != null) {
+                metrics.count(Andele.Metrics.COUNTER_CACHE_HITS);
+            }
+
+            return state;
+        }
+
+        mMisses.incrementAndGet();
+
+        //  Don't cache a result which raced with an invalidation, it may
+        //  have been read before the user changed things.
+        generation = mGeneration.get();
+        ret = owner.checkSelfPermission(permission);
+        if (generation == mGeneration.get()) {
+            mStates.put(permission, ret);
+        }
+
+        notifyObserver(permission, ret);
+        return ret;
+    }
+
+    boolean isCached(String permission) {
+        return mStates.containsKey(permission);
+    }
+
+    /**
+     * Fill the cache from a bulk snapshot.  As with checks, the snapshot
+     * is ignored if the cache was invalidated while it was being taken.
+     * <p>
+     * @param snapshot     The snapshot to fill from
+     * @param generation   The value of {@link #getGeneration()} from
+     *                     before the snapshot was taken
+     */
+    void fill(GrantSnapshot snapshot, int generation) {
+        String[]                perms = snapshot.getRequestedPermissions();
+
+        if (generation != mGeneration.get()) {
+            return;
+        }
+
+        for (int i = 0; i < perms.length; i++) {
+            int                 state = snapshot.isGranted(perms[i]) ?
+                                        PackageManager.PERMISSION_GRANTED :
+                                        PackageManager.PERMISSION_DENIED;
+
+            mStates.put(perms[i], state);
+            notifyObserver(perms[i], state);
+        }
+    }
+
+    int getGeneration() {
+        return mGeneration.get();
+    }
+
+    void update(String permission, int state) {
+        mStates.put(permission, state);
+        notifyObserver(permission, state);
+    }
+
+    void invalidate() {
+        mGeneration.incrementAndGet();
+        mStates.clear();
+    }
+
+    long getHitCount() {
+        return mHits.get();
+    }
+
+    long getMissCount() {
+        return mMisses.get();
+    }
+
+    private class ResumeWatcher implements Application.ActivityLifecycleCallbacks {
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            //  Don't care
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+            //  Don't care
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+            Observer            observer = mObserver;
+
+            //  Permissions may have been changed from Settings while the
+            //  app was not in front, so forget everything.
+            invalidate();
+            if (observer != null) {
+                observer.onInvalidated(activity);
+            }
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+            //  Don't care
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+            //  Don't care
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+            //  Don't care
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+            //  Don't care
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+
+/**
+ * The grant state of every permission the app requests in its manifest,
+ * read with a single {@code PackageManager.getPackageInfo()} call rather
+ * than one {@code checkSelfPermission()} call per permission.  Useful
+ * when many permission gated things need to be checked at once, such as
+ * rendering a screen full of widgets.  The state is kept as a bitmask
+ * indexed by Andele's internal permission ids.  A snapshot does not
+ * change, take a new one to see changes made since.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class GrantSnapshot {
+    private static final String         TAG = GrantSnapshot.class.getSimpleName();
+
+    private final String[]              mPermissions;
+    private final long[]                mGranted;
+
+    private GrantSnapshot(String[] permissions, long[] granted) {
+        mPermissions = permissions;
+        mGranted = granted;
+    }
+
+    /**
+     * Read the grant state of all of a package's requested permissions.
+     * <p>
+     * @param pm            The package manager to ask
+     * @param packageName   The app's package name
+     * @return The snapshot, empty if the package could not be found.
+     */
+    static GrantSnapshot take(PackageManager pm, String packageName) {
+        PackageInfo             info;
+        String[]                perms;
+        int[]                   flags = null;
+        int[]                   ids;
+        int                     maxId = -1;
+        long[]                  granted;
+
+        try {
+            info = pm.getPackageInfo(packageName, PackageManager.GET_PERMISSIONS);
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.e(TAG, "take: package not found: ", packageName);
+            return new GrantSnapshot(new String[0], new long[0]);
+        }
+
+        perms = (info.requestedPermissions != null) ? info.requestedPermissions : new String[0];
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            flags = info.requestedPermissionsFlags;
+        }
+
+        ids = new int[perms.length];
+        for (int i = 0; i < perms.length; i++) {
+            ids[i] = PermissionRegistry.permissionId(perms[i]);
+            maxId = Math.max(maxId, ids[i]);
+        }
+
+        //  Before M everything requested was granted at install time
+        granted = new long[(maxId >> 6) + 1];
+        for (int i = 0; i < perms.length; i++) {
+            if ((flags == null) ||
+                ((flags[i] & PackageInfo.REQUESTED_PERMISSION_GRANTED) != 0)) {
+                granted[ids[i] >> 6] |= 1L << ids[i];
+            }
+        }
+
+        return new GrantSnapshot(perms, granted);
+    }
+
+    boolean isGranted(int permId) {
+        int                     word = permId >> 6;
+
+        return (permId >= 0) && (word < mGranted.length) && ((mGranted[word] & (1L << permId)) != 0);
+    }
+
+    /**
+     * Check if a permission was granted when the snapshot was taken.
+     * Permissions the app does not request are never granted.
+     *
+     * @param permission   The permission to check
+     * @return true if the permission was granted.
+     */
+    public boolean isGranted(String permission) {
+        return isGranted(PermissionRegistry.findPermissionId(permission));
+    }
+
+    /**
+     * @return The permissions requested by the app, in manifest order.
+     */
+    public String[] getRequestedPermissions() {
+        return mPermissions.clone();
+    }
+
+    /**
+     * @return The number of requested permissions which were granted.
+     */
+    public int getGrantedCount() {
+        int                     ret = 0;
+
+        for (int i = 0; i < mGranted.length; i++) {
+            ret += Long.bitCount(mGranted[i]);
+        }
+
+        return ret;
+    }
+}
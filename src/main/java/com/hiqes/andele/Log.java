@@ -17,7 +17,7 @@ package com.hiqes.andele;
 
 
 class Log {
-    static Andele.Logger        sLogger;
+    static volatile Andele.Logger   sLogger;
 
     static {
         //  If we are built as debug, default to the debug logger
@@ -42,25 +42,135 @@ class Log {
         sLogger = newLogger;
     }
 
+    //  Loggers which cannot filter by level get everything, as they always
+    //  have.
+    private static boolean isLoggable(Andele.Logger logger, int priority, String tag) {
+        return !(logger instanceof Andele.LevelLogger) ||
+               ((Andele.LevelLogger)logger).isLoggable(priority, tag);
+    }
+
+    /**
+     * Check if a message at the given priority would be logged.  Use this
+     * to guard call sites which need more work to build their message than
+     * the overloads below cover.
+     */
+    static boolean isLoggable(int priority, String tag) {
+        return isLoggable(sLogger, priority, tag);
+    }
+
+    //  The message is only put together once the logger has said it wants
+    //  it, so disabled levels cost a level check and nothing else.  Fixed
+    //  arity overloads are used rather than varargs so ints are not boxed
+    //  and no array is allocated at the call site.
+    private static void log(int priority, String tag, String msg) {
+        Andele.Logger           logger = sLogger;
+
+        if (isLoggable(logger, priority, tag)) {
+            logger.log(priority, tag, msg);
+        }
+    }
+
+    private static void log(int priority, String tag, String msg, int arg) {
+        Andele.Logger           logger = sLogger;
+
+        if (isLoggable(logger, priority, tag)) {
+            logger.log(priority, tag, msg + arg);
+        }
+    }
+
+    private static void log(int priority, String tag, String msg, Object arg) {
+        Andele.Logger           logger = sLogger;
+
+        if (isLoggable(logger, priority, tag)) {
+            logger.log(priority, tag, msg + arg);
+        }
+    }
+
+    private static void log(int priority, String tag, String msg, int arg, String suffix) {
+        Andele.Logger           logger = sLogger;
+
+        if (isLoggable(logger, priority, tag)) {
+            logger.log(priority, tag, msg + arg + suffix);
+        }
+    }
+
     static void d(String tag, String msg) {
-        sLogger.log(android.util.Log.DEBUG, tag, msg);
+        log(android.util.Log.DEBUG, tag, msg);
+    }
+
+    static void d(String tag, String msg, int arg) {
+        log(android.util.Log.DEBUG, tag, msg, arg);
+    }
+
+    static void d(String tag, String msg, Object arg) {
+        log(android.util.Log.DEBUG, tag, msg, arg);
+    }
+
+    static void d(String tag, String msg, int arg, String suffix) {
+        log(android.util.Log.DEBUG, tag, msg, arg, suffix);
     }
 
     static void v(String tag, String msg) {
-        sLogger.log(android.util.Log.VERBOSE, tag, msg);
+        log(android.util.Log.VERBOSE, tag, msg);
+    }
+
+    static void v(String tag, String msg, int arg) {
+        log(android.util.Log.VERBOSE, tag, msg, arg);
+    }
+
+    static void v(String tag, String msg, Object arg) {
+        log(android.util.Log.VERBOSE, tag, msg, arg);
+    }
+
+    static void v(String tag, String msg, int arg, String suffix) {
+        log(android.util.Log.VERBOSE, tag, msg, arg, suffix);
     }
 
     static void i(String tag, String msg) {
-        sLogger.log(android.util.Log.INFO, tag, msg);
+        log(android.util.Log.INFO, tag, msg);
+    }
+
+    static void i(String tag, String msg, int arg) {
+        log(android.util.Log.INFO, tag, msg, arg);
+    }
+
+    static void i(String tag, String msg, Object arg) {
+        log(android.util.Log.INFO, tag, msg, arg);
+    }
+
+    static void i(String tag, String msg, int arg, String suffix) {
+        log(android.util.Log.INFO, tag, msg, arg, suffix);
     }
 
     static void w(String tag, String msg) {
-        sLogger.log(android.util.Log.WARN, tag, msg);
+        log(android.util.Log.WARN, tag, msg);
+    }
+
+    static void w(String tag, String msg, int arg) {
+        log(android.util.Log.WARN, tag, msg, arg);
+    }
+
+    static void w(String tag, String msg, Object arg) {
+        log(android.util.Log.WARN, tag, msg, arg);
+    }
+
+    static void w(String tag, String msg, int arg, String suffix) {
+        log(android.util.Log.WARN, tag, msg, arg, suffix);
     }
 
     static void e(String tag, String msg) {
-        sLogger.log(android.util.Log.ERROR, tag, msg);
+        log(android.util.Log.ERROR, tag, msg);
+    }
+
+    static void e(String tag, String msg, int arg) {
+        log(android.util.Log.ERROR, tag, msg, arg);
     }
-}
 
+    static void e(String tag, String msg, Object arg) {
+        log(android.util.Log.ERROR, tag, msg, arg);
+    }
 
+    static void e(String tag, String msg, int arg, String suffix) {
+        log(android.util.Log.ERROR, tag, msg, arg, suffix);
+    }
+}
@@ -15,10 +15,16 @@
  */
 package com.hiqes.andele;
 
-class LoggerDebug implements Andele.Logger {
+class LoggerDebug implements Andele.LevelLogger {
 
     @Override
     public void log(int priority, String tag, String msg) {
         android.util.Log.println(priority, tag, msg);
     }
+
+    @Override
+    public boolean isLoggable(int priority, String tag) {
+        //  Everything goes to logcat in a debug build
+        return true;
+    }
 }
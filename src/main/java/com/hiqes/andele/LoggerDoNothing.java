@@ -15,10 +15,16 @@
  */
 package com.hiqes.andele;
 
-class LoggerDoNothing implements Andele.Logger {
+class LoggerDoNothing implements Andele.LevelLogger {
 
     @Override
     public void log(int priority, String tag, String msg) {
         //  Do nothing...duh...
     }
+
+    @Override
+    public boolean isLoggable(int priority, String tag) {
+        //  Nothing is ever logged, so callers can skip building messages
+        return false;
+    }
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds requests whose hosting Activity was destroyed while they were
+ * outstanding, so they can be picked up again if the Activity comes back
+ * (a config change) or the results still arrive.  Screens the user never
+ * returns to would otherwise leave their requests here for the life of
+ * the process, so the pool is bounded by both size and age.  Orphans
+ * leave the pool as soon as they are used, so the order they were
+ * orphaned in is also least recently used order and the oldest is
+ * evicted first.  This class is not thread safe, {@link RequestManager}
+ * guards access to it.
+ */
+class OrphanPool {
+    static final int                    DEFAULT_MAX_SIZE = 32;
+    static final long                   DEFAULT_MAX_AGE_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private final RequestTable          mTable = new RequestTable();
+
+    //  Oldest first, with the time each became an orphan alongside
+    private final ArrayList<Request>    mOrder = new ArrayList<>();
+    private long[]                      mTimes = new long[DEFAULT_MAX_SIZE];
+    private int                         mMaxSize = DEFAULT_MAX_SIZE;
+    private long                        mMaxAgeNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_AGE_MS);
+
+    void setLimits(int maxSize, long maxAgeMs) {
+        if ((maxSize <= 0) || (maxAgeMs <= 0)) {
+            throw new IllegalArgumentException("Orphan limits must be positive");
+        }
+
+        mMaxSize = maxSize;
+        mMaxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMs);
+    }
+
+    int size() {
+        return mTable.size();
+    }
+
+    boolean isEmpty() {
+        return mTable.isEmpty();
+    }
+
+    Request get(int code) {
+        return mTable.get(code);
+    }
+
+    boolean containsKey(int code) {
+        return mTable.containsKey(code);
+    }
+
+    /**
+     * Add an orphan.  The pool may be over its limits afterwards, call
+     * {@link #evict(long, ArrayList)} to bring it back in line.
+     * <p>
+     * @param code     The request's code
+     * @param req      The request
+     * @param nowNanos The current {@link System#nanoTime()}
+     */
+    void put(int code, Request req, long nowNanos) {
+        int                     count = mOrder.size();
+
+        remove(code);
+        mTable.put(code, req);
+        if (count == mTimes.length) {
+            long[]              newTimes = new long[count * 2];
+
+            System.arraycopy(mTimes, 0, newTimes, 0, count);
+            mTimes = newTimes;
+        }
+
+        mTimes[count] = nowNanos;
+        mOrder.add(req);
+    }
+
+    Request remove(int code) {
+        Request                 ret = mTable.remove(code);
+
+        if (ret != null) {
+            for (int i = 0; i < mOrder.size(); i++) {
+                if (mOrder.get(i) == ret) {
+                    removeAt(i);
+                    break;
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private void removeAt(int index) {
+        int                     count = mOrder.size();
+
+        mOrder.remove(index);
+        System.arraycopy(mTimes, index + 1, mTimes, index, count - index - 1);
+    }
+
+    /**
+     * Check if any orphan is over the pool's limits, without changing it.
+     * <p>
+     * @param nowNanos  The current {@link System#nanoTime()}
+     * @return true if {@link #evictOldest(long)} would evict something
+     */
+    boolean needsEviction(long nowNanos) {
+        return !mOrder.isEmpty() &&
+               ((mOrder.size() > mMaxSize) || ((nowNanos - mTimes[0]) > mMaxAgeNanos));
+    }
+
+    /**
+     * Drop the oldest orphan if it is too old or the pool is over its
+     * size limit.  The oldest is always the first to go either way.
+     * <p>
+     * @param nowNanos  The current {@link System#nanoTime()}
+     * @return The evicted request, or null if none is due.
+     */
+    Request evictOldest(long nowNanos) {
+        Request                 ret = null;
+
+        if (needsEviction(nowNanos)) {
+            ret = mOrder.get(0);
+            removeAt(0);
+            mTable.remove(ret.getCode());
+        }
+
+        return ret;
+    }
+
+    /**
+     * Drop orphans which are too old, then the oldest ones until the pool
+     * is no bigger than its limit.
+     * <p>
+     * @param nowNanos  The current {@link System#nanoTime()}
+     * @param evicted   Gets the evicted requests
+     * @return true if anything was evicted
+     */
+    boolean evict(long nowNanos, ArrayList<Request> evicted) {
+        int                     start = evicted.size();
+        Request                 req;
+
+        while ((req = evictOldest(nowNanos)) != null) {
+            evicted.add(req);
+        }
+
+        return evicted.size() > start;
+    }
+}
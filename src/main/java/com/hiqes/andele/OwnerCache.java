@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import android.app.Activity;
+import android.app.Fragment;
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.util.WeakHashMap;
+
+/**
+ * Hands out one {@link RequestOwner} adapter per host Activity or Fragment
+ * so the public {@link Andele} entry points do not create a new adapter
+ * (and WeakReference) on every call.  The maps hold their hosts weakly and
+ * the adapters only hold their host through a WeakReference, so an entry
+ * goes away once its host is garbage collected.  Activities and Fragments
+ * do not override equals/hashCode, so hosts are matched by identity.
+ */
+class OwnerCache {
+    private static final WeakHashMap<Activity, RequestOwnerActivity>
+                                        sActivityOwners = new WeakHashMap<>();
+    private static final WeakHashMap<AppCompatActivity, RequestOwnerAppCompatActivity>
+                                        sAppCompatOwners = new WeakHashMap<>();
+    private static final WeakHashMap<Fragment, RequestOwnerFragment>
+                                        sFragmentOwners = new WeakHashMap<>();
+    private static final WeakHashMap<androidx.fragment.app.Fragment, RequestOwnerAndroidXFragment>
+                                        sAndroidXFragmentOwners = new WeakHashMap<>();
+
+    private OwnerCache() {
+    }
+
+    static RequestOwner forActivity(Activity activity) {
+        RequestOwnerActivity    owner;
+
+        synchronized (sActivityOwners) {
+            owner = sActivityOwners.get(activity);
+            if (owner == null) {
+                owner = new RequestOwnerActivity(activity);
+                sActivityOwners.put(activity, owner);
+            }
+        }
+
+        return owner;
+    }
+
+    static RequestOwner forActivity(AppCompatActivity activity) {
+        RequestOwnerAppCompatActivity   owner;
+
+        synchronized (sAppCompatOwners) {
+            owner = sAppCompatOwners.get(activity);
+            if (owner == null) {
+                owner = new RequestOwnerAppCompatActivity(activity);
+                sAppCompatOwners.put(activity, owner);
+            }
+        }
+
+        return owner;
+    }
+
+    static RequestOwner forFragment(Fragment fragment) {
+        RequestOwnerFragment    owner;
+
+        synchronized (sFragmentOwners) {
+            owner = sFragmentOwners.get(fragment);
+            if (owner == null) {
+                owner = new RequestOwnerFragment(fragment);
+                sFragmentOwners.put(fragment, owner);
+            }
+        }
+
+        return owner;
+    }
+
+    static RequestOwner forFragment(androidx.fragment.app.Fragment fragment) {
+        RequestOwnerAndroidXFragment    owner;
+
+        synchronized (sAndroidXFragmentOwners) {
+            owner = sAndroidXFragmentOwners.get(fragment);
+            if (owner == null) {
+                owner = new RequestOwnerAndroidXFragment(fragment);
+                sAndroidXFragmentOwners.put(fragment, owner);
+            }
+        }
+
+        return owner;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import android.os.MessageQueue;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+
+/**
+ * Finds requests whose owner's Activity or Fragment has been garbage
+ * collected.  Owners hold their UI through an {@link OwnerRef}, which the
+ * VM puts on a shared queue once the UI is collected.  The queue is
+ * drained in small batches when the main thread goes idle and the
+ * owners' requests are dropped from the {@link RequestManager}, so
+ * cleanup does not depend on {@code onActivityDestroyed} ever being seen.
+ * Idle passes also drop orphans which have outlived their age limit, in
+ * case no new request comes along to do it.
+ */
+class OwnerReaper implements MessageQueue.IdleHandler {
+    private static final String         TAG = OwnerReaper.class.getSimpleName();
+
+    //  Keep each idle pass short
+    static final int                    BATCH_SIZE = 16;
+
+    private static final ReferenceQueue<Object>     sQueue = new ReferenceQueue<>();
+
+    /**
+     * A weak reference to an owner's UI which knows its owner.
+     */
+    static class OwnerRef<T> extends WeakReference<T> {
+        final RequestOwner              mOwner;
+
+        OwnerRef(T referent, RequestOwner owner) {
+            super(referent, sQueue);
+            mOwner = owner;
+        }
+    }
+
+    private final RequestManager        mReqMgr;
+
+    OwnerReaper(RequestManager reqMgr) {
+        mReqMgr = reqMgr;
+    }
+
+    /**
+     * Purge the requests of up to {@link #BATCH_SIZE} collected owners.
+     * <p>
+     * @return true if there may be more owners waiting
+     */
+    boolean reap() {
+        ArrayList<RequestOwner> owners = null;
+
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            OwnerRef<?>         ref = (OwnerRef<?>)sQueue.poll();
+
+            if (ref == null) {
+                break;
+            }
+
+            if (owners == null) {
+                owners = new ArrayList<>();
+            }
+
+            owners.add(ref.mOwner);
+        }
+
+        if (owners == null) {
+            return false;
+        }
+
+        Log.d(TAG, "reap: collected owners, count ", owners.size());
+        mReqMgr.purgeOwners(owners);
+        return owners.size() == BATCH_SIZE;
+    }
+
+    @Override
+    public boolean queueIdle() {
+        reap();
+        mReqMgr.purgeOrphans();
+
+        //  Stay installed, owners can be collected at any time
+        return true;
+    }
+}
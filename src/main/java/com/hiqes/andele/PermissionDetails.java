@@ -19,10 +19,32 @@ public class PermissionDetails {
     final String                mPermission;
     final PermissionUse         mUsage;
 
+    //  Process local ids from PermissionRegistry.  mPermId is shared by
+    //  all usages of a permission, mId is unique to this permission and
+    //  usage pair.  Details with the same mId are equal.
+    final int                   mPermId;
+    final int                   mId;
+    private final String        mKey;
+    private final int           mHash;
+
     @SuppressWarnings("WeakerAccess")
     public PermissionDetails(String perm, PermissionUse usage) {
         mPermission = perm;
         mUsage = usage;
+        mPermId = PermissionRegistry.permissionId(perm);
+        mId = PermissionRegistry.detailsId(mPermId, usage);
+        mKey = perm + ":" + usage.name();
+
+        //  Spread the dense ids over the hash space
+        mHash = mId * 0x9E3779B9;
+    }
+
+    /**
+     * Get the shared instance for a permission and usage.  Andele uses
+     * these so equal details are normally the same object.
+     */
+    static PermissionDetails obtain(String perm, PermissionUse usage) {
+        return PermissionRegistry.intern(perm, usage);
     }
 
     @SuppressWarnings("WeakerAccess")
@@ -36,6 +58,17 @@ public class PermissionDetails {
     }
 
     String asKey() {
-        return mPermission + ":" + mUsage.name();
+        return mKey;
+    }
+
+    @Override
+    public int hashCode() {
+        return mHash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return (this == obj) ||
+               ((obj instanceof PermissionDetails) && (mId == ((PermissionDetails)obj).mId));
     }
 }
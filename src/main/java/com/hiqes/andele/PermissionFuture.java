@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Handle for an asynchronous permission check started with one of the
+ * {@link Andele#checkAndExecuteAsync(android.app.Activity, ProtectedAction) Andele.checkAndExecuteAsync}
+ * methods.  It completes with a {@link PermissionResult} once the
+ * permissions have been granted and the action has run, or once they have
+ * been denied.  It fails if the action throws or if an equal action is
+ * already being requested.
+ * <p>
+ * Callbacks and continuations can be attached to run when it completes,
+ * so permission gating can be combined with other asynchronous work.
+ * Never block on {@link #get()} from the main thread while a request is
+ * outstanding, the result is delivered there.
+ * <p>
+ * Cancelling does not dismiss any UI already being shown to the user,
+ * but the action will not be run if it has not started yet.
+ *
+ * @param <V>   The type of the value produced when the action runs.
+ */
+public class PermissionFuture<V> implements Future<PermissionResult<V>> {
+    private static final int            STATE_PENDING = 0;
+    private static final int            STATE_DONE = 1;
+    private static final int            STATE_FAILED = 2;
+    private static final int            STATE_CANCELLED = 3;
+
+    private int                         mState = STATE_PENDING;
+    private PermissionResult<V>         mResult;
+    private Throwable                   mError;
+    private ArrayList<Runnable>         mCallbacks;
+    private PermissionFuture<?>         mSource;
+
+    /**
+     * Called once a {@link PermissionFuture} is complete, successfully or
+     * not.
+     *
+     * @param <V>   The type of the future's value.
+     */
+    public interface Callback<V> {
+        void onComplete(PermissionFuture<V> future);
+    }
+
+    /**
+     * Work to run after a {@link PermissionFuture} completes successfully,
+     * producing the value of a new future.
+     *
+     * @param <V>   The type of the value of the future being continued.
+     * @param <R>   The type of the value this continuation produces.
+     */
+    public interface Continuation<V, R> {
+        R then(PermissionResult<V> result) throws Exception;
+    }
+
+    PermissionFuture() {
+    }
+
+    boolean complete(PermissionResult<V> result) {
+        return finish(STATE_DONE, result, null);
+    }
+
+    boolean fail(Throwable error) {
+        return finish(STATE_FAILED, null, error);
+    }
+
+    private boolean finish(int state, PermissionResult<V> result, Throwable error) {
+        ArrayList<Runnable>     callbacks;
+
+        synchronized (this) {
+            if (mState != STATE_PENDING) {
+                return false;
+            }
+
+            mState = state;
+            mResult = result;
+            mError = error;
+            callbacks = mCallbacks;
+            mCallbacks = null;
+            notifyAll();
+        }
+
+        //  Callbacks run outside the lock, they may well look at this
+        //  future again.
+        if (callbacks != null) {
+            for (int i = 0; i < callbacks.size(); i++) {
+                callbacks.get(i).run();
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        PermissionFuture<?>     source;
+        boolean                 ret = finish(STATE_CANCELLED, null, null);
+
+        //  A chained future cancels the work it is waiting on as well
+        synchronized (this) {
+            source = mSource;
+        }
+
+        if (ret && (source != null)) {
+            source.cancel(mayInterruptIfRunning);
+        }
+
+        return ret;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return mState == STATE_CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return mState != STATE_PENDING;
+    }
+
+    private PermissionResult<V> getDone() throws ExecutionException {
+        //  Must be called with the lock held, once done
+        if (mState == STATE_CANCELLED) {
+            throw new CancellationException();
+        }
+
+        if (mState == STATE_FAILED) {
+            throw new ExecutionException(mError);
+        }
+
+        return mResult;
+    }
+
+    @Override
+    public synchronized PermissionResult<V> get() throws InterruptedException, ExecutionException {
+        while (mState == STATE_PENDING) {
+            wait();
+        }
+
+        return getDone();
+    }
+
+    @Override
+    public synchronized PermissionResult<V> get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long                    remainingNanos = unit.toNanos(timeout);
+        long                    deadline = System.nanoTime() + remainingNanos;
+
+        while (mState == STATE_PENDING) {
+            if (remainingNanos <= 0) {
+                throw new TimeoutException();
+            }
+
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+            remainingNanos = deadline - System.nanoTime();
+        }
+
+        return getDone();
+    }
+
+    /**
+     * Run a callback when this future completes.  If it is already
+     * complete, the callback is handed to the executor right away.
+     * <p>
+     * @param callback   The callback to run.
+     * @param executor   The executor to run it on, for example
+     *                   {@link ProtectedAction#INLINE_EXECUTOR}.
+     */
+    @SuppressWarnings("WeakerAccess")
+    public void addCallback(final Callback<V> callback, final Executor executor) {
+        Runnable                notifier = new Runnable() {
+            @Override
+            public void run() {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onComplete(PermissionFuture.this);
+                    }
+                });
+            }
+        };
+
+        synchronized (this) {
+            if (mState == STATE_PENDING) {
+                if (mCallbacks == null) {
+                    mCallbacks = new ArrayList<>();
+                }
+
+                mCallbacks.add(notifier);
+                return;
+            }
+        }
+
+        notifier.run();
+    }
+
+    /**
+     * Chain more work after this future.  When this future completes
+     * successfully the continuation is run on the executor and the new
+     * future completes with the same grant results and the value the
+     * continuation returned.  If this future fails or is cancelled, so is
+     * the new one.  Cancelling the new future also cancels this one.
+     * <p>
+     * @param continuation   The work to run.
+     * @param executor       The executor to run it on.
+     * @param <R>            The type of the value of the new future.
+     * @return A future for the result of the continuation.
+     */
+    @SuppressWarnings("unused")
+    public <R> PermissionFuture<R> then(final Continuation<V, R> continuation, Executor executor) {
+        final PermissionFuture<R>   next = new PermissionFuture<>();
+
+        synchronized (next) {
+            next.mSource = this;
+        }
+
+        addCallback(new Callback<V>() {
+            @Override
+            public void onComplete(PermissionFuture<V> future) {
+                PermissionResult<V>     result;
+
+                try {
+                    result = future.get();
+                } catch (CancellationException e) {
+                    next.cancel(false);
+                    return;
+                } catch (ExecutionException e) {
+                    next.fail(e.getCause());
+                    return;
+                } catch (InterruptedException e) {
+                    //  Can't happen, the future is already done
+                    Thread.currentThread().interrupt();
+                    next.fail(e);
+                    return;
+                }
+
+                if (next.isDone()) {
+                    //  Cancelled while waiting
+                    return;
+                }
+
+                try {
+                    next.complete(result.<R>withValue(continuation.then(result)));
+                } catch (Exception e) {
+                    next.fail(e);
+                }
+            }
+        }, executor);
+
+        return next;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.content.pm.PermissionInfo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process wide LRU cache of {@link PermissionInfo} and loaded labels, keyed
+ * by permission name.  Each lookup from the package manager is a round
+ * trip to the system, and labels are loaded from another package's
+ * resources, which adds up when listing many permissions.  Names the
+ * system does not know are remembered too, so they are not looked up (and
+ * an exception thrown) every time.  Installing, changing or removing any
+ * package can change the permissions defined, and labels depend on the
+ * locale, so the whole cache is dropped when either happens.
+ */
+class PermissionInfoCache {
+    private static final String         TAG = PermissionInfoCache.class.getSimpleName();
+
+    static final int                    DEFAULT_MAX_SIZE = 64;
+
+    //  Info is null for names the system did not know
+    private static class CachedInfo {
+        final PermissionInfo            mInfo;
+        volatile CharSequence           mLabel;
+
+        CachedInfo(PermissionInfo info) {
+            mInfo = info;
+        }
+    }
+
+    private final LinkedHashMap<String, CachedInfo> mEntries;
+    private final AtomicInteger                 mGeneration = new AtomicInteger();
+    private final AtomicBoolean                 mAttached = new AtomicBoolean();
+    private volatile int                        mMaxSize = DEFAULT_MAX_SIZE;
+
+    @SuppressWarnings("serial")
+    PermissionInfoCache() {
+        //  Access order, so the eldest entry is the least recently used
+        mEntries = new LinkedHashMap<String, CachedInfo>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedInfo> eldest) {
+                return size() > mMaxSize;
+            }
+        };
+    }
+
+    /**
+     * Start listening for package and locale changes so the cache can be
+     * dropped.  Nothing is kept until this is done, lookups go straight to
+     * the system.  Only the first call has any effect.
+     * <p>
+     * @param context   The application context to register with.
+     */
+    void attach(Context context) {
+        if (mAttached.compareAndSet(false, true)) {
+            registerReceivers(context);
+        }
+    }
+
+    void registerReceivers(Context context) {
+        IntentFilter            pkgFilter;
+        BroadcastReceiver       receiver;
+
+        receiver = new ChangeReceiver();
+        pkgFilter = new IntentFilter();
+        pkgFilter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        pkgFilter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        pkgFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        pkgFilter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        pkgFilter.addDataScheme("package");
+        context.registerReceiver(receiver, pkgFilter);
+        context.registerReceiver(receiver, new IntentFilter(Intent.ACTION_LOCALE_CHANGED));
+    }
+
+    boolean isAttached() {
+        return mAttached.get();
+    }
+
+    void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Max size must be positive");
+        }
+
+        synchronized (mEntries) {
+            mMaxSize = maxSize;
+
+            //  Trim right away, the map only trims itself on a put
+            while (mEntries.size() > maxSize) {
+                mEntries.remove(mEntries.keySet().iterator().next());
+            }
+        }
+    }
+
+    private CachedInfo getEntry(PackageManager pm, String permission) {
+        PermissionInfo          info = null;
+        CachedInfo              entry;
+        int                     generation;
+
+        synchronized (mEntries) {
+            entry = mEntries.get(permission);
+        }
+
+        if (entry != null) {
+            return entry;
+        }
+
+        //  Not holding the lock while asking the system, so two threads may
+        //  both look up the same name.  Harmless, the last one wins.
+        generation = mGeneration.get();
+        try {
+            info = pm.getPermissionInfo(permission, PackageManager.GET_META_DATA);
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.d(TAG, "getEntry: unknown permission ", permission);
+        }
+
+        entry = new CachedInfo(info);
+        synchronized (mEntries) {
+            //  Don't keep a lookup which raced with a change, or which
+            //  could never be dropped
+            if ((generation == mGeneration.get()) && mAttached.get()) {
+                mEntries.put(permission, entry);
+            }
+        }
+
+        return entry;
+    }
+
+    /**
+     * Get the system's info for a permission.
+     * <p>
+     * @param pm           The package manager to ask on a miss
+     * @param permission   The permission to look up
+     * @return The info, or null if the system does not know the permission.
+     */
+    PermissionInfo getInfo(PackageManager pm, String permission) {
+        return getEntry(pm, permission).mInfo;
+    }
+
+    /**
+     * Get the label of a permission in the current locale, loading it on
+     * the first request.
+     * <p>
+     * @param pm           The package manager to load with on a miss
+     * @param permission   The permission to look up
+     * @return The label, or null if the system does not know the permission.
+     */
+    CharSequence getLabel(PackageManager pm, String permission) {
+        CachedInfo              entry = getEntry(pm, permission);
+        CharSequence            label = entry.mLabel;
+
+        if ((label == null) && (entry.mInfo != null)) {
+            label = entry.mInfo.loadLabel(pm);
+            entry.mLabel = label;
+        }
+
+        return label;
+    }
+
+    /**
+     * Look up the info and labels for a set of permissions so later calls
+     * are hits.  This blocks on the system, so call it off the main thread.
+     * <p>
+     * @param pm            The package manager to load with
+     * @param permissions   The permissions to load
+     */
+    @SuppressWarnings("ForLoopReplaceableByForEach")
+    void preload(PackageManager pm, String[] permissions) {
+        for (int i = 0; i < permissions.length; i++) {
+            getLabel(pm, permissions[i]);
+        }
+    }
+
+    void invalidate() {
+        synchronized (mEntries) {
+            mGeneration.incrementAndGet();
+            mEntries.clear();
+        }
+    }
+
+    int size() {
+        synchronized (mEntries) {
+            return mEntries.size();
+        }
+    }
+
+    private class ChangeReceiver extends BroadcastReceiver {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Log.d(TAG, "onReceive: dropping cache for ", intent.getAction());
+            invalidate();
+        }
+    }
+}
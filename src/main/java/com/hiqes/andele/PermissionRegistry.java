@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Hands out small, dense integer ids for permission names and keeps one
+ * shared {@link PermissionDetails} for each permission and usage pair.
+ * Permission ids count up from 0 in the order permissions are first
+ * seen.  A details id is derived from its permission id and usage, so
+ * every usage of a permission gets its own id without a second lookup.
+ * Ids are only valid for the life of the process and are never stored.
+ */
+final class PermissionRegistry {
+    private static final int            USAGE_COUNT = PermissionUse.values().length;
+
+    //  Guarded by the class lock.  Registration only happens as actions
+    //  are built, never on the check path.
+    private static final HashMap<String, Integer>           sPermIds = new HashMap<>();
+    private static final ArrayList<PermissionDetails[]>     sDetails = new ArrayList<>();
+
+    private PermissionRegistry() {
+    }
+
+    static synchronized int permissionId(String permission) {
+        Integer                 id = sPermIds.get(permission);
+
+        if (id == null) {
+            id = sDetails.size();
+            sPermIds.put(permission, id);
+            sDetails.add(new PermissionDetails[USAGE_COUNT]);
+        }
+
+        return id;
+    }
+
+    /**
+     * Look up the id of a permission without registering it.
+     * <p>
+     * @return The id, or -1 if the permission has never been registered.
+     */
+    static synchronized int findPermissionId(String permission) {
+        Integer                 id = sPermIds.get(permission);
+
+        return (id != null) ? id : -1;
+    }
+
+    static int detailsId(int permId, PermissionUse usage) {
+        return (permId * USAGE_COUNT) + usage.ordinal();
+    }
+
+    /**
+     * Get the shared PermissionDetails for a permission and usage,
+     * creating it the first time.
+     */
+    static synchronized PermissionDetails intern(String permission, PermissionUse usage) {
+        PermissionDetails[]     byUsage = sDetails.get(permissionId(permission));
+        PermissionDetails       ret = byUsage[usage.ordinal()];
+
+        if (ret == null) {
+            ret = new PermissionDetails(permission, usage);
+            byUsage[usage.ordinal()] = ret;
+        }
+
+        return ret;
+    }
+
+    /**
+     * Get the shared PermissionDetails for a permission id and usage
+     * without creating it.
+     * <p>
+     * @return The details, or null if none were made for this usage.
+     */
+    static synchronized PermissionDetails findDetails(int permId, PermissionUse usage) {
+        return ((permId >= 0) && (permId < sDetails.size())) ?
+               sDetails.get(permId)[usage.ordinal()] :
+               null;
+    }
+
+    /**
+     * @return The number of permission ids handed out so far.  All ids
+     *         are below this.
+     */
+    static synchronized int getPermissionCount() {
+        return sDetails.size();
+    }
+}
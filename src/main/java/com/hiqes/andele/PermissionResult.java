@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+/**
+ * The outcome of an asynchronous check, see
+ * {@link Andele#checkAndExecuteAsync(android.app.Activity, ProtectedAction) Andele.checkAndExecuteAsync}.
+ * It holds the grant result of each permission involved and, when the
+ * action was run, the value produced for it.
+ *
+ * @param <V>   The type of the value produced when the action runs.
+ */
+public final class PermissionResult<V> {
+    private final String[]              mPermissions;
+    private final boolean[]             mGranted;
+    private final V                     mValue;
+
+    PermissionResult(String[] permissions, boolean[] granted, V value) {
+        mPermissions = permissions;
+        mGranted = granted;
+        mValue = value;
+    }
+
+    /**
+     * Get the permissions this result covers.
+     * <p>
+     * @return A copy of the permission names.
+     */
+    @SuppressWarnings("unused")
+    public String[] getPermissions() {
+        return mPermissions.clone();
+    }
+
+    /**
+     * Check if a permission was granted.
+     * <p>
+     * @param permission   The permission to check.
+     * @return true if the permission is covered by this result and was
+     *         granted, otherwise false.
+     */
+    @SuppressWarnings("unused")
+    public boolean isGranted(String permission) {
+        for (int i = 0; i < mPermissions.length; i++) {
+            if (mPermissions[i].equals(permission)) {
+                return mGranted[i];
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Check if all of the permissions were granted, which means the
+     * action was run.
+     * <p>
+     * @return true if every permission was granted.
+     */
+    @SuppressWarnings("WeakerAccess")
+    public boolean isAllGranted() {
+        for (int i = 0; i < mGranted.length; i++) {
+            if (!mGranted[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the value produced when the action ran.
+     * <p>
+     * @return The value, or null if the action was not run or produced
+     *         no value.
+     */
+    @SuppressWarnings("unused")
+    public V getValue() {
+        return mValue;
+    }
+
+    //  Same grant results, new value.  Used when chaining futures.
+    <R> PermissionResult<R> withValue(R value) {
+        return new PermissionResult<>(mPermissions, mGranted, value);
+    }
+}
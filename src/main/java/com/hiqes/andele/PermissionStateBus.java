@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import android.content.pm.PackageManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Fans out permission state changes to any number of subscribers.  The
+ * bus is fed by the {@link GrantCache}, so it hears about every state
+ * Andele learns, from checks as well as permission results, without
+ * polling.  Subscribed permissions are re-checked when an Activity
+ * resumes.  Only changes are delivered.  Changes are gathered up and
+ * delivered together by one task on the delivery executor (the main
+ * thread in the app), so a burst of results for a permission reaches
+ * each subscriber once, with the latest state.
+ */
+class PermissionStateBus {
+    private final Executor                                  mDeliverer;
+    private final ConcurrentHashMap<String, Boolean>        mLastKnown = new ConcurrentHashMap<>();
+
+    //  Guarded by this
+    private final HashMap<String, Andele.PermissionStateListener[]>  mSubscribers = new HashMap<>();
+    private final HashMap<String, Boolean>                  mPending = new HashMap<>();
+    private boolean                                         mDeliveryQueued;
+
+    private final Runnable                                  mDeliverTask = new Runnable() {
+        @Override
+        public void run() {
+            deliverPending();
+        }
+    };
+
+    PermissionStateBus(Executor deliverer) {
+        mDeliverer = deliverer;
+    }
+
+    synchronized void subscribe(String permission, Andele.PermissionStateListener listener) {
+        Andele.PermissionStateListener[]    cur = mSubscribers.get(permission);
+        Andele.PermissionStateListener[]    next;
+        final Boolean                       known;
+
+        if (cur == null) {
+            next = new Andele.PermissionStateListener[1];
+        } else {
+            for (int i = 0; i < cur.length; i++) {
+                if (cur[i] == listener) {
+                    return;
+                }
+            }
+
+            next = new Andele.PermissionStateListener[cur.length + 1];
+            System.arraycopy(cur, 0, next, 0, cur.length);
+        }
+
+        //  Arrays are replaced rather than changed, so delivery can walk
+        //  them without holding the lock.
+        next[next.length - 1] = listener;
+        mSubscribers.put(permission, next);
+
+        //  Let the new subscriber know where things stand, if we know
+        known = mLastKnown.get(permission);
+        if (known != null) {
+            final String                    perm = permission;
+            final Andele.PermissionStateListener  newListener = listener;
+
+            mDeliverer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    newListener.onPermissionStateChanged(perm, known);
+                }
+            });
+        }
+    }
+
+    synchronized void unsubscribe(String permission, Andele.PermissionStateListener listener) {
+        Andele.PermissionStateListener[]    cur = mSubscribers.get(permission);
+        Andele.PermissionStateListener[]    next;
+        int                                 index = -1;
+
+        if (cur == null) {
+            return;
+        }
+
+        for (int i = 0; i < cur.length; i++) {
+            if (cur[i] == listener) {
+                index = i;
+                break;
+            }
+        }
+
+        if (index < 0) {
+            return;
+        }
+
+        if (cur.length == 1) {
+            mSubscribers.remove(permission);
+        } else {
+            next = new Andele.PermissionStateListener[cur.length - 1];
+            System.arraycopy(cur, 0, next, 0, index);
+            System.arraycopy(cur, index + 1, next, index, cur.length - index - 1);
+            mSubscribers.put(permission, next);
+        }
+    }
+
+    synchronized String[] getSubscribedPermissions() {
+        return mSubscribers.keySet().toArray(new String[mSubscribers.size()]);
+    }
+
+    void onGrantState(String permission, int state) {
+        boolean                 granted = (state == PackageManager.PERMISSION_GRANTED);
+        Boolean                 prev = mLastKnown.get(permission);
+        boolean                 queueDelivery = false;
+
+        //  Most calls change nothing, keep those off the lock
+        if ((prev != null) && (prev == granted)) {
+            return;
+        }
+
+        synchronized (this) {
+            prev = mLastKnown.put(permission, granted);
+            if (((prev != null) && (prev == granted)) ||
+                !mSubscribers.containsKey(permission)) {
+                return;
+            }
+
+            //  A later change replaces one still waiting to go out
+            mPending.put(permission, granted);
+            if (!mDeliveryQueued) {
+                mDeliveryQueued = true;
+                queueDelivery = true;
+            }
+        }
+
+        if (queueDelivery) {
+            mDeliverer.execute(mDeliverTask);
+        }
+    }
+
+    private void deliverPending() {
+        String[]                                perms;
+        boolean[]                               states;
+        Andele.PermissionStateListener[][]      targets;
+        int                                     count = 0;
+
+        synchronized (this) {
+            perms = new String[mPending.size()];
+            states = new boolean[perms.length];
+            targets = new Andele.PermissionStateListener[perms.length][];
+
+            for (Map.Entry<String, Boolean> entry : mPending.entrySet()) {
+                perms[count] = entry.getKey();
+                states[count] = entry.getValue();
+                targets[count] = mSubscribers.get(entry.getKey());
+                count++;
+            }
+
+            mPending.clear();
+            mDeliveryQueued = false;
+        }
+
+        //  Listeners are called without the lock so they are free to
+        //  subscribe, unsubscribe or check permissions.
+        for (int i = 0; i < count; i++) {
+            Andele.PermissionStateListener[]    listeners = targets[i];
+
+            if (listeners == null) {
+                //  Everybody unsubscribed in the meantime
+                continue;
+            }
+
+            for (int j = 0; j < listeners.length; j++) {
+                listeners[j].onPermissionStateChanged(perms[i], states[i]);
+            }
+        }
+    }
+}
@@ -15,6 +15,9 @@
  */
 package com.hiqes.andele;
 
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
 
 /**
  * A ProtectedAction object contains the necessary information for Andele
@@ -24,24 +27,41 @@ package com.hiqes.andele;
  * app needs to execute once the permission has been granted.
  * <p>
  * Andele will display UI prompts to the user depending on the permission
- * use specified when the ProtectedAction is built.  See
+ * use specified when the ProtectedAction is built.  An action may need a
+ * set of permissions, for example CAMERA and RECORD_AUDIO to record video.
+ * They are requested together and the action runs once, when all of them
+ * have been granted.  See
  * {@link com.hiqes.andele.Andele#checkAndExecute(android.app.Activity, ProtectedAction) Andele.checkAndExecute}
  * for more details.
  */
 public class ProtectedAction {
+    /**
+     * Executor which runs the ActionCallback directly on whichever thread
+     * Andele finds out the permission is granted: the thread calling
+     * {@code checkAndExecute} if it is already granted, otherwise the
+     * main thread as the permission result is handled.
+     */
+    public static final Executor   INLINE_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
     final PermissionDetails        mPermDetails;
+
+    //  Every permission the action needs, sorted by details id.  Just
+    //  mPermDetails for the usual single permission action.
+    final PermissionDetails[]      mAllDetails;
     final Listener                 mListener;
     final UserPromptCallback       mPromptCb;
     final ActionCallback           mActionCb;
+    final Executor                 mExecutor;
 
     @Override
     public int hashCode() {
-        int                     ret = 719;
-
-        //  make a simple hash of the permissions string and usage
-        ret = 12 * ret + mPermDetails.mPermission.hashCode();
-        ret = 12 * ret + mPermDetails.mUsage.ordinal();
-        return ret;
+        //  Precomputed from the interned permission details id
+        return mPermDetails.hashCode();
     }
 
     @Override
@@ -54,15 +74,29 @@ public class ProtectedAction {
             ProtectedAction     otherAction = (ProtectedAction)obj;
 
             //  In order for these to be equal, the perm details must match.
-            if (mPermDetails.mPermission.equals(otherAction.mPermDetails.mPermission) &&
-                (mPermDetails.mUsage == otherAction.mPermDetails.mUsage)) {
-                ret = true;
-            }
+            //  The permission and usage pair is interned to one id.
+            ret = (mPermDetails.mId == otherAction.mPermDetails.mId) &&
+                  sameDetails(otherAction.mAllDetails);
         }
 
         return ret;
     }
 
+    private boolean sameDetails(PermissionDetails[] otherDetails) {
+        if (mAllDetails.length != otherDetails.length) {
+            return false;
+        }
+
+        //  Both sorted by id
+        for (int i = 0; i < mAllDetails.length; i++) {
+            if (mAllDetails[i].mId != otherDetails[i].mId) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * Listener interface used to inform the app when a permission has been
      * granted or rejected so it can enable or disable functionality.  The app
@@ -82,9 +116,10 @@ public class ProtectedAction {
     public interface ActionCallback {
         /**
          * Andele will call this callback after the listener has been notified
-         * of the permission being granted.  The callback will be executed in
-         * the thread context in which the {@code checkAndExecute} method was
-         * called.
+         * of the permission being granted.  By default the callback will be
+         * executed in the thread context in which the {@code checkAndExecute}
+         * method was called.  See {@link Builder#executor(Executor)} to
+         * change this.
          *
          * @param action   The protected action being executed
          */
@@ -169,14 +204,26 @@ public class ProtectedAction {
         void showDeniedFeedback(ProtectedAction action);
     }
 
-    private ProtectedAction(PermissionDetails  details,
-                            ActionCallback     actionCb,
-                            UserPromptCallback promptCb,
-                            Listener           listener) {
+    ProtectedAction(PermissionDetails  details,
+                    ActionCallback     actionCb,
+                    UserPromptCallback promptCb,
+                    Listener           listener,
+                    Executor           executor) {
+        this(details, new PermissionDetails[] { details }, actionCb, promptCb, listener, executor);
+    }
+
+    ProtectedAction(PermissionDetails   details,
+                    PermissionDetails[] allDetails,
+                    ActionCallback      actionCb,
+                    UserPromptCallback  promptCb,
+                    Listener            listener,
+                    Executor            executor) {
         mPermDetails       = details;
+        mAllDetails        = allDetails;
         mActionCb          = actionCb;
         mPromptCb          = promptCb;
         mListener          = listener;
+        mExecutor          = executor;
     }
 
     /**
@@ -184,11 +231,12 @@ public class ProtectedAction {
      * an operation which is protected by a specific permission.
      */
     public static class Builder {
-        private String              mPerm;
+        private String[]            mPerms;
         private PermissionUse       mUsage;
         private ActionCallback      mActionCb;
         private UserPromptCallback  mPromptCb;
         private Listener            mListener;
+        private Executor            mExecutor;
 
         /**
          * Construct a new ProtectedAction object with the properties
@@ -205,7 +253,7 @@ public class ProtectedAction {
                 mListener = new EmptyListener();
             }
 
-            if (mPerm == null) {
+            if (mPerms == null) {
                 throw new IllegalStateException("Permission must be set");
             }
 
@@ -222,11 +270,39 @@ public class ProtectedAction {
             }
 
             PermissionDetails permDetails =
-                new PermissionDetails(mPerm, mUsage);
+                PermissionDetails.obtain(mPerms[0], mUsage);
             return new ProtectedAction(permDetails,
+                                       getAllDetails(),
                                        mActionCb,
                                        mPromptCb,
-                                       mListener);
+                                       mListener,
+                                       mExecutor);
+        }
+
+        //  Sorted by id with duplicates dropped, so equal sets compare
+        //  equal whatever order they were given in.
+        private PermissionDetails[] getAllDetails() {
+            PermissionDetails[]     ret = new PermissionDetails[mPerms.length];
+            int                     count = 0;
+
+            for (int i = 0; i < mPerms.length; i++) {
+                PermissionDetails   details = PermissionDetails.obtain(mPerms[i], mUsage);
+                int                 j = count;
+
+                while ((j > 0) && (ret[j - 1].mId > details.mId)) {
+                    j--;
+                }
+
+                if ((j > 0) && (ret[j - 1].mId == details.mId)) {
+                    continue;
+                }
+
+                System.arraycopy(ret, j, ret, j + 1, count - j);
+                ret[j] = details;
+                count++;
+            }
+
+            return (count < ret.length) ? Arrays.copyOf(ret, count) : ret;
         }
 
         /**
@@ -241,7 +317,35 @@ public class ProtectedAction {
          */
         @SuppressWarnings("WeakerAccess")
         public Builder withPermission(String perm) {
-            mPerm = perm;
+            mPerms = (perm != null) ? new String[] { perm } : null;
+            return this;
+        }
+
+        /**
+         * Specify a set of Android permissions which are all needed for
+         * the action, for example {@code CAMERA} and {@code RECORD_AUDIO}
+         * to record video.  They are requested together and the action
+         * callback is run once, when every one of them has been granted.
+         * The action is denied if any of them is denied.  The first
+         * permission is the one given to the Listener and used for
+         * prompts.
+         * <p>
+         * @param perms   The Android permissions which protect the action.
+         * @return The Builder object.
+         */
+        @SuppressWarnings("unused")
+        public Builder withPermissions(String... perms) {
+            if ((perms == null) || (perms.length == 0)) {
+                throw new IllegalArgumentException("At least one permission must be given");
+            }
+
+            for (int i = 0; i < perms.length; i++) {
+                if (perms[i] == null) {
+                    throw new IllegalArgumentException("Permission cannot be null");
+                }
+            }
+
+            mPerms = perms.clone();
             return this;
         }
 
@@ -329,6 +433,33 @@ public class ProtectedAction {
             return this;
         }
 
+        /**
+         * Set the Executor used to run the ActionCallback.  Use this to
+         * keep heavy work such as opening a camera or querying contacts
+         * off the main thread, or {@link #INLINE_EXECUTOR} to run it
+         * directly.  When not set, the default from
+         * {@link com.hiqes.andele.Andele#setDefaultActionExecutor(Executor)}
+         * is used.  Denials Andele already knows about without asking, for
+         * example when the user chose not to be asked again, are delivered
+         * to the Listener through this Executor as well.
+         * <p>
+         * @param executor   The Executor which will run the action.
+         * @return The Builder object
+         */
+        @SuppressWarnings("unused")
+        public Builder executor(Executor executor) {
+            if (executor == null) {
+                throw new IllegalArgumentException("Executor cannot be null");
+            }
+
+            if (this.mExecutor != null) {
+                throw new IllegalStateException("Executor is already set");
+            }
+
+            mExecutor = executor;
+            return this;
+        }
+
         private class EmptyListener implements Listener {
 
             @Override
@@ -373,4 +504,16 @@ public class ProtectedAction {
     public PermissionDetails getPermissionDetails() {
         return mPermDetails;
     }
+
+    /**
+     * Get the {@link PermissionDetails} of every permission the action
+     * needs.  This is just {@link #getPermissionDetails()} unless the
+     * action was built with {@link Builder#withPermissions(String...)}.
+     * <p>
+     * @return The PermissionDetails of all of the action's permissions.
+     */
+    @SuppressWarnings("unused")
+    public PermissionDetails[] getAllPermissionDetails() {
+        return mAllDetails.clone();
+    }
 }
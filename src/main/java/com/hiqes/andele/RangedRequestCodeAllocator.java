@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+/**
+ * The default {@link RequestCodeAllocator}.  Codes are handed out from a
+ * reserved range for each type of owner: Activities (including
+ * AppCompatActivity) get one range and Fragments, whose codes must fit in
+ * 7 bits, get another.  Each range keeps a queue of its free codes so
+ * allocating and releasing a code takes constant time no matter how full
+ * the range is, and released codes go to the back of the queue so a code
+ * is not reused right away.  Allocation is deterministic: a new allocator
+ * hands out codes from the start of each range in order.
+ * <p>
+ * Apps using request codes of their own should keep them out of these
+ * ranges, or construct an allocator with ranges which suit the app.
+ */
+@SuppressWarnings("WeakerAccess")
+public class RangedRequestCodeAllocator implements RequestCodeAllocator {
+    /** Default first code used for Activity owners. */
+    public static final int             DEFAULT_ACTIVITY_BASE = 0x5A00;
+
+    /** Default number of codes reserved for Activity owners. */
+    public static final int             DEFAULT_ACTIVITY_COUNT = 0x100;
+
+    /** Default first code used for Fragment owners. */
+    public static final int             DEFAULT_FRAGMENT_BASE = 0;
+
+    /** Default number of codes reserved for Fragment owners. */
+    public static final int             DEFAULT_FRAGMENT_COUNT = 0x80;
+
+    private final CodeRange             mActivityRange;
+    private final CodeRange             mFragmentRange;
+
+    /**
+     * Create an allocator using the default ranges.
+     */
+    public RangedRequestCodeAllocator() {
+        this(DEFAULT_ACTIVITY_BASE,
+             DEFAULT_ACTIVITY_COUNT,
+             DEFAULT_FRAGMENT_BASE,
+             DEFAULT_FRAGMENT_COUNT);
+    }
+
+    /**
+     * Create an allocator with specific ranges.  The ranges must not
+     * overlap.  Fragment owners are limited to codes which fit their
+     * request code mask, so the Fragment range should be within 0-127.
+     * <p>
+     * @param activityBase    The first code for Activity owners
+     * @param activityCount   The number of codes reserved for Activity owners
+     * @param fragmentBase    The first code for Fragment owners
+     * @param fragmentCount   The number of codes reserved for Fragment owners
+     */
+    public RangedRequestCodeAllocator(int activityBase,
+                                      int activityCount,
+                                      int fragmentBase,
+                                      int fragmentCount) {
+        mActivityRange = new CodeRange(activityBase, activityCount);
+        mFragmentRange = new CodeRange(fragmentBase, fragmentCount);
+
+        if (mActivityRange.overlaps(mFragmentRange)) {
+            throw new IllegalArgumentException("Activity and Fragment code ranges overlap");
+        }
+    }
+
+    private CodeRange getRange(RequestOwner owner) {
+        int                     mask = owner.getReqeuestCodeMask();
+
+        //  Owners whose mask can hold the Activity range use it, narrower
+        //  masks (Fragments) fall back to the Fragment range.
+        if (mActivityRange.fitsMask(mask)) {
+            return mActivityRange;
+        }
+
+        if (mFragmentRange.fitsMask(mask)) {
+            return mFragmentRange;
+        }
+
+        return null;
+    }
+
+    @Override
+    public int allocate(RequestOwner owner) {
+        CodeRange               range = getRange(owner);
+
+        if (range == null) {
+            return -1;
+        }
+
+        return range.allocate();
+    }
+
+    @Override
+    public void release(int code) {
+        if (mActivityRange.contains(code)) {
+            mActivityRange.release(code);
+        } else if (mFragmentRange.contains(code)) {
+            mFragmentRange.release(code);
+        }
+    }
+
+    /**
+     * Get the number of codes still available to the given owner.
+     * <p>
+     * @param owner   The owner to check.
+     * @return The number of free codes in the owner's range.
+     */
+    public int getFreeCount(RequestOwner owner) {
+        CodeRange               range = getRange(owner);
+
+        return (range == null) ? 0 : range.mFreeCount;
+    }
+
+    private static class CodeRange {
+        private final int               mBase;
+        private final int               mCount;
+
+        //  Ring buffer of free codes (as offsets from the base) plus a
+        //  bitmap of the codes currently handed out, used to ignore
+        //  releases of codes which are not in use.
+        private final int[]             mFree;
+        private final long[]            mInUse;
+        private int                     mHead;
+        private int                     mFreeCount;
+
+        CodeRange(int base, int count) {
+            if ((base < 0) || (count <= 0) || ((base + count - 1) < base)) {
+                throw new IllegalArgumentException("Invalid code range: " + base + ", " + count);
+            }
+
+            mBase = base;
+            mCount = count;
+            mFree = new int[count];
+            mInUse = new long[(count + 63) >>> 6];
+
+            for (int i = 0; i < count; i++) {
+                mFree[i] = i;
+            }
+
+            mFreeCount = count;
+        }
+
+        boolean contains(int code) {
+            return (code >= mBase) && ((code - mBase) < mCount);
+        }
+
+        boolean overlaps(CodeRange other) {
+            return (mBase < (other.mBase + other.mCount)) &&
+                   (other.mBase < (mBase + mCount));
+        }
+
+        boolean fitsMask(int mask) {
+            int                 last = mBase + mCount - 1;
+
+            return ((mBase & mask) == mBase) && ((last & mask) == last);
+        }
+
+        int allocate() {
+            int                 offset;
+
+            if (mFreeCount == 0) {
+                return -1;
+            }
+
+            offset = mFree[mHead];
+            mHead = (mHead + 1) % mCount;
+            mFreeCount--;
+            mInUse[offset >>> 6] |= (1L << offset);
+
+            return mBase + offset;
+        }
+
+        void release(int code) {
+            int                 offset = code - mBase;
+            long                bit = 1L << offset;
+
+            if ((mInUse[offset >>> 6] & bit) == 0) {
+                return;
+            }
+
+            mInUse[offset >>> 6] &= ~bit;
+            mFree[(mHead + mFreeCount) % mCount] = offset;
+            mFreeCount++;
+        }
+    }
+}
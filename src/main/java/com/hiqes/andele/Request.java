@@ -17,23 +17,103 @@ package com.hiqes.andele;
 
 import android.os.Handler;
 
+import java.util.Arrays;
+
 class Request {
+    static final int                NO_CODE = -1;
+
     private final RequestOwner      mOwner;
     private final ProtectedAction[] mActions;
     private final Handler           mHandler;
+    private int                     mCode = NO_CODE;
+
+    //  Bitsets of the interned ids of the actions' permission details and
+    //  of their permissions, built once.  Each is only as long as its
+    //  highest id needs, so equal sets have equal length arrays.
+    private final long[]            mActionBits;
+    private final long[]            mPermBits;
+
+    //  Index from permission to actions: the action indexes sorted by
+    //  permission id, with the ids alongside.  Results are matched to
+    //  their actions with a binary search rather than a scan.  An action
+    //  needing several permissions has an entry for each.
+    private final int[]             mIndexPermIds;
+    private final int[]             mIndexActions;
+
+    //  System.nanoTime() of when the request was made and when it was
+    //  sent to the system (0 until then), for metrics.
+    private final long              mQueuedNanos;
+    private volatile long           mSentNanos;
 
     @SuppressWarnings("unused")
     Request(RequestOwner owner, ProtectedAction action, Handler handler) {
-        mOwner = owner;
-        mActions = new ProtectedAction[1];
-        mActions[0] = action;
-        mHandler = handler;
+        this(owner, new ProtectedAction[] { action }, handler);
     }
 
     Request(RequestOwner owner, ProtectedAction[] actions, Handler handler) {
+        int                     maxActionId = -1;
+        int                     maxPermId = -1;
+        int                     indexSize = 0;
+
         mOwner = owner;
         mActions = actions;
         mHandler = handler;
+        mQueuedNanos = System.nanoTime();
+
+        for (int i = 0; i < actions.length; i++) {
+            PermissionDetails[] allDetails = actions[i].mAllDetails;
+
+            for (int j = 0; j < allDetails.length; j++) {
+                maxActionId = Math.max(maxActionId, allDetails[j].mId);
+                maxPermId = Math.max(maxPermId, allDetails[j].mPermId);
+            }
+
+            indexSize += allDetails.length;
+        }
+
+        mActionBits = new long[(maxActionId >> 6) + 1];
+        mPermBits = new long[(maxPermId >> 6) + 1];
+        for (int i = 0; i < actions.length; i++) {
+            PermissionDetails[] allDetails = actions[i].mAllDetails;
+
+            for (int j = 0; j < allDetails.length; j++) {
+                setBit(mActionBits, allDetails[j].mId);
+                setBit(mPermBits, allDetails[j].mPermId);
+            }
+        }
+
+        //  Insertion sort, requests only hold a handful of actions and
+        //  this keeps actions for the same permission in request order.
+        mIndexPermIds = new int[indexSize];
+        mIndexActions = new int[indexSize];
+        indexSize = 0;
+        for (int i = 0; i < actions.length; i++) {
+            PermissionDetails[] allDetails = actions[i].mAllDetails;
+
+            for (int k = 0; k < allDetails.length; k++) {
+                int             permId = allDetails[k].mPermId;
+                int             j = indexSize++;
+
+                while ((j > 0) && (mIndexPermIds[j - 1] > permId)) {
+                    mIndexPermIds[j] = mIndexPermIds[j - 1];
+                    mIndexActions[j] = mIndexActions[j - 1];
+                    j--;
+                }
+
+                mIndexPermIds[j] = permId;
+                mIndexActions[j] = i;
+            }
+        }
+    }
+
+    private static void setBit(long[] bits, int id) {
+        bits[id >> 6] |= 1L << id;
+    }
+
+    private static boolean hasBit(long[] bits, int id) {
+        int                     word = id >> 6;
+
+        return (id >= 0) && (word < bits.length) && ((bits[word] & (1L << id)) != 0);
     }
 
     RequestOwner getOwner() {
@@ -61,50 +141,128 @@ class Request {
         return mHandler;
     }
 
-    boolean isSameRequest(Request otherRequest) {
-        boolean                 ret = false;
+    long getQueuedNanos() {
+        return mQueuedNanos;
+    }
 
-        //  See if the protected actions match
-        if ((otherRequest != null) &&
-            (mActions.length == otherRequest.mActions.length)) {
-            boolean             actionsMatch = true;
+    long getSentNanos() {
+        return mSentNanos;
+    }
 
-            for (int i = 0; i < mActions.length; i++) {
-                if (!mActions[i].equals(otherRequest.mActions[i])) {
-                    actionsMatch = false;
-                    break;
-                }
+    void setSentNanos(long sentNanos) {
+        mSentNanos = sentNanos;
+    }
+
+    int getCode() {
+        return mCode;
+    }
+
+    void setCode(int code) {
+        mCode = code;
+    }
+
+    /**
+     * Check if any action of the request needs the permission with the
+     * given permission id, whatever its usage.
+     */
+    boolean hasPermission(int permId) {
+        return hasBit(mPermBits, permId);
+    }
+
+    /**
+     * Find where the actions needing a permission start in the
+     * permission index.  They run from there for as long as
+     * {@link #getIndexPermId(int)} returns the same id.
+     * <p>
+     * @param permId   The interned permission id
+     * @return The index position, or -1 if no action needs the permission
+     */
+    int findIndexStart(int permId) {
+        int                     low = 0;
+        int                     high = mIndexPermIds.length;
+
+        if (!hasPermission(permId)) {
+            return -1;
+        }
+
+        //  Lower bound, the bitset says it is there
+        while (low < high) {
+            int                 mid = (low + high) >>> 1;
+
+            if (mIndexPermIds[mid] < permId) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
+        }
 
-            if (actionsMatch) {
-                if (mOwner.isSameOwner(otherRequest.getOwner())) {
-                    ret = true;
-                }
+        return low;
+    }
+
+    int getIndexSize() {
+        return mIndexPermIds.length;
+    }
+
+    int getIndexPermId(int pos) {
+        return mIndexPermIds[pos];
+    }
+
+    int getIndexAction(int pos) {
+        return mIndexActions[pos];
+    }
+
+    boolean isSameRequest(Request otherRequest) {
+        boolean                 ret = false;
+
+        //  See if the protected actions match.  The same set of actions,
+        //  in whatever order, makes the same request.  The bitsets are the
+        //  union over every action's permissions, so they only rule out a
+        //  match: composite actions can split the same permissions up
+        //  differently.
+        if ((otherRequest != null) &&
+            (mActions.length == otherRequest.mActions.length) &&
+            Arrays.equals(mActionBits, otherRequest.mActionBits) &&
+            sameActions(otherRequest.mActions)) {
+            if (mOwner.isSameOwner(otherRequest.getOwner())) {
+                ret = true;
             }
         }
 
         return ret;
     }
 
-    boolean isSimilarRequest(Request otherRequest) {
-        boolean             hasCommonAction = false;
+    private boolean sameActions(ProtectedAction[] otherActions) {
+        int                     i;
 
-        //  See if the protected actions overlap at all.
-        if (otherRequest != null) {
-            for (int i = 0; (i < mActions.length) && !hasCommonAction; i++) {
-                ProtectedAction curAction = mActions[i];
+        //  Requests are usually built in one order, check that first
+        for (i = 0; i < mActions.length; i++) {
+            if (!mActions[i].equals(otherActions[i])) {
+                break;
+            }
+        }
 
-                for (int j = 0; j < otherRequest.mActions.length; j++) {
-                    ProtectedAction otherCurAction = otherRequest.mActions[j];
+        //  Otherwise each remaining action must show up as many times on
+        //  both sides.  Both sides have the same number left, so there is
+        //  no room for anything extra on the other side.
+        for (int j = i; j < mActions.length; j++) {
+            if (countEqual(mActions, i, mActions[j]) != countEqual(otherActions, i, mActions[j])) {
+                return false;
+            }
+        }
 
-                    if (otherCurAction.equals(curAction)) {
-                        hasCommonAction = true;
-                        break;
-                    }
-                }
+        return true;
+    }
+
+    //  How many actions from the given position on are equal to one
+    private static int countEqual(ProtectedAction[] actions, int start, ProtectedAction action) {
+        int                     ret = 0;
+
+        for (int i = start; i < actions.length; i++) {
+            if (action.equals(actions[i])) {
+                ret++;
             }
         }
 
-        return hasCommonAction;
+        return ret;
     }
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import android.app.Activity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Sits between queueing a request and asking the system for it.  Android
+ * only shows one permission dialog at a time and cancels the other calls,
+ * so requests made from the same host Activity instance within a short
+ * window (for example several Fragments checking in {@code onResume}) are
+ * gathered up and asked for with a single {@code requestPermissions} call.
+ * The first request's code is used for the combined call, the results
+ * are then split back out to each of the original requests.
+ */
+class RequestCoalescer {
+    private static final String         TAG = RequestCoalescer.class.getSimpleName();
+
+    //  About one frame
+    static final long                   DEFAULT_WINDOW_MS = 16;
+
+    /**
+     * Where the coalescer schedules its flushes and sends the combined
+     * requests.  The requests are sent through the first one's owner.
+     */
+    interface Sink {
+        void schedule(Runnable flush, long delayMillis);
+        void requestPermissions(Request[] batch, String[] permissions, int reqCode);
+    }
+
+    private final Sink                  mSink;
+    //  Keyed by the Activity instance, Activities compare by identity
+    private final HashMap<Activity, ArrayList<Request>>
+                                        mPending = new HashMap<>();
+    private final HashMap<Integer, Request[]>
+                                        mBatches = new HashMap<>();
+    private volatile long               mWindowMs = DEFAULT_WINDOW_MS;
+
+    RequestCoalescer(Sink sink) {
+        mSink = sink;
+    }
+
+    /**
+     * Change how long requests are gathered up before being sent.
+     * <p>
+     * @param windowMs   The window in milliseconds, 0 sends each request
+     *                   right away.
+     */
+    void setWindow(long windowMs) {
+        if (windowMs < 0) {
+            throw new IllegalArgumentException("Window must not be negative");
+        }
+
+        mWindowMs = windowMs;
+    }
+
+    long getWindow() {
+        return mWindowMs;
+    }
+
+    /**
+     * Queue up a request to be sent at the end of its host's window.  The
+     * first request from a host starts the window.  A request whose host
+     * is already gone is sent right away.
+     * <p>
+     * @param req   The request, already known to the RequestManager.
+     */
+    void add(Request req) {
+        long                    windowMs = mWindowMs;
+        final Activity          host = req.getOwner().getHostActivity();
+        ArrayList<Request>      pending;
+
+        if ((windowMs == 0) || (host == null)) {
+            send(req);
+            return;
+        }
+
+        synchronized (this) {
+            pending = mPending.get(host);
+            if (pending != null) {
+                pending.add(req);
+                return;
+            }
+
+            pending = new ArrayList<>();
+            pending.add(req);
+            mPending.put(host, pending);
+        }
+
+        mSink.schedule(new Runnable() {
+            @Override
+            public void run() {
+                flush(host);
+            }
+        }, windowMs);
+    }
+
+    /**
+     * Send everything waiting for a host as one call.
+     * <p>
+     * @param host   The host whose window has ended.
+     */
+    void flush(Activity host) {
+        ArrayList<Request>      pending;
+        Request[]               batch;
+
+        synchronized (this) {
+            pending = mPending.remove(host);
+            if (pending == null) {
+                return;
+            }
+
+            batch = pending.toArray(new Request[pending.size()]);
+            if (batch.length > 1) {
+                mBatches.put(batch[0].getCode(), batch);
+            }
+        }
+
+        if (batch.length > 1) {
+            Log.d(TAG, "flush: combined requests, count ", batch.length);
+        }
+
+        mSink.requestPermissions(batch, getPermissions(batch), batch[0].getCode());
+    }
+
+    /**
+     * Take the requests which were sent together under a code.
+     * <p>
+     * @param reqCode   The code the results came back with.
+     * @return The requests, in the order they were made, or null if the
+     *         code was not used for a combined request.
+     */
+    synchronized Request[] takeBatch(int reqCode) {
+        if (mBatches.isEmpty()) {
+            return null;
+        }
+
+        return mBatches.remove(reqCode);
+    }
+
+    private void send(Request req) {
+        Request[]               batch = new Request[] { req };
+
+        mSink.requestPermissions(batch, getPermissions(batch), req.getCode());
+    }
+
+    //  Each permission is only asked for once, even if several of the
+    //  requests need it.
+    @SuppressWarnings("ForLoopReplaceableByForEach")
+    private static String[] getPermissions(Request[] batch) {
+        long[]                  seen = new long[(PermissionRegistry.getPermissionCount() + 63) >>> 6];
+        ArrayList<String>       perms = new ArrayList<>();
+
+        for (int i = 0; i < batch.length; i++) {
+            ProtectedAction[]   actions = batch[i].getActions();
+
+            for (int j = 0; j < actions.length; j++) {
+                PermissionDetails[] allDetails = actions[j].mAllDetails;
+
+                for (int k = 0; k < allDetails.length; k++) {
+                    PermissionDetails   details = allDetails[k];
+                    int                 word = details.mPermId >>> 6;
+                    long                bit = 1L << (details.mPermId & 63);
+
+                    if ((word < seen.length) && ((seen[word] & bit) != 0)) {
+                        continue;
+                    }
+
+                    if (word < seen.length) {
+                        seen[word] |= bit;
+                    }
+
+                    perms.add(details.mPermission);
+                }
+            }
+        }
+
+        return perms.toArray(new String[perms.size()]);
+    }
+}
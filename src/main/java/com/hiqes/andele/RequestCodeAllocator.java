@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+/**
+ * Allocates the request codes Andele passes to {@code requestPermissions}.
+ * Andele calls the allocator while holding its internal request lock, so
+ * implementations do not need to be thread safe but must not block.  A
+ * custom allocator can be installed with
+ * {@link Andele#setRequestCodeAllocator(RequestCodeAllocator)} to keep
+ * Andele's codes away from those the app uses itself.
+ * <p>
+ * The default is {@link RangedRequestCodeAllocator}.
+ */
+public interface RequestCodeAllocator {
+    /**
+     * Allocate a code for a new request made by the given owner.  The code
+     * must fit within {@link RequestOwner#getReqeuestCodeMask()} and must
+     * not be handed out again until it is released.
+     * <p>
+     * @param owner   The owner which will make the request.
+     * @return The allocated code, or -1 if no code is available.
+     */
+    int allocate(RequestOwner owner);
+
+    /**
+     * Return a code previously handed out by {@link #allocate(RequestOwner)}
+     * once Andele is completely done with the request it was used for.
+     * <p>
+     * @param code   The code to release.
+     */
+    void release(int code);
+}
@@ -15,169 +15,488 @@
  */
 package com.hiqes.andele;
 
-import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.app.Application;
+import android.content.ComponentName;
 import android.os.Bundle;
 import android.os.Handler;
 
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Map;
-import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 class RequestManager {
     private static final String                 TAG = RequestManager.class.getSimpleName();
 
-    @SuppressLint("UseSparseArrays")
-    private final HashMap<Integer, Request>     mActiveReqs = new HashMap<>();
-
-    @SuppressLint("UseSparseArrays")
-    private final HashMap<Integer, Request>     mOrphanReqs = new HashMap<>();
+    /**
+     * Told about requests the manager gives up on: orphans dropped from
+     * the pool for being too old or to make room, and requests whose
+     * owner was garbage collected.  Their codes have already been
+     * released.
+     */
+    interface EvictionListener {
+        void onRequestEvicted(Request req);
+    }
 
-    private final Random                        mRand;
-    private OrphanTracker                       mOrphanTracker;
+    private final RequestTable                  mActiveReqs = new RequestTable();
+    private final OrphanPool                    mOrphanReqs = new OrphanPool();
+
+    //  Secondary indices over both the active and orphan maps.  Actions
+    //  compare by their primary permission, usage and whole permission
+    //  set, so a lookup by action only finds a queued request for an equal
+    //  action.  A composite action and a single action on one of its
+    //  permissions do not match, so they are queued twice, each with its
+    //  own request code.  Requests are also bucketed by the component of
+    //  their hosting Activity so lifecycle events only need to look at
+    //  that Activity's requests.
+    private final HashMap<ProtectedAction, Request>             mReqsByAction = new HashMap<>();
+    private final HashMap<ComponentName, ArrayList<Request>>    mReqsByHost = new HashMap<>();
+
+    //  All of the tables and indices above are guarded by this one lock.
+    //  Duplicate suppression, orphan restore and code allocation must see
+    //  every queued request at once, so the lock cannot be striped.  No
+    //  critical section calls out to the app (including logging), so a
+    //  worker thread queuing a request never waits on the main thread
+    //  doing result handling.  The only allocations made under the lock
+    //  are the tables' own: map entries, the list for a host's first
+    //  request and list growth.  Lists handed back out of a critical
+    //  section are created before it is entered.
+    //  Eviction listeners, metrics and logging all run after the lock is
+    //  released.  The bound on one hold is O(a + h) table operations, for
+    //  the a permissions of the requests being added or removed and the h
+    //  requests of the host Activities being looked at: one for lifecycle
+    //  events, at most OwnerReaper.BATCH_SIZE for owner purges.  At most
+    //  one orphan is evicted per hold.  The request code allocator is the
+    //  one outside call made under the lock and must be cheap.
+    private final Object                        mLock = new Object();
+
+    private RequestCodeAllocator                mAllocator = new RangedRequestCodeAllocator();
+    private final AtomicReference<OrphanTracker>    mOrphanTracker = new AtomicReference<>();
+    private volatile EvictionListener           mEvictionListener;
+    private volatile Andele.Metrics             mMetrics;
 
     RequestManager() {
-        mRand = new Random(System.nanoTime());
     }
 
 
-    //  TODO: REVISE THIS TO CONFINE CODES WITHIN A "RANGE" SO WE DON'T CONFLICT WITH APP
-    private int getNextCode(int mask) {
-        int                     ret;
+    void setAllocator(RequestCodeAllocator allocator) {
+        if (allocator == null) {
+            throw new IllegalArgumentException("Allocator cannot be null");
+        }
+
+        synchronized (mLock) {
+            //  Codes handed out by the old allocator would never be
+            //  released to it, so only allow a switch while idle.
+            if (!mActiveReqs.isEmpty() || !mOrphanReqs.isEmpty()) {
+                throw new IllegalStateException("Cannot change allocator with requests queued");
+            }
+
+            mAllocator = allocator;
+        }
+    }
+
+
+    void setOrphanLimits(int maxOrphans, long maxAgeMs) {
+        synchronized (mLock) {
+            mOrphanReqs.setLimits(maxOrphans, maxAgeMs);
+        }
+
+        purgeOrphans();
+    }
+
+
+    void setEvictionListener(EvictionListener listener) {
+        mEvictionListener = listener;
+    }
+
+
+    void setMetrics(Andele.Metrics metrics) {
+        mMetrics = metrics;
+        reportSizes();
+    }
+
+
+    //  Metrics are app code, so these must not be called with the lock held
+    private void count(int counter) {
+        Andele.Metrics          metrics = mMetrics;
+
+        if (metrics != null) {
+            metrics.count(counter);
+        }
+    }
+
+    private void reportSizes() {
+        Andele.Metrics          metrics = mMetrics;
+        int                     activeCount;
+        int                     orphanCount;
+
+        if (metrics == null) {
+            return;
+        }
+
+        synchronized (mLock) {
+            activeCount = mActiveReqs.size();
+            orphanCount = mOrphanReqs.size();
+        }
+
+        metrics.gauge(Andele.Metrics.GAUGE_ACTIVE_REQUESTS, activeCount);
+        metrics.gauge(Andele.Metrics.GAUGE_ORPHAN_REQUESTS, orphanCount);
+    }
+
+
+    int getOrphanCount() {
+        synchronized (mLock) {
+            return mOrphanReqs.size();
+        }
+    }
+
 
-        synchronized(this) {
-            //  Only get a random number 1x.  Just add to it through the
-            //  loop so we don't unnecessarily tax the system.
-            ret = mRand.nextInt() & mask;
-            while (true) {
-                Request activeReq = mActiveReqs.get(ret);
-                Request orphReq = mActiveReqs.get(ret);
-                if ((activeReq == null) && (orphReq == null)) {
+    /**
+     * Drop orphans which have outlived the pool's limits, telling the
+     * eviction listener about each one.
+     */
+    void purgeOrphans() {
+        EvictionListener        listener = mEvictionListener;
+        long                    now = System.nanoTime();
+        boolean                 evictedAny = false;
+
+        //  Called on every queue and idle pass, usually nothing is due.
+        //  Otherwise take one orphan out per hold of the lock and deal
+        //  with it after letting go, so nothing is collected under it.
+        while (true) {
+            Request             curReq;
+
+            synchronized (mLock) {
+                curReq = mOrphanReqs.evictOldest(now);
+                if (curReq == null) {
                     break;
                 }
 
-                ret = (ret + 1) & mask;
+                unindexRequest(curReq);
+                mAllocator.release(curReq.getCode());
+            }
+
+            evictedAny = true;
+            Log.i(TAG, "purgeOrphans: evicted orphan req ", curReq.getCode());
+            count(Andele.Metrics.COUNTER_EVICTED);
+            if (listener != null) {
+                listener.onRequestEvicted(curReq);
+            }
+        }
+
+        if (evictedAny) {
+            reportSizes();
+        }
+    }
+
+
+    /**
+     * Drop the active requests of owners whose UI was garbage collected.
+     * Orphans are left to the orphan pool's limits, their owners are
+     * expected to be gone.
+     * <p>
+     * @param owners   The owners which were collected.
+     */
+    void purgeOwners(ArrayList<RequestOwner> owners) {
+        ArrayList<Request>      purged = new ArrayList<>();
+        EvictionListener        listener;
+
+        synchronized (mLock) {
+            for (int i = 0; i < owners.size(); i++) {
+                RequestOwner        owner = owners.get(i);
+                ArrayList<Request>  hostReqs = mReqsByHost.get(owner.getHostComponentName());
+
+                if (hostReqs == null) {
+                    continue;
+                }
+
+                //  Walk backwards, unindexing removes from this list
+                for (int j = hostReqs.size() - 1; j >= 0; j--) {
+                    Request         curReq = hostReqs.get(j);
+                    int             curCode = curReq.getCode();
+
+                    if ((curReq.getOwner() == owner) && (mActiveReqs.get(curCode) == curReq)) {
+                        mActiveReqs.remove(curCode);
+                        unindexRequest(curReq);
+                        mAllocator.release(curCode);
+                        purged.add(curReq);
+                    }
+                }
             }
         }
 
+        listener = mEvictionListener;
+        for (int i = 0; i < purged.size(); i++) {
+            Log.i(TAG, "purgeOwners: owner collected, dropped req ", purged.get(i).getCode());
+            count(Andele.Metrics.COUNTER_EVICTED);
+            if (listener != null) {
+                listener.onRequestEvicted(purged.get(i));
+            }
+        }
+
+        if (!purged.isEmpty()) {
+            reportSizes();
+        }
+    }
+
+
+    //  Must be called with the lock held
+    private int getNextCode(RequestOwner owner) {
+        int                     ret = mAllocator.allocate(owner);
+
+        //  Guard against a custom allocator handing out a code which is
+        //  still tied to a queued request.
+        if ((ret >= 0) &&
+            (mActiveReqs.containsKey(ret) || mOrphanReqs.containsKey(ret))) {
+            ret = -1;
+        }
+
         return ret;
     }
 
 
-    int queueRequest(RequestOwner owner, ProtectedAction[] actions, Handler handler) {
-        Request                 req = new Request(owner, actions, handler);
-        int                     reqCode = getNextCode(owner.getReqeuestCodeMask());
+    private void registerOrphanTracker(Application app) {
+        OrphanTracker           tracker;
 
         //  Make sure we're setup to track orphans by registering as an
-        //  Activity lifecycle callback receiver.
-        if (mOrphanTracker == null) {
-            mOrphanTracker = new OrphanTracker();
-            owner.getApplication().registerActivityLifecycleCallbacks(mOrphanTracker);
+        //  Activity lifecycle callback receiver.  Only the thread which
+        //  wins the swap registers, so racing callers cannot register
+        //  the tracker twice.
+        if (mOrphanTracker.get() == null) {
+            tracker = new OrphanTracker();
+            if (mOrphanTracker.compareAndSet(null, tracker)) {
+                app.registerActivityLifecycleCallbacks(tracker);
+            }
         }
+    }
 
-        //  Before queuing a new request, see if this request is actually
-        //  out there already.
-        synchronized (this) {
-            Set<Map.Entry<Integer, Request>>    allReqs;
 
+    //  Must be called with the lock held
+    private void indexRequest(Request req) {
+        ProtectedAction[]       actions = req.getActions();
+        ComponentName           host = req.getOwner().getHostComponentName();
+        ArrayList<Request>      hostReqs;
+
+        for (int i = 0; i < actions.length; i++) {
+            mReqsByAction.put(actions[i], req);
+        }
+
+        hostReqs = mReqsByHost.get(host);
+        if (hostReqs == null) {
+            hostReqs = new ArrayList<>();
+            mReqsByHost.put(host, hostReqs);
+        }
+
+        hostReqs.add(req);
+    }
+
+
+    //  Must be called with the lock held
+    private void unindexRequest(Request req) {
+        ProtectedAction[]       actions = req.getActions();
+        ComponentName           host = req.getOwner().getHostComponentName();
+        ArrayList<Request>      hostReqs;
+
+        //  Only drop action entries which still point at this request, a
+        //  restored orphan may have taken over some of them.
+        for (int i = 0; i < actions.length; i++) {
+            if (mReqsByAction.get(actions[i]) == req) {
+                mReqsByAction.remove(actions[i]);
+            }
+        }
+
+        hostReqs = mReqsByHost.get(host);
+        if (hostReqs != null) {
+            for (int i = hostReqs.size() - 1; i >= 0; i--) {
+                if (hostReqs.get(i) == req) {
+                    hostReqs.remove(i);
+                    break;
+                }
+            }
+
+            if (hostReqs.isEmpty()) {
+                mReqsByHost.remove(host);
+            }
+        }
+    }
+
+
+    int queueRequest(RequestOwner owner, ProtectedAction[] actions, Handler handler) {
+        Request                 req = new Request(owner, actions, handler);
+        int                     reqCode = -1;
+        Request                 activeReq = null;
+        Request                 orphanReq = null;
+
+        registerOrphanTracker(owner.getApplication());
+        purgeOrphans();
+
+        //  Before queuing a new request, see if this request is actually
+        //  out there already.  The check, any orphan restore and the insert
+        //  all happen under one hold of the lock so two threads queuing the
+        //  same action cannot both get a code.
+        synchronized (mLock) {
             //  Check our active requests first.  It is possible for a request
             //  to still be "active" if it was denied and still being
             //  handled (UI interaction) but gets requested again in an
-            //  onResume or onStart type callback.
-            allReqs = mActiveReqs.entrySet();
-            for (Map.Entry<Integer, Request> curEntry : allReqs) {
-                Request         curReq = curEntry.getValue();
-
-                if (curReq.isSimilarRequest(req)) {
-                    //  This request is already being processed so ignore
-                    //  the new queue request by resetting the request code
-                    //  to -1.
-                    Log.d(TAG, "queueRequest: request already being processed, ignore");
-                    reqCode = -1;
+            //  onResume or onStart type callback.  The action index holds
+            //  both active and orphan requests, so note the first orphan
+            //  match but keep looking for an active one.
+            for (int i = 0; i < actions.length; i++) {
+                Request         curReq = mReqsByAction.get(actions[i]);
+
+                if (curReq == null) {
+                    continue;
+                }
+
+                if (mActiveReqs.get(curReq.getCode()) == curReq) {
+                    activeReq = curReq;
                     break;
                 }
+
+                if (orphanReq == null) {
+                    orphanReq = curReq;
+                }
             }
 
-            if (reqCode != -1) {
-                allReqs = mOrphanReqs.entrySet();
-                for (Map.Entry<Integer, Request> curEntry : allReqs) {
-                    Request         curReq = curEntry.getValue();
-
-                    if (curReq.isSimilarRequest(req)) {
-                        int         curKey = curEntry.getKey();
-
-                        //  This orphan is being "restored" via this new
-                        //  request.  This can happen because of config change
-                        //  (e.g. screen rotation) where the Activity owning
-                        //  the request was torn down and re-created while an
-                        //  active request was happening.  So stick this new
-                        //  request on the active map and purge the old one
-                        //  from the orphan map.
-                        Log.d(TAG, "queueRequest: restoring orphan " + curKey);
-                        mOrphanReqs.remove(curKey);
-                        mActiveReqs.put(curKey, req);
-                        reqCode = -1;
-                        break;
+            if (activeReq == null) {
+                if (orphanReq != null) {
+                    int         curKey = orphanReq.getCode();
+
+                    //  This orphan is being "restored" via this new
+                    //  request.  This can happen because of config change
+                    //  (e.g. screen rotation) where the Activity owning
+                    //  the request was torn down and re-created while an
+                    //  active request was happening.  So stick this new
+                    //  request on the active map and purge the old one
+                    //  from the orphan map.
+                    mOrphanReqs.remove(curKey);
+                    unindexRequest(orphanReq);
+                    req.setCode(curKey);
+                    mActiveReqs.put(curKey, req);
+                    indexRequest(req);
+                } else {
+                    reqCode = getNextCode(owner);
+                    if (reqCode >= 0) {
+                        req.setCode(reqCode);
+                        mActiveReqs.put(reqCode, req);
+                        indexRequest(req);
                     }
                 }
             }
         }
 
-        if (reqCode >= 0) {
-            synchronized (this) {
-                mActiveReqs.put(reqCode, req);
-            }
+        if (activeReq != null) {
+            //  This request is already being processed so ignore the new
+            //  queue request, the request code stays -1.
+            Log.d(TAG, "queueRequest: request already being processed, ignore");
+            count(Andele.Metrics.COUNTER_DEDUPLICATED);
+        } else if (orphanReq != null) {
+            Log.d(TAG, "queueRequest: restoring orphan ", orphanReq.getCode());
+            count(Andele.Metrics.COUNTER_RESTORED);
+        } else if (reqCode < 0) {
+            Log.e(TAG, "queueRequest: no request codes available, request dropped");
+        } else {
+            count(Andele.Metrics.COUNTER_QUEUED);
         }
 
+        reportSizes();
         return reqCode;
     }
 
 
+    //  Check if this exact action object is part of a queued request, as
+    //  opposed to an equal action from some other request.
+    boolean isActionQueued(ProtectedAction action) {
+        synchronized (mLock) {
+            Request             req = mReqsByAction.get(action);
+
+            if (req != null) {
+                ProtectedAction[]   actions = req.getActions();
+
+                for (int i = 0; i < actions.length; i++) {
+                    if (actions[i] == action) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+
+    //  Check if a code still belongs to a request, without cleaning up
+    //  any orphan holding it.
+    boolean isQueued(int code) {
+        synchronized (mLock) {
+            return mActiveReqs.containsKey(code) || mOrphanReqs.containsKey(code);
+        }
+    }
+
+
     Request getRequest(int code) {
         Request                 ret;
+        Request                 orphanReq = null;
 
-        synchronized (this) {
+        synchronized (mLock) {
             //  Try active requests first.
             ret = mActiveReqs.get(code);
 
             //  If we don't get a match, see if it's a stale request
             //  sitting in the orphan map.
             if (ret == null) {
-                ret = mOrphanReqs.remove(code);
-                if (ret != null) {
-                    Log.i(TAG, "getRequest: cleanup orphan req " + code);
-                    ret = null;
-                } else {
-                    Log.w(TAG, "getRequest: req " + code + " not found");
+                orphanReq = mOrphanReqs.remove(code);
+                if (orphanReq != null) {
+                    unindexRequest(orphanReq);
+                    mAllocator.release(code);
                 }
             }
         }
 
+        if (ret == null) {
+            if (orphanReq != null) {
+                Log.i(TAG, "getRequest: cleanup orphan req ", code);
+                reportSizes();
+            } else {
+                Log.w(TAG, "getRequest: req ", code, " not found");
+            }
+        }
+
         return ret;
     }
 
 
     Request removeRequest(int code) {
         Request                 ret;
+        Request                 orphanReq = null;
 
-        synchronized (this) {
+        synchronized (mLock) {
             //  Try active requests first
             ret = mActiveReqs.remove(code);
 
             //  If we don't get a match, try orphans
             if (ret == null) {
-                ret = mOrphanReqs.remove(code);
-                if (ret != null) {
-                    Log.i(TAG, "removeRequest: cleanup orphan req " + code);
-                    ret = null;
-                } else {
-                    Log.w(TAG, "removeRequest: req " + code + " not found");
+                orphanReq = mOrphanReqs.remove(code);
+                if (orphanReq != null) {
+                    unindexRequest(orphanReq);
+                    mAllocator.release(code);
                 }
+            } else {
+                unindexRequest(ret);
+                mAllocator.release(code);
+            }
+        }
 
+        if (ret == null) {
+            if (orphanReq != null) {
+                Log.i(TAG, "removeRequest: cleanup orphan req ", code);
+                reportSizes();
+            } else {
+                Log.w(TAG, "removeRequest: req ", code, " not found");
             }
+        } else {
+            reportSizes();
         }
 
         return ret;
@@ -185,37 +504,56 @@ class RequestManager {
 
 
     Request removeRequest(Request existingReq) {
-        Request                             req = null;
-        Set<Map.Entry<Integer, Request>>    allReq;
-
-        synchronized (this) {
-            allReq = mActiveReqs.entrySet();
-            for(Map.Entry<Integer, Request> curEntry : allReq) {
-                Request         curReq = curEntry.getValue();
-
-                if (curReq.isSameRequest(existingReq)) {
-                    req = curReq;
-                    mActiveReqs.remove(curEntry.getKey());
-                    Log.d(TAG, "removeRequest: (by obj) Found active request, removing it");
-                    break;
-                }
+        Request                 req = null;
+        boolean                 wasActive = false;
+
+        if ((existingReq == null) || (existingReq.getActionCount() == 0)) {
+            return null;
+        }
+
+        synchronized (mLock) {
+            Request             curReq;
+            int                 curCode;
+
+            //  Requests handed out by the manager carry their code, so try
+            //  that first.  Otherwise find the queued request holding this
+            //  request's first action, it is the only candidate which can
+            //  be the same request.
+            curReq = mActiveReqs.get(existingReq.getCode());
+            if ((curReq == null) || !curReq.isSameRequest(existingReq)) {
+                curReq = mOrphanReqs.get(existingReq.getCode());
             }
 
-            if (req != null) {
-                allReq = mOrphanReqs.entrySet();
-                for (Map.Entry<Integer, Request> curEntry : allReq) {
-                    Request     curReq = curEntry.getValue();
-
-                    if (curReq.isSameRequest(existingReq)) {
-                        req = curReq;
-                        mOrphanReqs.remove(curEntry.getKey());
-                        Log.d(TAG, "removeRequest: (by obj) Found orphan request, removing it");
-                        break;
-                    }
+            if ((curReq == null) || !curReq.isSameRequest(existingReq)) {
+                curReq = mReqsByAction.get(existingReq.getActions()[0]);
+            }
+
+            if ((curReq != null) && curReq.isSameRequest(existingReq)) {
+                req = curReq;
+                curCode = curReq.getCode();
+
+                if (mActiveReqs.get(curCode) == curReq) {
+                    mActiveReqs.remove(curCode);
+                    wasActive = true;
+                } else {
+                    mOrphanReqs.remove(curCode);
                 }
+
+                unindexRequest(curReq);
+                mAllocator.release(curCode);
             }
         }
 
+        if (req != null) {
+            if (wasActive) {
+                Log.d(TAG, "removeRequest: (by obj) Found active request, removing it");
+            } else {
+                Log.d(TAG, "removeRequest: (by obj) Found orphan request, removing it");
+            }
+
+            reportSizes();
+        }
+
         return req;
     }
 
@@ -252,26 +590,47 @@ class RequestManager {
 
         @Override
         public void onActivityDestroyed(Activity activity) {
+            ArrayList<Request>      orphaned = new ArrayList<>();
+            long                    now = System.nanoTime();
+            ComponentName           host = activity.getComponentName();
+
             //  Here's where we care.  We need to track down any active
-            //  requests for this Activity so it can be released
-            synchronized (RequestManager.this) {
-                Set<Map.Entry<Integer, Request>> allActiveReqs = mActiveReqs.entrySet();
+            //  requests for this Activity so it can be released.  Only the
+            //  requests hosted by an Activity of this component can match.
+            synchronized (mLock) {
+                ArrayList<Request>  hostReqs = mReqsByHost.get(host);
+
+                if (hostReqs == null) {
+                    return;
+                }
 
-                for (Map.Entry<Integer, Request> curEntry : allActiveReqs) {
-                    Request curReq = curEntry.getValue();
+                for (int i = 0; i < hostReqs.size(); i++) {
+                    Request         curReq = hostReqs.get(i);
+                    int             curCode = curReq.getCode();
 
-                    if (curReq.getOwner().isParentActivity(activity)) {
+                    if ((mActiveReqs.get(curCode) == curReq) &&
+                        curReq.getOwner().isParentActivity(activity)) {
                         //  This Activity is going away so this request is going
                         //  to become an orphan.  It may be reclaimed later when
                         //  the Activity is restored and the request re-submitted.
-                        Log.d(TAG,
-                                "onActivityDestroyed: tracking orphan req " +
-                                        curEntry.getKey());
-                        mActiveReqs.remove(curEntry.getKey());
-                        mOrphanReqs.put(curEntry.getKey(), curEntry.getValue());
+                        mActiveReqs.remove(curCode);
+                        mOrphanReqs.put(curCode, curReq, now);
+                        orphaned.add(curReq);
                     }
                 }
             }
+
+            if (!orphaned.isEmpty()) {
+                for (int i = 0; i < orphaned.size(); i++) {
+                    Log.d(TAG,
+                          "onActivityDestroyed: tracking orphan req ",
+                          orphaned.get(i).getCode());
+                    count(Andele.Metrics.COUNTER_ORPHANED);
+                }
+
+                reportSizes();
+                purgeOrphans();
+            }
         }
     }
 }
@@ -15,7 +15,9 @@
  */
 package com.hiqes.andele;
 
+import android.app.Activity;
 import android.app.Application;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.content.pm.PermissionInfo;
@@ -35,6 +37,32 @@ public abstract class RequestOwner {
     abstract PackageManager getPackageManager();
     abstract Application getApplication();
 
+    /**
+     * Return the component name of the Activity hosting this owner.  This
+     * is used by {@link RequestManager} to index requests by their owning
+     * Activity so lifecycle events do not require a scan of every request.
+     * <p>
+     * @return The ComponentName of the hosting Activity.
+     */
+    abstract ComponentName getHostComponentName();
+
+    /**
+     * Return the id of the task the hosting Activity belongs to.  Only
+     * one system permission dialog is shown per task at a time.
+     * <p>
+     * @return The task id of the hosting Activity.
+     */
+    abstract int getTaskId();
+
+    /**
+     * Return the Activity instance hosting this owner.  Two live
+     * instances of the same Activity class share a component name, this
+     * tells them apart.
+     * <p>
+     * @return The hosting Activity, or null if it is gone.
+     */
+    abstract Activity getHostActivity();
+
     /**
      * Return the mask of possible values which can be used for request
      * codes.  Note that this value must have the most significant bit cleared
@@ -48,19 +76,31 @@ public abstract class RequestOwner {
         return DEFAULT_MASK;
     }
 
+    /**
+     * Get the system's info for a permission.  Results, including unknown
+     * permissions, are kept in a process wide cache.
+     * <p>
+     * @param permission   The permission to look up
+     * @return The info, or null if the system does not know the permission.
+     */
     @SuppressWarnings({"WeakerAccess", "SameParameterValue"})
     public final PermissionInfo getPermissionInfo(String permission) {
-        PermissionInfo          info = null;
-        PackageManager          pm = getPackageManager();
+        PermissionInfoCache     cache = Andele.getPermissionInfoCache();
 
-        //  Ask the package manager for a list of all defined permissions
-        //  in the system and track this one down.
-        try {
-            info = pm.getPermissionInfo(permission, PackageManager.GET_META_DATA);
-        } catch (PackageManager.NameNotFoundException e) {
-            //  nothing
-        }
+        return cache.getInfo(getPackageManager(), permission);
+    }
+
+    /**
+     * Get the label of a permission in the current locale.  Results are
+     * kept in a process wide cache.
+     * <p>
+     * @param permission   The permission to look up
+     * @return The label, or null if the system does not know the permission.
+     */
+    @SuppressWarnings("WeakerAccess")
+    public final CharSequence getPermissionLabel(String permission) {
+        PermissionInfoCache     cache = Andele.getPermissionInfoCache();
 
-        return info;
+        return cache.getLabel(getPackageManager(), permission);
     }
 }
@@ -31,10 +31,12 @@ class RequestOwnerActivity extends RequestOwner {
 
     private WeakReference<Activity>     mActivityRef;
     private ComponentName               mCompName;
+    private int                         mTaskId;
 
     RequestOwnerActivity(Activity activity) {
-        mActivityRef = new WeakReference<>(activity);
+        mActivityRef = new OwnerReaper.OwnerRef<>(activity, this);
         mCompName = activity.getComponentName();
+        mTaskId = activity.getTaskId();
     }
 
     private Activity getActivity() {
@@ -141,6 +143,21 @@ class RequestOwnerActivity extends RequestOwner {
         return act.getPackageManager();
     }
 
+    @Override
+    ComponentName getHostComponentName() {
+        return mCompName;
+    }
+
+    @Override
+    int getTaskId() {
+        return mTaskId;
+    }
+
+    @Override
+    Activity getHostActivity() {
+        return getActivity();
+    }
+
     @Override
     Application getApplication() {
         return getActivity().getApplication();
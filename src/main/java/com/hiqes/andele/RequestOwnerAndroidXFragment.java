@@ -33,6 +33,7 @@ class RequestOwnerAndroidXFragment extends RequestOwner {
 
     private WeakReference<Fragment> mSupportFragRef;
     private ComponentName           mActivityCompName;
+    private int                     mTaskId;
     private int                     mId;
     private String                  mTag;
 
@@ -42,8 +43,9 @@ class RequestOwnerAndroidXFragment extends RequestOwner {
 
 
     RequestOwnerAndroidXFragment(Fragment supportFrag) {
-        mSupportFragRef = new WeakReference<>(supportFrag);
+        mSupportFragRef = new OwnerReaper.OwnerRef<>(supportFrag, this);
         mActivityCompName = supportFrag.getActivity().getComponentName();
+        mTaskId = supportFrag.getActivity().getTaskId();
         mId = supportFrag.getId();
         mTag = supportFrag.getTag();
     }
@@ -158,6 +160,23 @@ class RequestOwnerAndroidXFragment extends RequestOwner {
         return frag.getActivity().getPackageManager();
     }
 
+    @Override
+    ComponentName getHostComponentName() {
+        return mActivityCompName;
+    }
+
+    @Override
+    int getTaskId() {
+        return mTaskId;
+    }
+
+    @Override
+    Activity getHostActivity() {
+        Fragment                frag = getFragment();
+
+        return (frag == null) ? null : frag.getActivity();
+    }
+
     @Override
     Application getApplication() {
         return getFragment().getActivity().getApplication();
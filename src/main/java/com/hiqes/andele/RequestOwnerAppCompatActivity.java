@@ -16,6 +16,7 @@
 package com.hiqes.andele;
 
 import android.annotation.TargetApi;
+import android.app.Activity;
 import android.app.Application;
 import android.content.ComponentName;
 import android.content.Context;
@@ -31,10 +32,12 @@ class RequestOwnerAppCompatActivity extends RequestOwner {
 
     private WeakReference<AppCompatActivity>   mAppCompatActivityRef;
     private ComponentName                      mCompName;
+    private int                                mTaskId;
 
     RequestOwnerAppCompatActivity(AppCompatActivity appCompatActivity) {
-        mAppCompatActivityRef = new WeakReference<>(appCompatActivity);
+        mAppCompatActivityRef = new OwnerReaper.OwnerRef<>(appCompatActivity, this);
         mCompName = appCompatActivity.getComponentName();
+        mTaskId = appCompatActivity.getTaskId();
     }
 
     private AppCompatActivity getActivity() {
@@ -141,6 +144,21 @@ class RequestOwnerAppCompatActivity extends RequestOwner {
         return act.getPackageManager();
     }
 
+    @Override
+    ComponentName getHostComponentName() {
+        return mCompName;
+    }
+
+    @Override
+    int getTaskId() {
+        return mTaskId;
+    }
+
+    @Override
+    Activity getHostActivity() {
+        return getActivity();
+    }
+
     @Override
     Application getApplication() {
         return getActivity().getApplication();
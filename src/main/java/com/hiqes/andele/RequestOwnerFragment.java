@@ -33,6 +33,7 @@ class RequestOwnerFragment extends RequestOwner {
 
     private WeakReference<Fragment> mFragmentRef;
     private ComponentName           mActivityCompName;
+    private int                     mTaskId;
     private int                     mId;
     private String                  mTag;
 
@@ -41,8 +42,9 @@ class RequestOwnerFragment extends RequestOwner {
     }
 
     RequestOwnerFragment(Fragment fragment) {
-        mFragmentRef = new WeakReference<>(fragment);
+        mFragmentRef = new OwnerReaper.OwnerRef<>(fragment, this);
         mActivityCompName = fragment.getActivity().getComponentName();
+        mTaskId = fragment.getActivity().getTaskId();
         mId = fragment.getId();
         mTag = fragment.getTag();
     }
@@ -157,6 +159,23 @@ class RequestOwnerFragment extends RequestOwner {
         return frag.getActivity().getPackageManager();
     }
 
+    @Override
+    ComponentName getHostComponentName() {
+        return mActivityCompName;
+    }
+
+    @Override
+    int getTaskId() {
+        return mTaskId;
+    }
+
+    @Override
+    Activity getHostActivity() {
+        Fragment                frag = getFragment();
+
+        return (frag == null) ? null : frag.getActivity();
+    }
+
     @Override
     Application getApplication() {
         return getFragment().getActivity().getApplication();
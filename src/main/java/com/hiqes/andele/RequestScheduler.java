@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Makes sure only one system permission dialog is up per task.  Android
+ * cancels (or auto-denies) a second {@code requestPermissions} call while
+ * one is already showing, so requests wait here until the one in front of
+ * them has its results.  Waiting requests are ordered by the most
+ * important {@link PermissionUse} they contain (CRITICAL first), then by
+ * the order they arrived.  The number of waiting requests is bounded,
+ * when it is full the least important request is dropped and treated as
+ * if the system had cancelled it.
+ */
+class RequestScheduler {
+    private static final String         TAG = RequestScheduler.class.getSimpleName();
+
+    static final int                    DEFAULT_MAX_PENDING = 16;
+
+    /**
+     * Where the scheduler sends requests when it is their turn.
+     */
+    interface Sink {
+        void schedule(Runnable task, long delayMillis);
+        boolean isQueued(int reqCode);
+        void send(Request[] batch, String[] permissions, int reqCode);
+        void drop(Request[] batch, int reqCode);
+    }
+
+    private static class Entry {
+        final Request[]                 mBatch;
+        final String[]                  mPerms;
+        final int                       mCode;
+        final int                       mTaskId;
+        final int                       mPriority;
+        final long                      mSeq;
+
+        Entry(Request[] batch, String[] perms, int code, int taskId, int priority, long seq) {
+            mBatch = batch;
+            mPerms = perms;
+            mCode = code;
+            mTaskId = taskId;
+            mPriority = priority;
+            mSeq = seq;
+        }
+
+        //  Lower sorts first
+        int compareTo(Entry other) {
+            if (mPriority != other.mPriority) {
+                return mPriority - other.mPriority;
+            }
+
+            return (mSeq < other.mSeq) ? -1 : ((mSeq == other.mSeq) ? 0 : 1);
+        }
+    }
+
+    private final Sink                  mSink;
+    private final HashMap<Integer, Entry>
+                                        mShowing = new HashMap<>();
+    private final ArrayList<Entry>      mPending = new ArrayList<>();
+    private long                        mNextSeq;
+    private volatile int                mMaxPending = DEFAULT_MAX_PENDING;
+
+    RequestScheduler(Sink sink) {
+        mSink = sink;
+    }
+
+    void setMaxPending(int maxPending) {
+        if (maxPending <= 0) {
+            throw new IllegalArgumentException("Max pending must be positive");
+        }
+
+        mMaxPending = maxPending;
+    }
+
+    /**
+     * Get the number of requests waiting for a dialog to close.  Requests
+     * whose dialog is showing are not counted.
+     */
+    synchronized int getQueueDepth() {
+        return mPending.size();
+    }
+
+    //  The most important usage in the batch decides its place in line
+    @SuppressWarnings("ForLoopReplaceableByForEach")
+    private static int getPriority(Request[] batch) {
+        int                     ret = Integer.MAX_VALUE;
+
+        for (int i = 0; i < batch.length; i++) {
+            ProtectedAction[]   actions = batch[i].getActions();
+
+            for (int j = 0; j < actions.length; j++) {
+                ret = Math.min(ret, actions[j].mPermDetails.mUsage.ordinal());
+            }
+        }
+
+        return ret;
+    }
+
+    //  Must be called with the lock held
+    private void insertPending(Entry entry) {
+        int                     i = mPending.size();
+
+        while ((i > 0) && (entry.compareTo(mPending.get(i - 1)) < 0)) {
+            i--;
+        }
+
+        mPending.add(i, entry);
+    }
+
+    /**
+     * Send requests now if nothing is showing for their task, otherwise
+     * wait their turn.
+     * <p>
+     * @param batch         The requests, sent through the first one's owner
+     * @param permissions   The permissions to ask for
+     * @param reqCode       The code to ask with
+     */
+    void submit(Request[] batch, String[] permissions, int reqCode) {
+        int                     taskId = batch[0].getOwner().getTaskId();
+        Entry                   entry;
+        Entry                   showing;
+        Entry                   dropped = null;
+        boolean                 sendNow = false;
+
+        synchronized (this) {
+            entry = new Entry(batch, permissions, reqCode, taskId, getPriority(batch), mNextSeq++);
+
+            //  If the showing request was cleaned up without its results
+            //  (its host finished, say) don't let it block the task.
+            showing = mShowing.get(taskId);
+            if ((showing != null) && !mSink.isQueued(showing.mCode)) {
+                Log.w(TAG, "submit: showing req gone, unblocking task for ", showing.mCode);
+                showing = null;
+            }
+
+            if (showing == null) {
+                mShowing.put(taskId, entry);
+                sendNow = true;
+            } else if (mPending.size() < mMaxPending) {
+                insertPending(entry);
+            } else {
+                dropped = mPending.get(mPending.size() - 1);
+                if (entry.compareTo(dropped) < 0) {
+                    mPending.remove(mPending.size() - 1);
+                    insertPending(entry);
+                } else {
+                    dropped = entry;
+                }
+            }
+        }
+
+        if (sendNow) {
+            mSink.send(batch, permissions, reqCode);
+        }
+
+        if (dropped != null) {
+            Log.w(TAG, "submit: queue full, dropping req ", dropped.mCode);
+            mSink.drop(dropped.mBatch, dropped.mCode);
+        }
+    }
+
+    /**
+     * The dialog for a request is done (or will never show.)  Let the
+     * next request for the same task go.
+     * <p>
+     * @param reqCode   The code the request was sent with.
+     */
+    void complete(int reqCode) {
+        Entry                   next = null;
+        Entry                   done = null;
+
+        synchronized (this) {
+            for (Entry cur : mShowing.values()) {
+                if (cur.mCode == reqCode) {
+                    done = cur;
+                    break;
+                }
+            }
+
+            if (done == null) {
+                return;
+            }
+
+            for (int i = 0; i < mPending.size(); i++) {
+                if (mPending.get(i).mTaskId == done.mTaskId) {
+                    next = mPending.remove(i);
+                    break;
+                }
+            }
+
+            if (next == null) {
+                mShowing.remove(done.mTaskId);
+            } else {
+                mShowing.put(done.mTaskId, next);
+            }
+        }
+
+        //  Don't ask again from inside the results callback
+        if (next != null) {
+            final Entry         toSend = next;
+
+            mSink.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    mSink.send(toSend.mBatch, toSend.mPerms, toSend.mCode);
+                }
+            }, 0);
+        }
+    }
+}
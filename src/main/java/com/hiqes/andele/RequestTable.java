@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+/**
+ * Open addressing table of request code to {@link Request}.  Lookups and
+ * removals do not allocate (no {@code Integer} boxing) and the table only
+ * allocates when it grows.  Linear probing is used with backward shift
+ * deletion so there are no tombstones to clean up.  This class is not
+ * thread safe, {@link RequestManager} guards access to it.
+ */
+class RequestTable {
+    private static final int            DEFAULT_CAPACITY = 16;
+
+    private int[]                       mKeys;
+    private Request[]                   mValues;
+    private int                         mMask;
+    private int                         mSize;
+
+    RequestTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    RequestTable(int initialCapacity) {
+        int                     capacity = DEFAULT_CAPACITY;
+
+        while (capacity < initialCapacity * 2) {
+            capacity <<= 1;
+        }
+
+        mKeys = new int[capacity];
+        mValues = new Request[capacity];
+        mMask = capacity - 1;
+    }
+
+    private static int hash(int key) {
+        //  Codes are often sequential or masked randoms, spread them out
+        //  so linear probing stays short.
+        int                     h = key * 0x9E3779B9;
+
+        return h ^ (h >>> 16);
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    Request get(int key) {
+        int                     index = hash(key) & mMask;
+
+        //  A null value marks an empty slot, so stop there
+        while (mValues[index] != null) {
+            if (mKeys[index] == key) {
+                return mValues[index];
+            }
+
+            index = (index + 1) & mMask;
+        }
+
+        return null;
+    }
+
+    boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    Request put(int key, Request value) {
+        int                     index;
+
+        if (value == null) {
+            throw new IllegalArgumentException("Null requests cannot be stored");
+        }
+
+        index = hash(key) & mMask;
+        while (mValues[index] != null) {
+            if (mKeys[index] == key) {
+                Request         prev = mValues[index];
+
+                mValues[index] = value;
+                return prev;
+            }
+
+            index = (index + 1) & mMask;
+        }
+
+        mKeys[index] = key;
+        mValues[index] = value;
+        mSize++;
+
+        //  Keep the load factor at or below 1/2
+        if ((mSize * 2) > mKeys.length) {
+            resize(mKeys.length * 2);
+        }
+
+        return null;
+    }
+
+    Request remove(int key) {
+        int                     index = hash(key) & mMask;
+        Request                 ret;
+
+        while (mValues[index] != null) {
+            if (mKeys[index] == key) {
+                break;
+            }
+
+            index = (index + 1) & mMask;
+        }
+
+        ret = mValues[index];
+        if (ret == null) {
+            return null;
+        }
+
+        //  Shift back any following entries which would no longer be
+        //  reachable from their home slot once this one is emptied.
+        int                     hole = index;
+
+        index = (index + 1) & mMask;
+        while (mValues[index] != null) {
+            int                 home = hash(mKeys[index]) & mMask;
+
+            if (((index - home) & mMask) >= ((index - hole) & mMask)) {
+                mKeys[hole] = mKeys[index];
+                mValues[hole] = mValues[index];
+                hole = index;
+            }
+
+            index = (index + 1) & mMask;
+        }
+
+        mValues[hole] = null;
+        mSize--;
+        return ret;
+    }
+
+    void clear() {
+        for (int i = 0; i < mValues.length; i++) {
+            mValues[i] = null;
+        }
+
+        mSize = 0;
+    }
+
+    /**
+     * Return the number of slots in the table, for use with
+     * {@link #keyAt(int)} and {@link #valueAt(int)} to walk the entries
+     * without allocating an iterator.  Slots with a null value are empty.
+     * The table must not be modified while walking it.
+     * <p>
+     * @return The number of slots in the table.
+     */
+    int capacity() {
+        return mValues.length;
+    }
+
+    int keyAt(int slot) {
+        return mKeys[slot];
+    }
+
+    Request valueAt(int slot) {
+        return mValues[slot];
+    }
+
+    private void resize(int newCapacity) {
+        int[]                   oldKeys = mKeys;
+        Request[]               oldValues = mValues;
+
+        mKeys = new int[newCapacity];
+        mValues = new Request[newCapacity];
+        mMask = newCapacity - 1;
+        mSize = 0;
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
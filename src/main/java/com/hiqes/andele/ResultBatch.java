@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2026 HIQES LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hiqes.andele;
+
+import android.content.pm.PackageManager;
+
+/**
+ * The outcome of a permission result for each action of one request.
+ * Results are matched to actions through the request's permission index
+ * in a single pass, then the whole batch goes to the handlers as one
+ * message: the grants to the request's handler and the denials, with any
+ * UI to show for them, to the main thread.
+ */
+class ResultBatch {
+    static final byte                   OUTCOME_NONE = 0;
+    static final byte                   OUTCOME_GRANTED = 1;
+    static final byte                   OUTCOME_DENIED = 2;
+    static final byte                   OUTCOME_DENIED_CRITICAL = 3;
+    static final byte                   OUTCOME_DENIED_REMINDER = 4;
+    static final byte                   OUTCOME_DENIED_FEEDBACK = 5;
+
+    //  Which parts of the batch a message is for
+    static final int                    PART_GRANTS = 1;
+    static final int                    PART_DENIALS = 2;
+
+    //  From getGrantResult() when the results hold nothing for a permission
+    static final int                    NO_RESULT = Integer.MIN_VALUE;
+
+    final Request                       mRequest;
+    final long                          mResultNanos;
+    private final String[]              mPermissions;
+    private final int[]                 mGrantResults;
+    private final byte[]                mOutcomes;
+    private int                         mGrantCount;
+    private int                         mDenialCount;
+    private int                         mPromptCount;
+
+    private ResultBatch(Request req, String[] permissions, int[] grantResults, long resultNanos) {
+        mRequest = req;
+        mResultNanos = resultNanos;
+        mPermissions = permissions;
+        mGrantResults = grantResults;
+        mOutcomes = new byte[req.getActionCount()];
+    }
+
+    /**
+     * Work out what each action of a request gets from a set of results.
+     * <p>
+     * @param req            The request the results are for
+     * @param permissions    The permissions from the results
+     * @param grantResults   The grant state of each permission
+     * @param resultNanos    When the results arrived, for metrics
+     * @return The batch of outcomes
+     */
+    static ResultBatch match(Request req, String[] permissions, int[] grantResults, long resultNanos) {
+        ResultBatch             ret = new ResultBatch(req, permissions, grantResults, resultNanos);
+        ProtectedAction[]       actions = req.getActions();
+        int                     indexSize = req.getIndexSize();
+        long[]                  grantedPos = null;
+        int[]                   grantedPerms = null;
+
+        for (int i = 0; i < permissions.length; i++) {
+            int                 permId = PermissionRegistry.findPermissionId(permissions[i]);
+            boolean             granted = grantResults[i] == PackageManager.PERMISSION_GRANTED;
+
+            for (int pos = req.findIndexStart(permId);
+                 (pos >= 0) && (pos < indexSize) && (req.getIndexPermId(pos) == permId);
+                 pos++) {
+                int             actionIndex = req.getIndexAction(pos);
+                int             permCount = actions[actionIndex].mAllDetails.length;
+
+                if (permCount > 1) {
+                    //  A set of permissions is granted once all of them
+                    //  are and denied as soon as any one is.
+                    if (!granted) {
+                        if (!ret.isDenial(actionIndex)) {
+                            ret.set(actionIndex, getDenialOutcome(req, actions[actionIndex], permissions[i]));
+                        }
+                    } else {
+                        long        bit = 1L << pos;
+
+                        //  Each index position is one permission of one
+                        //  action, so a permission repeated in the results
+                        //  only counts once towards the set.
+                        if (grantedPos == null) {
+                            grantedPos = new long[(indexSize + 63) >>> 6];
+                            grantedPerms = new int[actions.length];
+                        }
+
+                        if ((grantedPos[pos >>> 6] & bit) == 0) {
+                            grantedPos[pos >>> 6] |= bit;
+                            if ((++grantedPerms[actionIndex] == permCount) &&
+                                (ret.mOutcomes[actionIndex] == OUTCOME_NONE)) {
+                                ret.set(actionIndex, OUTCOME_GRANTED);
+                            }
+                        }
+                    }
+                } else if (granted) {
+                    ret.set(actionIndex, OUTCOME_GRANTED);
+                } else {
+                    ret.set(actionIndex, getDenialOutcome(req, actions[actionIndex], permissions[i]));
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private static byte getDenialOutcome(Request req, ProtectedAction action, String permission) {
+        PermissionUse           usage = action.mPermDetails.mUsage;
+
+        //  A CRITICAL permission is a big problem the user must hear
+        //  about, an ESSENTIAL one gets a reminder of what denial means.
+        //  A secondary feature gets feedback as long as the user is open
+        //  to it.  Otherwise there is no UI, just tell the app.
+        if (usage == PermissionUse.CRITICAL) {
+            return OUTCOME_DENIED_CRITICAL;
+        } else if (usage == PermissionUse.ESSENTIAL) {
+            return OUTCOME_DENIED_REMINDER;
+        } else if (req.getOwner().shouldShowRequestPermissionRationale(permission)) {
+            return OUTCOME_DENIED_FEEDBACK;
+        }
+
+        return OUTCOME_DENIED;
+    }
+
+    private void set(int actionIndex, byte outcome) {
+        //  The last result for a permission wins, in case it is repeated
+        clear(actionIndex);
+        mOutcomes[actionIndex] = outcome;
+        if (outcome == OUTCOME_GRANTED) {
+            mGrantCount++;
+        } else if (outcome != OUTCOME_NONE) {
+            mDenialCount++;
+            if (outcome != OUTCOME_DENIED) {
+                mPromptCount++;
+            }
+        }
+    }
+
+    /**
+     * Take an action out of the batch, for example once its grant has
+     * been handled elsewhere.
+     */
+    void clear(int actionIndex) {
+        byte                    outcome = mOutcomes[actionIndex];
+
+        if (outcome == OUTCOME_GRANTED) {
+            mGrantCount--;
+        } else if (outcome != OUTCOME_NONE) {
+            mDenialCount--;
+            if (outcome != OUTCOME_DENIED) {
+                mPromptCount--;
+            }
+        }
+
+        mOutcomes[actionIndex] = OUTCOME_NONE;
+    }
+
+    private boolean isDenial(int actionIndex) {
+        byte                    outcome = mOutcomes[actionIndex];
+
+        return (outcome != OUTCOME_NONE) && (outcome != OUTCOME_GRANTED);
+    }
+
+    /**
+     * Get the result the batch was matched from for one permission.
+     * <p>
+     * @param permission   The permission to look up
+     * @return The grant result, or {@link #NO_RESULT} if there is none.
+     */
+    int getGrantResult(String permission) {
+        //  The last result for a permission wins, as in match()
+        for (int i = mPermissions.length - 1; i >= 0; i--) {
+            if (mPermissions[i].equals(permission)) {
+                return mGrantResults[i];
+            }
+        }
+
+        return NO_RESULT;
+    }
+
+    byte getOutcome(int actionIndex) {
+        return mOutcomes[actionIndex];
+    }
+
+    int getActionCount() {
+        return mOutcomes.length;
+    }
+
+    boolean hasGrants() {
+        return mGrantCount > 0;
+    }
+
+    boolean hasDenials() {
+        return mDenialCount > 0;
+    }
+
+    //  Denials which show UI, the request is kept until it is shown
+    boolean hasPrompts() {
+        return mPromptCount > 0;
+    }
+}
@@ -23,52 +23,91 @@ import android.net.Uri;
 import android.os.Looper;
 import android.provider.Settings;
 
+import java.util.HashMap;
+import java.util.Map;
+
 class Util {
     private static final String         SHARED_PREFS_NAME = "andele.prefs";
     private static final String         PREFIX_EDU_DONE = "_edu_done:";
     private static final String         PREFIX_EDU_DONE_RESET = "_edu_done_reset:";
+    private static final String         PREFIX_DENIED_FOREVER = "_denied_forever:";
+    private static final int            FLAG_EDU_DONE = 0;
+    private static final int            FLAG_EDU_DONE_RESET = 1;
+    private static final int            FLAG_DENIED_FOREVER = 2;
+    private static final long           FLUSH_TIMEOUT_MS = 5000;
 
     static boolean isMainThread() {
         return Looper.getMainLooper().getThread() == Thread.currentThread();
     }
 
-    private static SharedPreferences getPrefs(Context context) {
-        return context.getSharedPreferences(SHARED_PREFS_NAME,
-                                            Context.MODE_PRIVATE);
+    private static Andele.EduStateBackend  sEduBackend = new PrefsEduStateBackend();
+    private static EduStateStore            sEduStore;
+
+    private static synchronized EduStateStore getEduStore(Context context) {
+        if (sEduStore == null) {
+            Context             appContext = context.getApplicationContext();
+
+            //  Hold on to the application context only, the store lives
+            //  for the life of the process.
+            if (appContext == null) {
+                appContext = context;
+            }
+
+            sEduStore = new EduStateStore(appContext, sEduBackend);
+        }
+
+        return sEduStore;
     }
 
-    static boolean isEduDone(Context context, PermissionDetails perm) {
-        boolean                 ret;
-        String                  key = PREFIX_EDU_DONE + perm.asKey();
+    static void setEduStateBackend(Andele.EduStateBackend backend) {
+        EduStateStore           oldStore;
+
+        if (backend == null) {
+            throw new IllegalArgumentException("Backend cannot be null");
+        }
 
-        ret = getPrefs(context).getBoolean(key, false);
-        return ret;
+        synchronized (Util.class) {
+            oldStore = sEduStore;
+            sEduBackend = backend;
+            sEduStore = null;
+        }
+
+        //  Make sure anything written to the old backend gets there,
+        //  then let its writer thread go.
+        if (oldStore != null) {
+            oldStore.close(FLUSH_TIMEOUT_MS);
+        }
     }
 
-    @SuppressLint("ApplySharedPref")
-    static void setEduDone(Context context, PermissionDetails perm) {
-        SharedPreferences.Editor    ed = getPrefs(context).edit();
-        String                      key = PREFIX_EDU_DONE + perm.asKey();
+    //  Start loading the edu state in the background, before it is needed
+    static void preloadEduState(Context context) {
+        getEduStore(context).preload();
+    }
+
+    static boolean flushEduState(long timeoutMillis) {
+        EduStateStore           store;
+
+        synchronized (Util.class) {
+            store = sEduStore;
+        }
 
-        ed.putBoolean(key, true);
-        ed.commit();
+        return (store == null) || store.flush(timeoutMillis);
     }
 
-    static boolean isEduDoneReset(Context context, PermissionDetails perm) {
-        boolean                 ret;
-        String                  key = PREFIX_EDU_DONE_RESET + perm.asKey();
+    static boolean isEduDone(Context context, PermissionDetails perm) {
+        return getEduStore(context).getFlag(PREFIX_EDU_DONE, FLAG_EDU_DONE, perm);
+    }
 
-        ret = getPrefs(context).getBoolean(key, false);
-        return ret;
+    static void setEduDone(Context context, PermissionDetails perm) {
+        getEduStore(context).putFlag(PREFIX_EDU_DONE, FLAG_EDU_DONE, perm, true);
     }
 
-    @SuppressLint("ApplySharedPref")
-    private static void storeEduDoneReset(Context context, PermissionDetails perm, boolean value) {
-        SharedPreferences.Editor    ed = getPrefs(context).edit();
-        String                      key = PREFIX_EDU_DONE_RESET + perm.asKey();
+    static boolean isEduDoneReset(Context context, PermissionDetails perm) {
+        return getEduStore(context).getFlag(PREFIX_EDU_DONE_RESET, FLAG_EDU_DONE_RESET, perm);
+    }
 
-        ed.putBoolean(key, value);
-        ed.commit();
+    private static void storeEduDoneReset(Context context, PermissionDetails perm, boolean value) {
+        getEduStore(context).putFlag(PREFIX_EDU_DONE_RESET, FLAG_EDU_DONE_RESET, perm, value);
     }
 
     static void setEduDoneReset(Context context, PermissionDetails perm) {
@@ -79,6 +118,26 @@ class Util {
         storeEduDoneReset(context, perm, false);
     }
 
+    //  Set when a request was denied and the system would no longer show
+    //  its dialog ("don't ask again"), cleared once a grant is seen.
+    static boolean isDeniedForever(Context context, PermissionDetails perm) {
+        return getEduStore(context).getFlag(PREFIX_DENIED_FOREVER, FLAG_DENIED_FOREVER, perm);
+    }
+
+    static void setDeniedForever(Context context, PermissionDetails perm) {
+        getEduStore(context).putFlag(PREFIX_DENIED_FOREVER, FLAG_DENIED_FOREVER, perm, true);
+    }
+
+    static void clearDeniedForever(Context context, PermissionDetails perm) {
+        EduStateStore           store = getEduStore(context);
+
+        //  Grants are seen far more often than denials, only write a
+        //  change so a false value is not stored for every grant.
+        if (store.getFlag(PREFIX_DENIED_FOREVER, FLAG_DENIED_FOREVER, perm)) {
+            store.putFlag(PREFIX_DENIED_FOREVER, FLAG_DENIED_FOREVER, perm, false);
+        }
+    }
+
     static void startSettingsApp(Context ctx) {
         String dataPkg =
                 "package:" + ctx.getPackageName();
@@ -88,4 +147,42 @@ class Util {
         settingsIntent.setData(Uri.parse(dataPkg));
         ctx.startActivity(settingsIntent);
     }
+
+    /**
+     * Default education state backend, keeps the flags in the app's
+     * private shared preferences.  Only ever called on the store's
+     * writer thread (or the first reader), so the blocking commit is fine.
+     */
+    private static class PrefsEduStateBackend implements Andele.EduStateBackend {
+        private static SharedPreferences getPrefs(Context context) {
+            return context.getSharedPreferences(SHARED_PREFS_NAME,
+                                                Context.MODE_PRIVATE);
+        }
+
+        @Override
+        public Map<String, Boolean> load(Context context) {
+            HashMap<String, Boolean>    ret = new HashMap<>();
+            Map<String, ?>              all = getPrefs(context).getAll();
+
+            for (Map.Entry<String, ?> curEntry : all.entrySet()) {
+                if (curEntry.getValue() instanceof Boolean) {
+                    ret.put(curEntry.getKey(), (Boolean)curEntry.getValue());
+                }
+            }
+
+            return ret;
+        }
+
+        @SuppressLint("ApplySharedPref")
+        @Override
+        public void store(Context context, Map<String, Boolean> changes) {
+            SharedPreferences.Editor    ed = getPrefs(context).edit();
+
+            for (Map.Entry<String, Boolean> curEntry : changes.entrySet()) {
+                ed.putBoolean(curEntry.getKey(), curEntry.getValue());
+            }
+
+            ed.commit();
+        }
+    }
 }
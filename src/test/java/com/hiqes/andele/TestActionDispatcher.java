@@ -0,0 +1,35 @@
+package com.hiqes.andele;
+
+import android.os.Process;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TestActionDispatcher {
+    @Test
+    public void testBoundedQueue() {
+        ActionDispatcher        dispatcher = new ActionDispatcher();
+
+        dispatcher.configure(Process.THREAD_PRIORITY_BACKGROUND, 3);
+        assertTrue(dispatcher.tryReserve());
+        assertTrue(dispatcher.tryReserve());
+        assertTrue(dispatcher.tryReserve());
+        assertFalse(dispatcher.tryReserve());
+        assertEquals(3, dispatcher.getQueuedCount());
+
+        //  Handling a message frees a slot
+        dispatcher.release();
+        assertTrue(dispatcher.tryReserve());
+        assertFalse(dispatcher.tryReserve());
+
+        //  Raising the limit takes effect right away
+        dispatcher.configure(Process.THREAD_PRIORITY_BACKGROUND, 4);
+        assertTrue(dispatcher.tryReserve());
+        assertEquals(4, dispatcher.getQueuedCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxQueued() {
+        new ActionDispatcher().configure(Process.THREAD_PRIORITY_DEFAULT, 0);
+    }
+}
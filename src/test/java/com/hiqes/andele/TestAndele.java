@@ -0,0 +1,496 @@
+package com.hiqes.andele;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+
+import static org.mockito.Mockito.*;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class TestAndele implements ProtectedAction.UserPromptCallback {
+    private static final String         DUMMY_PERMISSION = "com.hiqes.andele.test.DUMMY_PERMISSION";
+    private static final String         DENIED_PERMISSION = "com.hiqes.andele.test.DENIED_PERMISSION";
+    private static final String         SET_PERMISSION = "com.hiqes.andele.test.SET_PERMISSION";
+    private static final int            WARMUP_CALLS = 20000;
+    private static final int            MEASURED_CALLS = 20000;
+
+    @Mock
+    private Application                 mApplication;
+
+    @Mock
+    private ComponentName               mTestCompName;
+
+    @Mock
+    private Activity                    mActivity;
+
+    @Mock
+    private Activity                    mOtherActivity;
+
+    private int                         mActionCount;
+    private int                         mDeniedCount;
+
+    //  A hand rolled owner, mock invocations allocate so they can't be
+    //  used on the path being measured.
+    private class GrantedOwner extends RequestOwner {
+        @Override
+        public int checkSelfPermission(String permission) {
+            return PackageManager.PERMISSION_GRANTED;
+        }
+
+        @Override
+        public void requestPermissions(String[] permissions, int code) {
+            fail("Granted permission was requested");
+        }
+
+        @Override
+        public boolean shouldShowRequestPermissionRationale(String permission) {
+            return false;
+        }
+
+        @Override
+        public boolean isSameOwner(RequestOwner otherOwner) {
+            return otherOwner == this;
+        }
+
+        @Override
+        public boolean isParentActivity(Object obj) {
+            return false;
+        }
+
+        @Override
+        public Context getUiContext() {
+            return mApplication;
+        }
+
+        @Override
+        public View getRootView() {
+            return null;
+        }
+
+        @Override
+        PackageManager getPackageManager() {
+            return null;
+        }
+
+        @Override
+        Application getApplication() {
+            return mApplication;
+        }
+
+        @Override
+        ComponentName getHostComponentName() {
+            return mTestCompName;
+        }
+
+        @Override
+        int getTaskId() {
+            return 0;
+        }
+
+        @Override
+        Activity getHostActivity() {
+            return mActivity;
+        }
+    }
+
+    //  Holds on to everything it is given until told to run it
+    private static class QueueExecutor implements Executor {
+        final ArrayList<Runnable>       mQueued = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mQueued.add(command);
+        }
+
+        void runAll() {
+            for (int i = 0; i < mQueued.size(); i++) {
+                mQueued.get(i).run();
+            }
+
+            mQueued.clear();
+        }
+    }
+
+    private ProtectedAction buildAction(Executor executor) {
+        ProtectedAction.Builder bldr = new ProtectedAction.Builder()
+                .withPermission(DUMMY_PERMISSION)
+                .withUsage(PermissionUse.FEATURE)
+                .actionCallback(new ProtectedAction.ActionCallback() {
+                    @Override
+                    public void doAction(ProtectedAction action) {
+                        mActionCount++;
+                    }
+                })
+                .userPromptCallback(this);
+
+        if (executor != null) {
+            bldr.executor(executor);
+        }
+
+        return bldr.build();
+    }
+
+    //  The mock Application has no shared preferences
+    private static class MemoryBackend implements Andele.EduStateBackend {
+        @Override
+        public Map<String, Boolean> load(Context context) {
+            return new HashMap<>();
+        }
+
+        @Override
+        public void store(Context context, Map<String, Boolean> changes) {
+            //  Nothing to keep
+        }
+    }
+
+    @Before
+    public void setup() {
+        when(mActivity.getComponentName()).thenReturn(mTestCompName);
+        when(mOtherActivity.getComponentName()).thenReturn(mTestCompName);
+        Andele.setEduStateBackend(new MemoryBackend());
+    }
+
+    @After
+    public void teardown() {
+        Andele.setDefaultActionExecutor(null);
+        Andele.setActionObserver(null);
+        Andele.setMetrics(null);
+    }
+
+    @Test
+    public void testActionExecutor() {
+        QueueExecutor           executor = new QueueExecutor();
+        ProtectedAction         action = buildAction(executor);
+
+        //  Granted, but the action is handed to the executor
+        Andele.checkAndExecute(new GrantedOwner(), action);
+        assertEquals(0, mActionCount);
+        assertEquals(1, executor.mQueued.size());
+
+        executor.runAll();
+        assertEquals(1, mActionCount);
+    }
+
+    @Test
+    public void testDefaultExecutorAndObserver() {
+        QueueExecutor           defaultExecutor = new QueueExecutor();
+        final ArrayList<Long>   elapsed = new ArrayList<>();
+
+        Andele.setDefaultActionExecutor(defaultExecutor);
+        Andele.setActionObserver(new Andele.ActionObserver() {
+            @Override
+            public void onActionCompleted(ProtectedAction action, long elapsedNanos) {
+                elapsed.add(elapsedNanos);
+            }
+        });
+
+        //  An action's own executor wins over the default
+        Andele.checkAndExecute(new GrantedOwner(), buildAction(ProtectedAction.INLINE_EXECUTOR));
+        assertEquals(1, mActionCount);
+        assertEquals(0, defaultExecutor.mQueued.size());
+
+        Andele.checkAndExecute(new GrantedOwner(), buildAction(null));
+        assertEquals(1, mActionCount);
+        defaultExecutor.runAll();
+        assertEquals(2, mActionCount);
+
+        assertEquals(2, elapsed.size());
+        assertTrue(elapsed.get(0) >= 0);
+        assertTrue(elapsed.get(1) >= 0);
+    }
+
+    @Test
+    public void testMetrics() {
+        FixedMetrics            metrics = new FixedMetrics();
+        RequestOwner            owner = new GrantedOwner();
+        ProtectedAction         action = buildAction(null);
+
+        Andele.setMetrics(metrics);
+        Andele.checkAndExecute(owner, action);
+        Andele.checkAndExecute(owner, action);
+
+        assertEquals(2, metrics.getCount(Andele.Metrics.COUNTER_CHECKS));
+        assertTrue(metrics.getCount(Andele.Metrics.COUNTER_CACHE_HITS) >= 1);
+        assertEquals(2, metrics.getLatencyCount(Andele.Metrics.PHASE_APP_CALLBACK));
+        assertEquals(0, metrics.getCount(Andele.Metrics.COUNTER_QUEUED));
+    }
+
+    @Test
+    public void testPermissionSet() {
+        ProtectedAction         action = new ProtectedAction.Builder()
+                .withPermissions(DUMMY_PERMISSION, SET_PERMISSION)
+                .withUsage(PermissionUse.FEATURE)
+                .actionCallback(new ProtectedAction.ActionCallback() {
+                    @Override
+                    public void doAction(ProtectedAction action) {
+                        mActionCount++;
+                    }
+                })
+                .userPromptCallback(this)
+                .build();
+
+        //  Not equal to the single permission action, so never deduped
+        //  against it
+        assertNotEquals(buildAction(null), action);
+
+        //  Everything granted, the action runs once for the whole set
+        Andele.checkAndExecute(new GrantedOwner(), action);
+        assertEquals(1, mActionCount);
+    }
+
+    @Test
+    public void testDeniedForever() {
+        RequestOwner            owner = new GrantedOwner() {
+            @Override
+            public int checkSelfPermission(String permission) {
+                return PackageManager.PERMISSION_DENIED;
+            }
+        };
+        QueueExecutor           denials = new QueueExecutor();
+        ProtectedAction         action = new ProtectedAction.Builder()
+                .withPermission(DENIED_PERMISSION)
+                .withUsage(PermissionUse.FEATURE)
+                .actionCallback(new ProtectedAction.ActionCallback() {
+                    @Override
+                    public void doAction(ProtectedAction action) {
+                        mActionCount++;
+                    }
+                })
+                .listener(new ProtectedAction.Listener() {
+                    @Override
+                    public void onPermissionGranted(PermissionDetails permission) {
+                        fail("Denied permission was granted");
+                    }
+
+                    @Override
+                    public void onPermissionDenied(PermissionDetails permission) {
+                        mDeniedCount++;
+                    }
+                })
+                .userPromptCallback(this)
+                .executor(denials)
+                .build();
+
+        //  The owner fails any request, so the denial must come straight
+        //  from the remembered state.  It is delivered later, not inline.
+        Util.setDeniedForever(mApplication, action.getPermissionDetails());
+        assertTrue(Andele.checkAndExecute(owner, action));
+        assertTrue(Andele.checkAndExecute(owner, action));
+        assertEquals(0, mDeniedCount);
+        denials.runAll();
+        assertEquals(2, mDeniedCount);
+        assertEquals(0, mActionCount);
+
+        Util.clearDeniedForever(mApplication, action.getPermissionDetails());
+        assertFalse(Util.isDeniedForever(mApplication, action.getPermissionDetails()));
+    }
+
+    @Test
+    public void testDroppedWhenQueueFull() {
+        RequestOwner            owner = new GrantedOwner();
+        QueueExecutor           denials = new QueueExecutor();
+        final int[]             deniedCounts = new int[3];
+        final ArrayList<Request>
+                                sent = new ArrayList<>();
+        FixedMetrics            metrics = new FixedMetrics();
+        RequestScheduler        scheduler;
+
+        //  The first request is showing and never finishes, so the second
+        //  waits and the third finds the queue full.
+        scheduler = new RequestScheduler(new RequestScheduler.Sink() {
+            @Override
+            public void schedule(Runnable task, long delayMillis) {
+                //  Nothing times out here
+            }
+
+            @Override
+            public boolean isQueued(int reqCode) {
+                return true;
+            }
+
+            @Override
+            public void send(Request[] batch, String[] permissions, int reqCode) {
+                sent.add(batch[0]);
+            }
+
+            @Override
+            public void drop(Request[] batch, int reqCode) {
+                Andele.dropRequests(batch);
+            }
+        });
+        scheduler.setMaxPending(1);
+        Andele.setMetrics(metrics);
+
+        for (int i = 0; i < deniedCounts.length; i++) {
+            final int           index = i;
+            ProtectedAction     action = new ProtectedAction.Builder()
+                    .withPermission(DUMMY_PERMISSION)
+                    .withUsage(PermissionUse.FEATURE)
+                    .actionCallback(new ProtectedAction.ActionCallback() {
+                        @Override
+                        public void doAction(ProtectedAction action) {
+                            mActionCount++;
+                        }
+                    })
+                    .listener(new ProtectedAction.Listener() {
+                        @Override
+                        public void onPermissionGranted(PermissionDetails permission) {
+                            fail("Queued permission was granted");
+                        }
+
+                        @Override
+                        public void onPermissionDenied(PermissionDetails permission) {
+                            deniedCounts[index]++;
+                        }
+                    })
+                    .userPromptCallback(this)
+                    .executor(denials)
+                    .build();
+            Request             req = new Request(owner, new ProtectedAction[] { action }, null);
+
+            req.setCode(100 + i);
+            scheduler.submit(new Request[] { req },
+                             new String[] { DUMMY_PERMISSION },
+                             req.getCode());
+        }
+
+        assertEquals(1, sent.size());
+        assertEquals(1, scheduler.getQueueDepth());
+        assertEquals(1, metrics.getCount(Andele.Metrics.COUNTER_DROPPED));
+
+        //  Only the newest request of the same importance is dropped, its
+        //  listener hears about it through the action's executor.
+        denials.runAll();
+        assertEquals(0, deniedCounts[0]);
+        assertEquals(0, deniedCounts[1]);
+        assertEquals(1, deniedCounts[2]);
+        assertEquals(0, mActionCount);
+    }
+
+    @Test
+    public void testOwnerAdapterReuse() {
+        RequestOwner            owner = OwnerCache.forActivity(mActivity);
+
+        assertSame(owner, OwnerCache.forActivity(mActivity));
+        assertNotSame(owner, OwnerCache.forActivity(mOtherActivity));
+    }
+
+    @Test
+    public void testAsyncGranted() throws Exception {
+        PermissionFuture<String>    future;
+
+        future = Andele.checkAndExecuteAsync(new GrantedOwner(),
+                                             buildAction(null),
+                                             new Callable<String>() {
+                                                 @Override
+                                                 public String call() {
+                                                     return "loaded";
+                                                 }
+                                             });
+
+        //  Already granted, so it ran and completed inline
+        assertTrue(future.isDone());
+        assertEquals(1, mActionCount);
+        assertTrue(future.get().isAllGranted());
+        assertTrue(future.get().isGranted(DUMMY_PERMISSION));
+        assertEquals("loaded", future.get().getValue());
+    }
+
+    @Test
+    public void testAsyncCancelled() {
+        QueueExecutor               executor = new QueueExecutor();
+        PermissionFuture<Void>      future;
+
+        future = Andele.checkAndExecuteAsync(new GrantedOwner(), buildAction(executor), null);
+        assertFalse(future.isDone());
+        assertTrue(future.cancel(false));
+
+        //  The action was still waiting on the executor, so it never runs
+        executor.runAll();
+        assertEquals(0, mActionCount);
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    public void testGrantedFastPathAllocation() {
+        java.lang.management.ThreadMXBean   bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean     allocBean;
+        long                                threadId = Thread.currentThread().getId();
+        RequestOwner                        owner = new GrantedOwner();
+        ProtectedAction                     action;
+
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        allocBean = (com.sun.management.ThreadMXBean)bean;
+        Assume.assumeTrue(allocBean.isThreadAllocatedMemorySupported());
+
+        action = buildAction(null);
+
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            Andele.checkAndExecute(owner, action);
+        }
+
+        //  Measure the cost of reading the counter itself, then the calls
+        long                                start = allocBean.getThreadAllocatedBytes(threadId);
+        long                                overhead = allocBean.getThreadAllocatedBytes(threadId) - start;
+
+        start = allocBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            Andele.checkAndExecute(owner, action);
+        }
+
+        long                                allocated = allocBean.getThreadAllocatedBytes(threadId) - start - overhead;
+
+        assertEquals(WARMUP_CALLS + MEASURED_CALLS, mActionCount);
+
+        //  Even one small object per call would be hundreds of KB here
+        assertTrue("Granted fast path allocated " + allocated + " bytes",
+                   allocated < MEASURED_CALLS);
+    }
+
+    //////////////////////////////////////////////////////////////////////////
+    //  UI callbacks, do nothing
+    //////////////////////////////////////////////////////////////////////////
+    @Override
+    public void showEducateModal(ProtectedAction action, int reqCode) {
+        //  DO NOTHING
+    }
+
+    @Override
+    public void showEducate(ProtectedAction action) {
+        //  DO NOTHING
+    }
+
+    @Override
+    public void showDeniedCritical(ProtectedAction action) {
+        //  DO NOTHING
+    }
+
+    @Override
+    public void showDeniedReminder(ProtectedAction action) {
+        //  DO NOTHING
+    }
+
+    @Override
+    public void showDeniedFeedback(ProtectedAction action) {
+        //  DO NOTHING
+    }
+}
@@ -0,0 +1,148 @@
+package com.hiqes.andele;
+
+import android.content.Context;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class TestEduStateStore {
+    private static final String         DUMMY_PERMISSION = "com.hiqes.andele.test.DUMMY_PERMISSION";
+    private static final long           FLUSH_TIMEOUT_MS = 5000;
+
+    @Mock
+    private Context                     mContext;
+
+    private static class MemoryBackend implements Andele.EduStateBackend {
+        final HashMap<String, Boolean>              mStored = new HashMap<>();
+        final ArrayList<Map<String, Boolean>>       mBatches = new ArrayList<>();
+        final CountDownLatch                        mFirstStoreGate;
+        int                                         mLoadCount;
+        Thread                                      mLoadThread;
+
+        MemoryBackend(CountDownLatch firstStoreGate) {
+            mFirstStoreGate = firstStoreGate;
+        }
+
+        @Override
+        public synchronized Map<String, Boolean> load(Context context) {
+            mLoadCount++;
+            mLoadThread = Thread.currentThread();
+            return new HashMap<>(mStored);
+        }
+
+        @Override
+        public void store(Context context, Map<String, Boolean> changes) {
+            try {
+                mFirstStoreGate.await(FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            synchronized (this) {
+                mBatches.add(new HashMap<>(changes));
+                mStored.putAll(changes);
+            }
+        }
+    }
+
+    @Test
+    public void testLoadOnceAndBatchWrites() throws Exception {
+        CountDownLatch          gate = new CountDownLatch(1);
+        MemoryBackend           backend = new MemoryBackend(gate);
+        EduStateStore           store;
+
+        backend.mStored.put("existing", true);
+        store = new EduStateStore(mContext, backend);
+
+        assertTrue(store.getBoolean("existing"));
+        assertFalse(store.getBoolean("missing"));
+
+        //  The first write holds up the writer, so the rest queue up and
+        //  must be stored together.  Reads see changes right away.
+        store.putBoolean("a", true);
+        store.putBoolean("b", true);
+        store.putBoolean("c", true);
+        store.putBoolean("c", false);
+        assertTrue(store.getBoolean("b"));
+        assertFalse(store.getBoolean("c"));
+
+        gate.countDown();
+        assertTrue(store.flush(FLUSH_TIMEOUT_MS));
+
+        assertEquals(1, backend.mLoadCount);
+        assertTrue(backend.mBatches.size() <= 2);
+        assertEquals(Boolean.TRUE, backend.mStored.get("a"));
+        assertEquals(Boolean.TRUE, backend.mStored.get("b"));
+        assertEquals(Boolean.FALSE, backend.mStored.get("c"));
+
+        //  Writing an unchanged value does not go to the backend
+        int                     batches = backend.mBatches.size();
+        store.putBoolean("a", true);
+        assertTrue(store.flush(FLUSH_TIMEOUT_MS));
+        assertEquals(batches, backend.mBatches.size());
+    }
+
+    @Test
+    public void testPreloadAndClose() {
+        MemoryBackend           backend = new MemoryBackend(new CountDownLatch(0));
+        EduStateStore           store;
+
+        backend.mStored.put("existing", true);
+        store = new EduStateStore(mContext, backend);
+
+        //  Loaded on the writer thread, then reads are served from memory
+        store.preload();
+        assertTrue(store.flush(FLUSH_TIMEOUT_MS));
+        synchronized (backend) {
+            assertEquals(1, backend.mLoadCount);
+            assertNotSame(Thread.currentThread(), backend.mLoadThread);
+        }
+
+        assertTrue(store.getBoolean("existing"));
+        store.preload();
+        store.putBoolean("a", true);
+        assertTrue(store.close(FLUSH_TIMEOUT_MS));
+        assertEquals(1, backend.mLoadCount);
+        assertEquals(Boolean.TRUE, backend.mStored.get("a"));
+    }
+
+    @Test
+    public void testUtilUsesBackend() {
+        CountDownLatch          gate = new CountDownLatch(0);
+        MemoryBackend           backend = new MemoryBackend(gate);
+        PermissionDetails       details = new PermissionDetails(DUMMY_PERMISSION, PermissionUse.FEATURE);
+
+        Andele.setEduStateBackend(backend);
+        assertFalse(Util.isEduDone(mContext, details));
+        assertFalse(Util.isEduDoneReset(mContext, details));
+
+        Util.setEduDone(mContext, details);
+        Util.setEduDoneReset(mContext, details);
+        assertTrue(Util.isEduDone(mContext, details));
+        assertTrue(Util.isEduDoneReset(mContext, details));
+
+        Util.clearEduDoneReset(mContext, details);
+        assertFalse(Util.isEduDoneReset(mContext, details));
+
+        //  Clearing a flag which was never set writes nothing
+        Util.clearDeniedForever(mContext, details);
+        assertFalse(Util.isDeniedForever(mContext, details));
+
+        assertTrue(Andele.flushEduState(FLUSH_TIMEOUT_MS));
+        assertEquals(1, backend.mLoadCount);
+        assertEquals(Boolean.TRUE, backend.mStored.get("_edu_done:" + details.asKey()));
+        assertEquals(Boolean.FALSE, backend.mStored.get("_edu_done_reset:" + details.asKey()));
+        assertFalse(backend.mStored.containsKey("_denied_forever:" + details.asKey()));
+    }
+}
@@ -0,0 +1,61 @@
+package com.hiqes.andele;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+public class TestFixedMetrics {
+    @Test
+    public void testBuckets() {
+        assertEquals(0, FixedMetrics.getBucket(0));
+        assertEquals(0, FixedMetrics.getBucket(-5));
+        assertEquals(1, FixedMetrics.getBucket(1));
+        assertEquals(2, FixedMetrics.getBucket(2));
+        assertEquals(2, FixedMetrics.getBucket(3));
+        assertEquals(11, FixedMetrics.getBucket(1024));
+        assertEquals(63, FixedMetrics.getBucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testCountersAndGauges() {
+        FixedMetrics            metrics = new FixedMetrics();
+
+        metrics.count(Andele.Metrics.COUNTER_QUEUED);
+        metrics.count(Andele.Metrics.COUNTER_QUEUED);
+        metrics.gauge(Andele.Metrics.GAUGE_ACTIVE_REQUESTS, 3);
+        metrics.gauge(Andele.Metrics.GAUGE_ACTIVE_REQUESTS, 2);
+
+        assertEquals(2, metrics.getCount(Andele.Metrics.COUNTER_QUEUED));
+        assertEquals(0, metrics.getCount(Andele.Metrics.COUNTER_EVICTED));
+        assertEquals(2, metrics.getGauge(Andele.Metrics.GAUGE_ACTIVE_REQUESTS));
+
+        metrics.reset();
+        assertEquals(0, metrics.getCount(Andele.Metrics.COUNTER_QUEUED));
+        assertEquals(0, metrics.getGauge(Andele.Metrics.GAUGE_ACTIVE_REQUESTS));
+    }
+
+    @Test
+    public void testPercentiles() {
+        FixedMetrics            metrics = new FixedMetrics();
+        int                     phase = Andele.Metrics.PHASE_SYSTEM_DIALOG;
+
+        assertEquals(0, metrics.getLatencyPercentile(phase, 50));
+
+        //  90 fast and 10 slow
+        for (int i = 0; i < 90; i++) {
+            metrics.latency(phase, 1000);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            metrics.latency(phase, 1000000);
+        }
+
+        assertEquals(100, metrics.getLatencyCount(phase));
+        assertEquals((90 * 1000L) + (10 * 1000000L), metrics.getLatencyTotal(phase));
+        assertEquals(1023, metrics.getLatencyPercentile(phase, 50));
+        assertEquals(1023, metrics.getLatencyPercentile(phase, 90));
+        assertEquals((1L << 20) - 1, metrics.getLatencyPercentile(phase, 99));
+        assertEquals(0, metrics.getLatencyCount(Andele.Metrics.PHASE_TO_EDUCATE));
+    }
+}
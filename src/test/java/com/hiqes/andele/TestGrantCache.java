@@ -0,0 +1,87 @@
+package com.hiqes.andele;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.pm.PackageManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+
+import static org.mockito.Mockito.*;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class TestGrantCache {
+    private static final String         DUMMY_PERMISSION = "com.hiqes.andele.test.DUMMY_PERMISSION";
+    private static final String         DUMMY_PERMISSION2 = "com.hiqes.andele.test.DUMMY_PERMISSION2";
+
+    @Mock
+    private RequestOwner                mOwner;
+
+    @Mock
+    private Application                 mApplication;
+
+    @Mock
+    private Activity                    mActivity;
+
+    private GrantCache                  mCache = new GrantCache();
+
+    @Before
+    public void setup() {
+        when(mOwner.checkSelfPermission(DUMMY_PERMISSION)).thenReturn(PackageManager.PERMISSION_GRANTED);
+        when(mOwner.checkSelfPermission(DUMMY_PERMISSION2)).thenReturn(PackageManager.PERMISSION_DENIED);
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        //  First check of each permission goes to the owner, the rest are hits
+        for (int i = 0; i < 5; i++) {
+            assertEquals(PackageManager.PERMISSION_GRANTED,
+                         mCache.checkSelfPermission(mOwner, DUMMY_PERMISSION));
+            assertEquals(PackageManager.PERMISSION_DENIED,
+                         mCache.checkSelfPermission(mOwner, DUMMY_PERMISSION2));
+        }
+
+        verify(mOwner, times(1)).checkSelfPermission(DUMMY_PERMISSION);
+        verify(mOwner, times(1)).checkSelfPermission(DUMMY_PERMISSION2);
+        assertEquals(2, mCache.getMissCount());
+        assertEquals(8, mCache.getHitCount());
+    }
+
+    @Test
+    public void testUpdateFromResult() {
+        assertEquals(PackageManager.PERMISSION_DENIED,
+                     mCache.checkSelfPermission(mOwner, DUMMY_PERMISSION2));
+
+        //  A grant result replaces the cached denial without a new check
+        mCache.update(DUMMY_PERMISSION2, PackageManager.PERMISSION_GRANTED);
+        assertEquals(PackageManager.PERMISSION_GRANTED,
+                     mCache.checkSelfPermission(mOwner, DUMMY_PERMISSION2));
+        verify(mOwner, times(1)).checkSelfPermission(DUMMY_PERMISSION2);
+    }
+
+    @Test
+    public void testInvalidateOnResume() {
+        ArgumentCaptor<Application.ActivityLifecycleCallbacks> cbCaptor =
+                ArgumentCaptor.forClass(Application.ActivityLifecycleCallbacks.class);
+
+        assertFalse(mCache.isAttached());
+        mCache.attach(mApplication);
+        mCache.attach(mApplication);
+        assertTrue(mCache.isAttached());
+        verify(mApplication, times(1)).registerActivityLifecycleCallbacks(cbCaptor.capture());
+
+        mCache.checkSelfPermission(mOwner, DUMMY_PERMISSION);
+        mCache.checkSelfPermission(mOwner, DUMMY_PERMISSION);
+        verify(mOwner, times(1)).checkSelfPermission(DUMMY_PERMISSION);
+
+        //  Resuming any Activity drops the cached state
+        cbCaptor.getValue().onActivityResumed(mActivity);
+        mCache.checkSelfPermission(mOwner, DUMMY_PERMISSION);
+        verify(mOwner, times(2)).checkSelfPermission(DUMMY_PERMISSION);
+    }
+}
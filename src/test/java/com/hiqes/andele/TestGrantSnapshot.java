@@ -0,0 +1,83 @@
+package com.hiqes.andele;
+
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+
+import static org.mockito.Mockito.*;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class TestGrantSnapshot {
+    private static final String         PACKAGE_NAME = "com.hiqes.andele.test";
+    private static final String         GRANTED_PERMISSION = "com.hiqes.andele.test.SNAPSHOT_GRANTED";
+    private static final String         DENIED_PERMISSION = "com.hiqes.andele.test.SNAPSHOT_DENIED";
+    private static final String         OTHER_PERMISSION = "com.hiqes.andele.test.SNAPSHOT_OTHER";
+
+    @Mock
+    private PackageManager              mPackageManager;
+
+    @Mock
+    private RequestOwner                mOwner;
+
+    @Before
+    public void setup() throws Exception {
+        //  PackageInfo is a plain holder but can't be built off device
+        PackageInfo             info = mock(PackageInfo.class);
+
+        info.requestedPermissions = new String[] { GRANTED_PERMISSION, DENIED_PERMISSION };
+        info.requestedPermissionsFlags = new int[] { PackageInfo.REQUESTED_PERMISSION_GRANTED, 0 };
+        when(mPackageManager.getPackageInfo(PACKAGE_NAME, PackageManager.GET_PERMISSIONS)).thenReturn(info);
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        GrantSnapshot           snapshot = GrantSnapshot.take(mPackageManager, PACKAGE_NAME);
+        boolean                 runtimePerms = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M;
+
+        //  One call to the system covers every requested permission
+        verify(mPackageManager, times(1)).getPackageInfo(PACKAGE_NAME, PackageManager.GET_PERMISSIONS);
+        assertArrayEquals(new String[] { GRANTED_PERMISSION, DENIED_PERMISSION },
+                          snapshot.getRequestedPermissions());
+        assertTrue(snapshot.isGranted(GRANTED_PERMISSION));
+        assertEquals(!runtimePerms, snapshot.isGranted(DENIED_PERMISSION));
+        assertFalse(snapshot.isGranted(OTHER_PERMISSION));
+        assertEquals(runtimePerms ? 1 : 2, snapshot.getGrantedCount());
+    }
+
+    @Test
+    public void testFillCache() {
+        GrantCache              cache = new GrantCache();
+        GrantSnapshot           snapshot = GrantSnapshot.take(mPackageManager, PACKAGE_NAME);
+        int                     generation = cache.getGeneration();
+
+        //  A snapshot which raced with an invalidation is not used
+        cache.invalidate();
+        cache.fill(snapshot, generation);
+        assertFalse(cache.isCached(GRANTED_PERMISSION));
+
+        cache.fill(snapshot, cache.getGeneration());
+        assertTrue(cache.isCached(GRANTED_PERMISSION));
+        assertTrue(cache.isCached(DENIED_PERMISSION));
+        assertEquals(PackageManager.PERMISSION_GRANTED,
+                     cache.checkSelfPermission(mOwner, GRANTED_PERMISSION));
+        verify(mOwner, never()).checkSelfPermission(anyString());
+    }
+
+    @Test
+    public void testPackageNotFound() throws Exception {
+        GrantSnapshot           snapshot;
+
+        when(mPackageManager.getPackageInfo(PACKAGE_NAME, PackageManager.GET_PERMISSIONS))
+                .thenThrow(PackageManager.NameNotFoundException.class);
+        snapshot = GrantSnapshot.take(mPackageManager, PACKAGE_NAME);
+        assertEquals(0, snapshot.getRequestedPermissions().length);
+        assertFalse(snapshot.isGranted(GRANTED_PERMISSION));
+    }
+}
@@ -0,0 +1,97 @@
+package com.hiqes.andele;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+public class TestLog {
+    private static final String         TAG = "TestLog";
+
+    private Andele.Logger               mOrigLogger;
+
+    private static class RecordingLogger implements Andele.LevelLogger {
+        final ArrayList<String>         mMessages = new ArrayList<>();
+        final int                       mMinPriority;
+        int                             mLevelChecks;
+
+        RecordingLogger(int minPriority) {
+            mMinPriority = minPriority;
+        }
+
+        @Override
+        public void log(int priority, String tag, String msg) {
+            mMessages.add(msg);
+        }
+
+        @Override
+        public boolean isLoggable(int priority, String tag) {
+            mLevelChecks++;
+            return priority >= mMinPriority;
+        }
+    }
+
+    //  An object which fails the test if its message is ever built
+    private static class Unformattable {
+        @Override
+        public String toString() {
+            fail("Message built for a disabled level");
+            return null;
+        }
+    }
+
+    @Before
+    public void setup() {
+        mOrigLogger = Log.sLogger;
+    }
+
+    @After
+    public void teardown() {
+        Log.sLogger = mOrigLogger;
+    }
+
+    @Test
+    public void testDisabledLevelsSkipped() {
+        RecordingLogger         logger = new RecordingLogger(android.util.Log.WARN);
+
+        Log.sLogger = logger;
+        Log.d(TAG, "debug ", new Unformattable());
+        Log.i(TAG, "info ", 1, " dropped");
+        Log.w(TAG, "warn ", 2, " kept");
+        Log.e(TAG, "error ", "kept");
+
+        assertEquals(4, logger.mLevelChecks);
+        assertEquals(2, logger.mMessages.size());
+        assertEquals("warn 2 kept", logger.mMessages.get(0));
+        assertEquals("error kept", logger.mMessages.get(1));
+        assertFalse(Log.isLoggable(android.util.Log.DEBUG, TAG));
+        assertTrue(Log.isLoggable(android.util.Log.ERROR, TAG));
+    }
+
+    @Test
+    public void testPlainLoggerGetsEverything() {
+        final ArrayList<String> messages = new ArrayList<>();
+
+        Log.sLogger = new Andele.Logger() {
+            @Override
+            public void log(int priority, String tag, String msg) {
+                messages.add(msg);
+            }
+        };
+
+        Log.v(TAG, "verbose ", 7);
+        Log.d(TAG, "debug");
+        assertTrue(Log.isLoggable(android.util.Log.VERBOSE, TAG));
+        assertEquals(2, messages.size());
+        assertEquals("verbose 7", messages.get(0));
+    }
+
+    @Test
+    public void testDoNothingLogger() {
+        Log.sLogger = new LoggerDoNothing();
+        Log.e(TAG, "error ", new Unformattable());
+        assertFalse(Log.isLoggable(android.util.Log.ERROR, TAG));
+    }
+}
@@ -0,0 +1,88 @@
+package com.hiqes.andele;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+
+public class TestOrphanPool {
+    private static final long           MAX_AGE_MS = 1000;
+
+    private static Request newRequest(int code) {
+        Request                 req = new Request(null, new ProtectedAction[0], null);
+
+        req.setCode(code);
+        return req;
+    }
+
+    @Test
+    public void testSizeLimit() {
+        OrphanPool              pool = new OrphanPool();
+        ArrayList<Request>      evicted = new ArrayList<>();
+        Request                 req1 = newRequest(1);
+        Request                 req2 = newRequest(2);
+        Request                 req3 = newRequest(3);
+
+        pool.setLimits(2, MAX_AGE_MS);
+        pool.put(1, req1, 0);
+        pool.put(2, req2, 0);
+        assertFalse(pool.evict(0, evicted));
+
+        //  Over the limit, the oldest goes
+        pool.put(3, req3, 0);
+        assertTrue(pool.evict(0, evicted));
+        assertEquals(1, evicted.size());
+        assertSame(req1, evicted.get(0));
+        assertNull(pool.get(1));
+        assertEquals(2, pool.size());
+
+        //  Removing from the middle keeps the order of the rest
+        assertSame(req2, pool.remove(2));
+        assertSame(req3, pool.get(3));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void testMaxAge() {
+        OrphanPool              pool = new OrphanPool();
+        ArrayList<Request>      evicted = new ArrayList<>();
+        long                    maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(MAX_AGE_MS);
+
+        pool.setLimits(OrphanPool.DEFAULT_MAX_SIZE, MAX_AGE_MS);
+        pool.put(1, newRequest(1), 0);
+        pool.put(2, newRequest(2), maxAgeNanos / 2);
+
+        assertFalse(pool.needsEviction(maxAgeNanos));
+        assertNull(pool.evictOldest(maxAgeNanos));
+        assertFalse(pool.evict(maxAgeNanos, evicted));
+        assertTrue(pool.needsEviction(maxAgeNanos + 1));
+        assertTrue(pool.evict(maxAgeNanos + 1, evicted));
+        assertEquals(1, evicted.size());
+        assertEquals(1, evicted.get(0).getCode());
+        assertTrue(pool.containsKey(2));
+
+        assertTrue(pool.evict(2 * maxAgeNanos, evicted));
+        assertTrue(pool.isEmpty());
+    }
+
+    @Test
+    public void testGrowth() {
+        OrphanPool              pool = new OrphanPool();
+        ArrayList<Request>      evicted = new ArrayList<>();
+        int                     count = OrphanPool.DEFAULT_MAX_SIZE * 3;
+
+        pool.setLimits(count, MAX_AGE_MS);
+        for (int i = 0; i < count; i++) {
+            pool.put(i, newRequest(i), i);
+        }
+
+        assertEquals(count, pool.size());
+        pool.setLimits(1, MAX_AGE_MS);
+        assertTrue(pool.evict(count, evicted));
+        assertEquals(count - 1, evicted.size());
+        assertTrue(pool.containsKey(count - 1));
+    }
+}
@@ -6,6 +6,8 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 
 public class TestPermissionDetails {
@@ -31,5 +33,28 @@ public class TestPermissionDetails {
         assertEquals(Manifest.permission.ACCESS_COARSE_LOCATION + ":" + PermissionUse.CRITICAL.name(),
                 details.asKey());
     }
-}
 
+    @Test
+    public void verifyInterning() throws Exception {
+        PermissionDetails       shared = PermissionDetails.obtain(Manifest.permission.CAMERA,
+                PermissionUse.FEATURE);
+        PermissionDetails       created = new PermissionDetails(Manifest.permission.CAMERA,
+                PermissionUse.FEATURE);
+        PermissionDetails       otherUse = PermissionDetails.obtain(Manifest.permission.CAMERA,
+                PermissionUse.OPTIONAL);
+
+        assertSame(shared, PermissionDetails.obtain(Manifest.permission.CAMERA, PermissionUse.FEATURE));
+
+        //  Separately created details still share the id, key and hash
+        assertEquals(shared, created);
+        assertEquals(shared.mId, created.mId);
+        assertEquals(shared.hashCode(), created.hashCode());
+        assertSame(shared.asKey(), shared.asKey());
+
+        //  Another usage of the same permission gets its own id
+        assertEquals(shared.mPermId, otherUse.mPermId);
+        assertNotEquals(shared.mId, otherUse.mId);
+        assertNotEquals(shared, otherUse);
+        assertTrue(shared.mPermId < PermissionRegistry.getPermissionCount());
+    }
+}
@@ -0,0 +1,106 @@
+package com.hiqes.andele;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class TestPermissionFuture {
+    private static final String         DUMMY_PERMISSION = "com.hiqes.andele.test.DUMMY_PERMISSION";
+
+    private static PermissionResult<Integer> buildResult(boolean granted, Integer value) {
+        return new PermissionResult<>(new String[] { DUMMY_PERMISSION },
+                                      new boolean[] { granted },
+                                      value);
+    }
+
+    @Test
+    public void testCompleteOnce() throws Exception {
+        PermissionFuture<Integer>   future = new PermissionFuture<>();
+        final int[]                 callbackCount = new int[1];
+
+        future.addCallback(new PermissionFuture.Callback<Integer>() {
+            @Override
+            public void onComplete(PermissionFuture<Integer> future) {
+                callbackCount[0]++;
+            }
+        }, ProtectedAction.INLINE_EXECUTOR);
+
+        assertFalse(future.isDone());
+        assertTrue(future.complete(buildResult(true, 5)));
+        assertFalse(future.complete(buildResult(false, null)));
+        assertFalse(future.cancel(false));
+
+        assertEquals(1, callbackCount[0]);
+        assertEquals(Integer.valueOf(5), future.get().getValue());
+        assertTrue(future.get().isGranted(DUMMY_PERMISSION));
+        assertFalse(future.get().isGranted("other"));
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void testGetTimeout() throws Exception {
+        new PermissionFuture<Integer>().get(10, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testThen() throws Exception {
+        PermissionFuture<Integer>   future = new PermissionFuture<>();
+        PermissionFuture<String>    next;
+
+        next = future.then(new PermissionFuture.Continuation<Integer, String>() {
+            @Override
+            public String then(PermissionResult<Integer> result) {
+                return "value " + result.getValue();
+            }
+        }, ProtectedAction.INLINE_EXECUTOR);
+
+        assertFalse(next.isDone());
+        future.complete(buildResult(true, 7));
+
+        //  Grant results carry through the chain with the new value
+        assertEquals("value 7", next.get().getValue());
+        assertTrue(next.get().isAllGranted());
+    }
+
+    @Test
+    public void testThenFailure() throws Exception {
+        PermissionFuture<Integer>   future = new PermissionFuture<>();
+        PermissionFuture<String>    next;
+
+        next = future.then(new PermissionFuture.Continuation<Integer, String>() {
+            @Override
+            public String then(PermissionResult<Integer> result) {
+                fail("Continuation run after failure");
+                return null;
+            }
+        }, ProtectedAction.INLINE_EXECUTOR);
+
+        future.fail(new IllegalStateException("boom"));
+        try {
+            next.get();
+            fail("Failure not passed down the chain");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test(expected = CancellationException.class)
+    public void testCancelPropagatesUp() throws Exception {
+        PermissionFuture<Integer>   future = new PermissionFuture<>();
+        PermissionFuture<String>    next;
+
+        next = future.then(new PermissionFuture.Continuation<Integer, String>() {
+            @Override
+            public String then(PermissionResult<Integer> result) {
+                return null;
+            }
+        }, ProtectedAction.INLINE_EXECUTOR);
+
+        assertTrue(next.cancel(false));
+        assertTrue(future.isCancelled());
+        future.get();
+    }
+}
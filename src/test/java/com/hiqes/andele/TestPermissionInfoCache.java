@@ -0,0 +1,99 @@
+package com.hiqes.andele;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.pm.PermissionInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+
+import static org.mockito.Mockito.*;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class TestPermissionInfoCache {
+    private static final String         DUMMY_PERMISSION = "com.hiqes.andele.test.DUMMY_PERMISSION";
+    private static final String         DUMMY_PERMISSION2 = "com.hiqes.andele.test.DUMMY_PERMISSION2";
+    private static final String         UNKNOWN_PERMISSION = "com.hiqes.andele.test.UNKNOWN_PERMISSION";
+    private static final String         DUMMY_LABEL = "Dummy";
+
+    @Mock
+    private PackageManager              mPackageMgr;
+
+    @Mock
+    private PermissionInfo              mPermInfo;
+
+    @Mock
+    private Context                     mContext;
+
+    //  Receivers can't be built off device, so skip registering them
+    private PermissionInfoCache         mCache = new PermissionInfoCache() {
+        @Override
+        void registerReceivers(Context context) {
+        }
+    };
+
+    @Before
+    public void setup() throws Exception {
+        when(mPermInfo.loadLabel(mPackageMgr)).thenReturn(DUMMY_LABEL);
+        when(mPackageMgr.getPermissionInfo(DUMMY_PERMISSION, PackageManager.GET_META_DATA))
+                .thenReturn(mPermInfo);
+        when(mPackageMgr.getPermissionInfo(DUMMY_PERMISSION2, PackageManager.GET_META_DATA))
+                .thenReturn(mPermInfo);
+        when(mPackageMgr.getPermissionInfo(UNKNOWN_PERMISSION, PackageManager.GET_META_DATA))
+                .thenThrow(PackageManager.NameNotFoundException.class);
+    }
+
+    @Test
+    public void testNotAttached() throws Exception {
+        //  Nothing is kept until the cache can hear about changes
+        mCache.getInfo(mPackageMgr, DUMMY_PERMISSION);
+        mCache.getInfo(mPackageMgr, DUMMY_PERMISSION);
+        verify(mPackageMgr, times(2)).getPermissionInfo(DUMMY_PERMISSION, PackageManager.GET_META_DATA);
+        assertEquals(0, mCache.size());
+    }
+
+    @Test
+    public void testHitsAndUnknown() throws Exception {
+        mCache.attach(mContext);
+        for (int i = 0; i < 3; i++) {
+            assertSame(mPermInfo, mCache.getInfo(mPackageMgr, DUMMY_PERMISSION));
+            assertEquals(DUMMY_LABEL, mCache.getLabel(mPackageMgr, DUMMY_PERMISSION));
+            assertNull(mCache.getInfo(mPackageMgr, UNKNOWN_PERMISSION));
+            assertNull(mCache.getLabel(mPackageMgr, UNKNOWN_PERMISSION));
+        }
+
+        //  Unknown names are remembered as well
+        verify(mPackageMgr, times(1)).getPermissionInfo(DUMMY_PERMISSION, PackageManager.GET_META_DATA);
+        verify(mPackageMgr, times(1)).getPermissionInfo(UNKNOWN_PERMISSION, PackageManager.GET_META_DATA);
+        verify(mPermInfo, times(1)).loadLabel(mPackageMgr);
+    }
+
+    @Test
+    public void testInvalidateAndEvict() throws Exception {
+        mCache.attach(mContext);
+        mCache.preload(mPackageMgr, new String[] { DUMMY_PERMISSION, UNKNOWN_PERMISSION });
+        assertEquals(2, mCache.size());
+
+        //  A package or locale change drops everything
+        mCache.invalidate();
+        assertEquals(0, mCache.size());
+        mCache.getLabel(mPackageMgr, DUMMY_PERMISSION);
+        verify(mPermInfo, times(2)).loadLabel(mPackageMgr);
+
+        //  Least recently used goes first
+        mCache.getInfo(mPackageMgr, UNKNOWN_PERMISSION);
+        mCache.getInfo(mPackageMgr, DUMMY_PERMISSION);
+        mCache.setMaxSize(1);
+        assertEquals(1, mCache.size());
+        mCache.getInfo(mPackageMgr, DUMMY_PERMISSION);
+        verify(mPackageMgr, times(2)).getPermissionInfo(DUMMY_PERMISSION, PackageManager.GET_META_DATA);
+
+        mCache.getInfo(mPackageMgr, DUMMY_PERMISSION2);
+        mCache.getInfo(mPackageMgr, DUMMY_PERMISSION);
+        verify(mPackageMgr, times(3)).getPermissionInfo(DUMMY_PERMISSION, PackageManager.GET_META_DATA);
+    }
+}
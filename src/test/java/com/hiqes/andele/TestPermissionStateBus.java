@@ -0,0 +1,100 @@
+package com.hiqes.andele;
+
+import android.content.pm.PackageManager;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+public class TestPermissionStateBus {
+    private static final String         DUMMY_PERMISSION = "com.hiqes.andele.test.DUMMY_PERMISSION";
+    private static final String         DUMMY_PERMISSION2 = "com.hiqes.andele.test.DUMMY_PERMISSION2";
+
+    private final ArrayList<Runnable>   mQueued = new ArrayList<>();
+
+    private final Executor              mExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mQueued.add(command);
+        }
+    };
+
+    private static class RecordingListener implements Andele.PermissionStateListener {
+        final ArrayList<String>         mEvents = new ArrayList<>();
+
+        @Override
+        public void onPermissionStateChanged(String permission, boolean granted) {
+            mEvents.add(permission + "=" + granted);
+        }
+    }
+
+    private void runQueued() {
+        ArrayList<Runnable>     tasks = new ArrayList<>(mQueued);
+
+        mQueued.clear();
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).run();
+        }
+    }
+
+    @Test
+    public void testCoalescedFanOut() {
+        PermissionStateBus      bus = new PermissionStateBus(mExecutor);
+        RecordingListener       first = new RecordingListener();
+        RecordingListener       second = new RecordingListener();
+        RecordingListener       other = new RecordingListener();
+
+        bus.subscribe(DUMMY_PERMISSION, first);
+        bus.subscribe(DUMMY_PERMISSION, second);
+        bus.subscribe(DUMMY_PERMISSION2, other);
+
+        //  A burst of changes goes out as one task with the latest state
+        bus.onGrantState(DUMMY_PERMISSION, PackageManager.PERMISSION_DENIED);
+        bus.onGrantState(DUMMY_PERMISSION, PackageManager.PERMISSION_GRANTED);
+        bus.onGrantState(DUMMY_PERMISSION2, PackageManager.PERMISSION_DENIED);
+        assertEquals(1, mQueued.size());
+        runQueued();
+
+        assertEquals(1, first.mEvents.size());
+        assertEquals(DUMMY_PERMISSION + "=true", first.mEvents.get(0));
+        assertEquals(first.mEvents, second.mEvents);
+        assertEquals(1, other.mEvents.size());
+        assertEquals(DUMMY_PERMISSION2 + "=false", other.mEvents.get(0));
+
+        //  Learning the same state again is not a change
+        bus.onGrantState(DUMMY_PERMISSION, PackageManager.PERMISSION_GRANTED);
+        assertEquals(0, mQueued.size());
+    }
+
+    @Test
+    public void testSubscribeAndUnsubscribe() {
+        PermissionStateBus      bus = new PermissionStateBus(mExecutor);
+        RecordingListener       early = new RecordingListener();
+        RecordingListener       late = new RecordingListener();
+
+        //  Nobody listening, the state is only remembered
+        bus.onGrantState(DUMMY_PERMISSION, PackageManager.PERMISSION_DENIED);
+        assertEquals(0, mQueued.size());
+
+        bus.subscribe(DUMMY_PERMISSION, early);
+        runQueued();
+        assertEquals(1, early.mEvents.size());
+        assertEquals(DUMMY_PERMISSION + "=false", early.mEvents.get(0));
+        assertArrayEquals(new String[] { DUMMY_PERMISSION }, bus.getSubscribedPermissions());
+
+        bus.subscribe(DUMMY_PERMISSION, late);
+        runQueued();
+        bus.unsubscribe(DUMMY_PERMISSION, early);
+        bus.onGrantState(DUMMY_PERMISSION, PackageManager.PERMISSION_GRANTED);
+        runQueued();
+
+        assertEquals(1, early.mEvents.size());
+        assertEquals(2, late.mEvents.size());
+        assertEquals(DUMMY_PERMISSION + "=true", late.mEvents.get(1));
+
+        bus.unsubscribe(DUMMY_PERMISSION, late);
+        assertEquals(0, bus.getSubscribedPermissions().length);
+    }
+}
@@ -0,0 +1,84 @@
+package com.hiqes.andele;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+
+import static org.mockito.Mockito.*;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class TestRangedRequestCodeAllocator {
+    private static final int            FRAGMENT_MASK = 0x7F;
+    private static final int            ACTIVITY_MASK = 0x7FFFFFFF;
+
+    @Mock
+    private RequestOwner                mActivityOwner;
+
+    @Mock
+    private RequestOwner                mFragmentOwner;
+
+    @Before
+    public void setup() {
+        when(mActivityOwner.getReqeuestCodeMask()).thenReturn(ACTIVITY_MASK);
+        when(mFragmentOwner.getReqeuestCodeMask()).thenReturn(FRAGMENT_MASK);
+    }
+
+    @Test
+    public void testFragmentRangeExhaustion() {
+        RangedRequestCodeAllocator  allocator = new RangedRequestCodeAllocator();
+        boolean[]                   seen = new boolean[FRAGMENT_MASK + 1];
+
+        //  Every one of the 128 fragment codes is handed out exactly once
+        for (int i = 0; i <= FRAGMENT_MASK; i++) {
+            int                     code = allocator.allocate(mFragmentOwner);
+
+            assertTrue(code >= 0);
+            assertEquals(code, code & FRAGMENT_MASK);
+            assertFalse(seen[code]);
+            seen[code] = true;
+        }
+
+        assertEquals(0, allocator.getFreeCount(mFragmentOwner));
+        assertEquals(-1, allocator.allocate(mFragmentOwner));
+
+        //  Activities have their own range and are unaffected
+        assertNotEquals(-1, allocator.allocate(mActivityOwner));
+
+        //  A released code comes back
+        allocator.release(0x42);
+        assertEquals(0x42, allocator.allocate(mFragmentOwner));
+        assertEquals(-1, allocator.allocate(mFragmentOwner));
+    }
+
+    @Test
+    public void testDeterministicRanges() {
+        RangedRequestCodeAllocator  allocator = new RangedRequestCodeAllocator();
+
+        assertEquals(RangedRequestCodeAllocator.DEFAULT_ACTIVITY_BASE,
+                     allocator.allocate(mActivityOwner));
+        assertEquals(RangedRequestCodeAllocator.DEFAULT_ACTIVITY_BASE + 1,
+                     allocator.allocate(mActivityOwner));
+        assertEquals(RangedRequestCodeAllocator.DEFAULT_FRAGMENT_BASE,
+                     allocator.allocate(mFragmentOwner));
+
+        //  Released codes go to the back of the queue
+        allocator.release(RangedRequestCodeAllocator.DEFAULT_ACTIVITY_BASE);
+        assertEquals(RangedRequestCodeAllocator.DEFAULT_ACTIVITY_BASE + 2,
+                     allocator.allocate(mActivityOwner));
+
+        //  Releasing codes which are not in use is ignored
+        int                         free = allocator.getFreeCount(mActivityOwner);
+        allocator.release(RangedRequestCodeAllocator.DEFAULT_ACTIVITY_BASE);
+        allocator.release(RangedRequestCodeAllocator.DEFAULT_ACTIVITY_BASE + 0x80);
+        allocator.release(-1);
+        assertEquals(free, allocator.getFreeCount(mActivityOwner));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOverlappingRanges() {
+        new RangedRequestCodeAllocator(0x40, 0x100, 0, 0x80);
+    }
+}
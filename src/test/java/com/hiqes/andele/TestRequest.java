@@ -280,6 +280,78 @@ public class TestRequest implements ProtectedAction.UserPromptCallback {
         testRequestSame(roFrag1, roFrag2);
     }
 
+    private ProtectedAction buildAction(String perm, PermissionUse usage) {
+        return new ProtectedAction.Builder()
+                .withPermission(perm)
+                .withUsage(usage)
+                .actionCallback(new ProtectedAction.ActionCallback() {
+                    @Override
+                    public void doAction(ProtectedAction action) {
+                        //  DO NOTHING
+                    }
+                })
+                .userPromptCallback(this)
+                .build();
+    }
+
+    @Test
+    public void testRequestPermissionSets() {
+        RequestOwnerActivity    owner = new RequestOwnerActivity(mActivity);
+        ProtectedAction         feature1 = buildAction(DUMMY_PERMISSION, PermissionUse.FEATURE);
+        ProtectedAction         feature2 = buildAction(DUMMY_PERMISSION2, PermissionUse.FEATURE);
+        ProtectedAction         optional1 = buildAction(DUMMY_PERMISSION, PermissionUse.OPTIONAL);
+        ProtectedAction         feature3 = buildAction(DUMMY_PERMISSION3, PermissionUse.FEATURE);
+        Request                 req12 = new Request(owner, new ProtectedAction[] { feature1, feature2 }, mHandler);
+        Request                 req21 = new Request(owner, new ProtectedAction[] { feature2, feature1 }, mHandler);
+        Request                 reqOpt = new Request(owner, new ProtectedAction[] { optional1 }, mHandler);
+        Request                 req23 = new Request(owner, new ProtectedAction[] { feature2, feature3 }, mHandler);
+        Request                 req112 = new Request(owner, new ProtectedAction[] { feature1, feature1, feature2 }, mHandler);
+        Request                 req212 = new Request(owner, new ProtectedAction[] { feature2, feature1, feature2 }, mHandler);
+        Request                 req121 = new Request(owner, new ProtectedAction[] { feature1, feature2, feature1 }, mHandler);
+
+        //  Order does not matter, the set of actions does
+        assertTrue(req12.isSameRequest(req21));
+        assertFalse(req12.isSameRequest(req23));
+
+        //  Repeated actions have to be repeated as often on both sides
+        assertFalse(req112.isSameRequest(req212));
+        assertTrue(req112.isSameRequest(req121));
+
+        //  Same permission with another usage is a different action, but
+        //  the request still covers the permission.
+        assertFalse(req12.isSameRequest(reqOpt));
+        assertTrue(reqOpt.hasPermission(feature1.mPermDetails.mPermId));
+        assertTrue(req23.hasPermission(feature3.mPermDetails.mPermId));
+        assertFalse(req12.hasPermission(feature3.mPermDetails.mPermId));
+        assertFalse(req12.hasPermission(-1));
+    }
+
+    @Test
+    public void testRequestCompositeSets() {
+        RequestOwnerActivity    owner = new RequestOwnerActivity(mActivity);
+        ProtectedAction         feature1 = buildAction(DUMMY_PERMISSION, PermissionUse.FEATURE);
+        ProtectedAction         feature2 = buildAction(DUMMY_PERMISSION2, PermissionUse.FEATURE);
+        ProtectedAction         both = new ProtectedAction.Builder()
+                .withPermissions(DUMMY_PERMISSION, DUMMY_PERMISSION2)
+                .withUsage(PermissionUse.FEATURE)
+                .actionCallback(new ProtectedAction.ActionCallback() {
+                    @Override
+                    public void doAction(ProtectedAction action) {
+                        //  DO NOTHING
+                    }
+                })
+                .userPromptCallback(this)
+                .build();
+        Request                 req1Both = new Request(owner, new ProtectedAction[] { feature1, both }, mHandler);
+        Request                 reqBoth2 = new Request(owner, new ProtectedAction[] { both, feature2 }, mHandler);
+        Request                 reqBoth1 = new Request(owner, new ProtectedAction[] { both, feature1 }, mHandler);
+
+        //  Same permissions overall, but split into different actions
+        assertFalse(req1Both.isSameRequest(reqBoth2));
+        assertFalse(reqBoth2.isSameRequest(req1Both));
+        assertTrue(req1Both.isSameRequest(reqBoth1));
+    }
+
     //////////////////////////////////////////////////////////////////////////
     //  UI callbacks, do nothing
     //////////////////////////////////////////////////////////////////////////
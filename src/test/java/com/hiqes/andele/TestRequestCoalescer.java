@@ -0,0 +1,169 @@
+package com.hiqes.andele;
+
+import android.app.Activity;
+import android.os.Handler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+
+import static org.mockito.Mockito.*;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class TestRequestCoalescer implements ProtectedAction.UserPromptCallback {
+    private static final String         DUMMY_PERMISSION = "com.hiqes.andele.test.DUMMY_PERMISSION";
+    private static final String         DUMMY_PERMISSION2 = "com.hiqes.andele.test.DUMMY_PERMISSION2";
+
+    @Mock
+    private RequestOwner                mOwner;
+
+    @Mock
+    private RequestOwner                mOtherOwner;
+
+    @Mock
+    private Activity                    mActivity;
+
+    @Mock
+    private Activity                    mOtherActivity;
+
+    @Mock
+    private Handler                     mHandler;
+
+    private final ArrayList<Runnable>   mScheduled = new ArrayList<>();
+    private final ArrayList<String[]>   mSentPerms = new ArrayList<>();
+    private final ArrayList<Integer>    mSentCodes = new ArrayList<>();
+
+    private final RequestCoalescer      mCoalescer = new RequestCoalescer(new RequestCoalescer.Sink() {
+        @Override
+        public void schedule(Runnable flush, long delayMillis) {
+            mScheduled.add(flush);
+        }
+
+        @Override
+        public void requestPermissions(Request[] batch, String[] permissions, int reqCode) {
+            mSentPerms.add(permissions);
+            mSentCodes.add(reqCode);
+        }
+    });
+
+    @Before
+    public void setup() {
+        //  Two fragments in the same Activity
+        when(mOwner.getHostActivity()).thenReturn(mActivity);
+        when(mOtherOwner.getHostActivity()).thenReturn(mActivity);
+    }
+
+    private Request buildRequest(RequestOwner owner, String permission, int code) {
+        ProtectedAction         action = new ProtectedAction.Builder()
+                .withPermission(permission)
+                .withUsage(PermissionUse.FEATURE)
+                .actionCallback(new ProtectedAction.ActionCallback() {
+                    @Override
+                    public void doAction(ProtectedAction action) {
+                        //  DO NOTHING
+                    }
+                })
+                .userPromptCallback(this)
+                .build();
+        Request                 req = new Request(owner, new ProtectedAction[] { action }, mHandler);
+
+        req.setCode(code);
+        return req;
+    }
+
+    @Test
+    public void testCoalesceSameHost() {
+        Request                 req1 = buildRequest(mOwner, DUMMY_PERMISSION, 1);
+        Request                 req2 = buildRequest(mOtherOwner, DUMMY_PERMISSION2, 2);
+        Request                 req3 = buildRequest(mOtherOwner, DUMMY_PERMISSION, 3);
+
+        mCoalescer.add(req1);
+        mCoalescer.add(req2);
+        mCoalescer.add(req3);
+
+        //  One window for the host, nothing sent until it ends
+        assertEquals(1, mScheduled.size());
+        assertEquals(0, mSentCodes.size());
+
+        mScheduled.get(0).run();
+        assertEquals(1, mSentCodes.size());
+        assertEquals(1, (int)mSentCodes.get(0));
+        assertEquals(Arrays.asList(DUMMY_PERMISSION, DUMMY_PERMISSION2),
+                     Arrays.asList(mSentPerms.get(0)));
+
+        //  The results for the first code belong to all of them, once
+        Request[]               batch = mCoalescer.takeBatch(1);
+        assertArrayEquals(new Request[] { req1, req2, req3 }, batch);
+        assertNull(mCoalescer.takeBatch(1));
+    }
+
+    @Test
+    public void testSeparateInstances() {
+        //  Another instance of the same Activity class, for example in
+        //  a second task, gets its own window.
+        when(mOtherOwner.getHostActivity()).thenReturn(mOtherActivity);
+        mCoalescer.add(buildRequest(mOwner, DUMMY_PERMISSION, 1));
+        mCoalescer.add(buildRequest(mOtherOwner, DUMMY_PERMISSION, 2));
+        assertEquals(2, mScheduled.size());
+
+        mScheduled.get(0).run();
+        mScheduled.get(1).run();
+        assertEquals(Arrays.asList(1, 2), mSentCodes);
+        assertNull(mCoalescer.takeBatch(1));
+
+        //  Once the host is gone there is nothing to wait for
+        when(mOwner.getHostActivity()).thenReturn(null);
+        mCoalescer.add(buildRequest(mOwner, DUMMY_PERMISSION2, 3));
+        assertEquals(2, mScheduled.size());
+        assertEquals(3, (int)mSentCodes.get(2));
+    }
+
+    @Test
+    public void testSingleAndNoWindow() {
+        mCoalescer.add(buildRequest(mOwner, DUMMY_PERMISSION, 5));
+        mScheduled.get(0).run();
+
+        //  A lone request goes out under its own code, no batch to split
+        assertEquals(5, (int)mSentCodes.get(0));
+        assertNull(mCoalescer.takeBatch(5));
+
+        mCoalescer.setWindow(0);
+        mCoalescer.add(buildRequest(mOwner, DUMMY_PERMISSION2, 6));
+        assertEquals(1, mScheduled.size());
+        assertEquals(6, (int)mSentCodes.get(1));
+    }
+
+    //////////////////////////////////////////////////////////////////////////
+    //  UI callbacks, do nothing
+    //////////////////////////////////////////////////////////////////////////
+    @Override
+    public void showEducateModal(ProtectedAction action, int reqCode) {
+        //  DO NOTHING
+    }
+
+    @Override
+    public void showEducate(ProtectedAction action) {
+        //  DO NOTHING
+    }
+
+    @Override
+    public void showDeniedCritical(ProtectedAction action) {
+        //  DO NOTHING
+    }
+
+    @Override
+    public void showDeniedReminder(ProtectedAction action) {
+        //  DO NOTHING
+    }
+
+    @Override
+    public void showDeniedFeedback(ProtectedAction action) {
+        //  DO NOTHING
+    }
+}
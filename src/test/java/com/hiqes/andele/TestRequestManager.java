@@ -7,6 +7,14 @@ import android.content.ComponentName;
 import android.os.Handler;
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -23,6 +31,7 @@ import org.mockito.stubbing.Answer;
 public class TestRequestManager implements ProtectedAction.UserPromptCallback {
     private static final String         TEST_PACKAGE = "com.hiqes.andele.test.ui";
     private static final String         DUMMY_PERMISSION = "com.hiqes.andele.test.DUMMY_PERMISSION";
+    private static final String         DUMMY_PERMISSION2 = "com.hiqes.andele.test.DUMMY_PERMISSION2";
     private static final String         TEST_ACTIVITY = "TestActivity";
 
     private RequestManager              mManager = new RequestManager();
@@ -135,6 +144,212 @@ public class TestRequestManager implements ProtectedAction.UserPromptCallback {
         testRequestManager_manageRequest(reqOwnerFrag);
     }
 
+    private ProtectedAction buildAction(String perm) {
+        ProtectedAction.Builder paBldr = new ProtectedAction.Builder();
+
+        return paBldr.withPermission(perm)
+                .withUsage(PermissionUse.FEATURE)
+                .actionCallback(new ProtectedAction.ActionCallback() {
+                    @Override
+                    public void doAction(ProtectedAction action) {
+                        //  DO NOTHING
+                    }
+                })
+                .userPromptCallback(this)
+                .build();
+    }
+
+    @Test
+    public void testRequestManager_duplicateRequest() {
+        RequestOwnerActivity reqOwnerAct = new RequestOwnerActivity(mActivity);
+        ProtectedAction[] actions = new ProtectedAction[] { buildAction(DUMMY_PERMISSION) };
+        ProtectedAction[] overlapActions = new ProtectedAction[] {
+                buildAction(DUMMY_PERMISSION2),
+                buildAction(DUMMY_PERMISSION)
+        };
+        ProtectedAction[] otherActions = new ProtectedAction[] { buildAction(DUMMY_PERMISSION2) };
+
+        int reqCode = mManager.queueRequest(reqOwnerAct, actions, mHandler);
+        assertNotEquals(-1, reqCode);
+
+        //  Any overlap with the active request is suppressed
+        assertEquals(-1, mManager.queueRequest(reqOwnerAct, overlapActions, mHandler));
+
+        //  Once the request is gone the same permission can be asked again
+        assertNotNull(mManager.removeRequest(reqCode));
+        int otherCode = mManager.queueRequest(reqOwnerAct, otherActions, mHandler);
+        assertNotEquals(-1, otherCode);
+        assertNotEquals(-1, mManager.queueRequest(reqOwnerAct, actions, mHandler));
+    }
+
+    @Test
+    public void testRequestManager_restoreOrphan() {
+        RequestOwnerActivity reqOwnerAct = new RequestOwnerActivity(mActivity);
+        ProtectedAction[] actions = new ProtectedAction[] { buildAction(DUMMY_PERMISSION) };
+
+        int reqCode = mManager.queueRequest(reqOwnerAct, actions, mHandler);
+        assertNotEquals(-1, reqCode);
+        assertNotNull(mCb);
+
+        //  Destroying the owning Activity turns the request into an orphan,
+        //  queuing the same action again restores it under the old code.
+        mCb.onActivityDestroyed(mActivity);
+
+        RequestOwnerActivity newOwnerAct = new RequestOwnerActivity(mActivity);
+        ProtectedAction[] newActions = new ProtectedAction[] { buildAction(DUMMY_PERMISSION) };
+        assertEquals(-1, mManager.queueRequest(newOwnerAct, newActions, mHandler));
+
+        Request restoredReq = mManager.getRequest(reqCode);
+        assertNotNull(restoredReq);
+        assertEquals(newOwnerAct, restoredReq.getOwner());
+        assertEquals(reqCode, restoredReq.getCode());
+    }
+
+    @Test
+    public void testRequestManager_orphanEviction() {
+        final ArrayList<Request> evicted = new ArrayList<>();
+        RequestOwnerActivity reqOwnerAct = new RequestOwnerActivity(mActivity);
+
+        mManager.setOrphanLimits(1, 60000);
+        mManager.setEvictionListener(new RequestManager.EvictionListener() {
+            @Override
+            public void onRequestEvicted(Request req) {
+                evicted.add(req);
+            }
+        });
+
+        int reqCode = mManager.queueRequest(reqOwnerAct, new ProtectedAction[] { buildAction(DUMMY_PERMISSION) }, mHandler);
+        int otherCode = mManager.queueRequest(reqOwnerAct, new ProtectedAction[] { buildAction(DUMMY_PERMISSION2) }, mHandler);
+
+        //  Both become orphans, only one fits
+        mCb.onActivityDestroyed(mActivity);
+        assertEquals(1, mManager.getOrphanCount());
+        assertEquals(1, evicted.size());
+        assertEquals(reqCode, evicted.get(0).getCode());
+        assertFalse(mManager.isQueued(reqCode));
+        assertTrue(mManager.isQueued(otherCode));
+
+        //  The evicted request's action can be asked for again
+        assertNotEquals(-1, mManager.queueRequest(reqOwnerAct, new ProtectedAction[] { buildAction(DUMMY_PERMISSION) }, mHandler));
+    }
+
+    @Test
+    public void testRequestManager_orphanAgedOutWhenIdle() throws Exception {
+        final ArrayList<Request> evicted = new ArrayList<>();
+        RequestOwnerActivity reqOwnerAct = new RequestOwnerActivity(mActivity);
+        OwnerReaper reaper = new OwnerReaper(mManager);
+
+        mManager.setOrphanLimits(32, 20);
+        mManager.setEvictionListener(new RequestManager.EvictionListener() {
+            @Override
+            public void onRequestEvicted(Request req) {
+                evicted.add(req);
+            }
+        });
+
+        int reqCode = mManager.queueRequest(reqOwnerAct, new ProtectedAction[] { buildAction(DUMMY_PERMISSION) }, mHandler);
+        mCb.onActivityDestroyed(mActivity);
+        assertEquals(1, mManager.getOrphanCount());
+
+        //  No new request comes along, the idle pass ages it out
+        Thread.sleep(50);
+        assertTrue(reaper.queueIdle());
+        assertEquals(0, mManager.getOrphanCount());
+        assertEquals(1, evicted.size());
+        assertEquals(reqCode, evicted.get(0).getCode());
+    }
+
+    @Test
+    public void testRequestManager_collectedOwner() throws Exception {
+        final ArrayList<Request> evicted = new ArrayList<>();
+        RequestOwnerActivity reqOwnerAct = new RequestOwnerActivity(mActivity);
+        OwnerReaper reaper = new OwnerReaper(mManager);
+
+        mManager.setEvictionListener(new RequestManager.EvictionListener() {
+            @Override
+            public void onRequestEvicted(Request req) {
+                evicted.add(req);
+            }
+        });
+
+        int reqCode = mManager.queueRequest(reqOwnerAct, new ProtectedAction[] { buildAction(DUMMY_PERMISSION) }, mHandler);
+
+        //  Stand in for the Activity being collected without ever being
+        //  destroyed, the mock itself is held on to by the test.  The
+        //  reference must stay reachable to be queued.
+        OwnerReaper.OwnerRef<Object> ref = new OwnerReaper.OwnerRef<>(new Object(), reqOwnerAct);
+        for (int i = 0; (i < 100) && evicted.isEmpty(); i++) {
+            System.gc();
+            Thread.sleep(10);
+            reaper.reap();
+        }
+
+        assertNull(ref.get());
+        assertEquals(1, evicted.size());
+        assertEquals(reqCode, evicted.get(0).getCode());
+        assertFalse(mManager.isQueued(reqCode));
+    }
+
+    @Test
+    public void testRequestManager_removeByObject() {
+        RequestOwnerActivity reqOwnerAct = new RequestOwnerActivity(mActivity);
+        ProtectedAction[] actions = new ProtectedAction[] { buildAction(DUMMY_PERMISSION) };
+
+        int reqCode = mManager.queueRequest(reqOwnerAct, actions, mHandler);
+        Request req = mManager.getRequest(reqCode);
+        assertNotNull(req);
+
+        //  An equivalent request built elsewhere matches the queued one
+        Request sameReq = new Request(new RequestOwnerActivity(mActivity),
+                                      new ProtectedAction[] { buildAction(DUMMY_PERMISSION) },
+                                      mHandler);
+        assertEquals(req, mManager.removeRequest(sameReq));
+        assertNull(mManager.removeRequest(req));
+
+        //  Orphans are found by object as well
+        reqCode = mManager.queueRequest(reqOwnerAct, actions, mHandler);
+        req = mManager.getRequest(reqCode);
+        mCb.onActivityDestroyed(mActivity);
+        assertEquals(req, mManager.removeRequest(req));
+        assertNotEquals(-1, mManager.queueRequest(reqOwnerAct, actions, mHandler));
+    }
+
+    @Test
+    public void testRequestManager_concurrentQueue() throws Exception {
+        final int               threadCount = 8;
+        final ExecutorService   pool = Executors.newFixedThreadPool(threadCount);
+        final CountDownLatch    startLatch = new CountDownLatch(1);
+        final RequestOwnerActivity reqOwnerAct = new RequestOwnerActivity(mActivity);
+        Future<?>[]             results = new Future<?>[threadCount];
+        int                     queued = 0;
+
+        //  All threads race to queue the same permission, only one of them
+        //  may get a request code and the tracker is registered once.
+        for (int i = 0; i < threadCount; i++) {
+            results[i] = pool.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    ProtectedAction[] actions = new ProtectedAction[] { buildAction(DUMMY_PERMISSION) };
+
+                    startLatch.await();
+                    return mManager.queueRequest(reqOwnerAct, actions, mHandler);
+                }
+            });
+        }
+
+        startLatch.countDown();
+        for (int i = 0; i < threadCount; i++) {
+            if ((Integer)results[i].get(10, TimeUnit.SECONDS) != -1) {
+                queued++;
+            }
+        }
+
+        pool.shutdown();
+        assertEquals(1, queued);
+        verify(mApplication, times(1))
+                .registerActivityLifecycleCallbacks(any(Application.ActivityLifecycleCallbacks.class));
+    }
+
     //////////////////////////////////////////////////////////////////////////
     //  UI callbacks, do nothing
     //////////////////////////////////////////////////////////////////////////
@@ -0,0 +1,165 @@
+package com.hiqes.andele;
+
+import android.os.Handler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+
+import static org.mockito.Mockito.*;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class TestRequestScheduler implements ProtectedAction.UserPromptCallback {
+    private static final String         DUMMY_PERMISSION = "com.hiqes.andele.test.DUMMY_PERMISSION";
+
+    @Mock
+    private RequestOwner                mOwner;
+
+    @Mock
+    private RequestOwner                mOtherTaskOwner;
+
+    @Mock
+    private Handler                     mHandler;
+
+    private final ArrayList<Integer>    mSent = new ArrayList<>();
+    private final ArrayList<Integer>    mDropped = new ArrayList<>();
+    private final HashSet<Integer>      mGone = new HashSet<>();
+
+    private final RequestScheduler      mScheduler = new RequestScheduler(new RequestScheduler.Sink() {
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            task.run();
+        }
+
+        @Override
+        public boolean isQueued(int reqCode) {
+            return !mGone.contains(reqCode);
+        }
+
+        @Override
+        public void send(Request[] batch, String[] permissions, int reqCode) {
+            mSent.add(reqCode);
+        }
+
+        @Override
+        public void drop(Request[] batch, int reqCode) {
+            mDropped.add(reqCode);
+        }
+    });
+
+    @Before
+    public void setup() {
+        when(mOwner.getTaskId()).thenReturn(1);
+        when(mOtherTaskOwner.getTaskId()).thenReturn(2);
+    }
+
+    private void submit(RequestOwner owner, PermissionUse usage, int code) {
+        ProtectedAction         action = new ProtectedAction.Builder()
+                .withPermission(DUMMY_PERMISSION)
+                .withUsage(usage)
+                .actionCallback(new ProtectedAction.ActionCallback() {
+                    @Override
+                    public void doAction(ProtectedAction action) {
+                        //  DO NOTHING
+                    }
+                })
+                .userPromptCallback(this)
+                .build();
+        Request                 req = new Request(owner, new ProtectedAction[] { action }, mHandler);
+
+        req.setCode(code);
+        mScheduler.submit(new Request[] { req }, new String[] { DUMMY_PERMISSION }, code);
+    }
+
+    @Test
+    public void testOneDialogPerTaskByPriority() {
+        submit(mOwner, PermissionUse.OPTIONAL, 1);
+        submit(mOwner, PermissionUse.FEATURE, 2);
+        submit(mOwner, PermissionUse.OPTIONAL, 3);
+        submit(mOwner, PermissionUse.CRITICAL, 4);
+        submit(mOtherTaskOwner, PermissionUse.OPTIONAL, 5);
+
+        //  The first for each task goes right away, the rest wait
+        assertEquals(2, mSent.size());
+        assertEquals(1, (int)mSent.get(0));
+        assertEquals(5, (int)mSent.get(1));
+        assertEquals(3, mScheduler.getQueueDepth());
+
+        //  Unrelated results do not let anything go
+        mScheduler.complete(99);
+        assertEquals(2, mSent.size());
+
+        mScheduler.complete(1);
+        mScheduler.complete(4);
+        mScheduler.complete(2);
+        assertEquals(5, mSent.size());
+        assertEquals(4, (int)mSent.get(2));
+        assertEquals(2, (int)mSent.get(3));
+        assertEquals(3, (int)mSent.get(4));
+        assertEquals(0, mScheduler.getQueueDepth());
+    }
+
+    @Test
+    public void testBoundedQueue() {
+        mScheduler.setMaxPending(2);
+        submit(mOwner, PermissionUse.FEATURE, 1);
+        submit(mOwner, PermissionUse.FEATURE, 2);
+        submit(mOwner, PermissionUse.OPTIONAL, 3);
+
+        //  Full, a less important request is turned away...
+        submit(mOwner, PermissionUse.OPTIONAL, 4);
+        assertEquals(1, mDropped.size());
+        assertEquals(4, (int)mDropped.get(0));
+
+        //  ...but a more important one bumps the least important
+        submit(mOwner, PermissionUse.ESSENTIAL, 5);
+        assertEquals(2, mDropped.size());
+        assertEquals(3, (int)mDropped.get(1));
+        assertEquals(2, mScheduler.getQueueDepth());
+    }
+
+    @Test
+    public void testShowingRequestGone() {
+        submit(mOwner, PermissionUse.FEATURE, 1);
+
+        //  The showing request was cleaned up without results
+        mGone.add(1);
+        submit(mOwner, PermissionUse.FEATURE, 2);
+        assertEquals(2, mSent.size());
+        assertEquals(0, mScheduler.getQueueDepth());
+    }
+
+    //////////////////////////////////////////////////////////////////////////
+    //  UI callbacks, do nothing
+    //////////////////////////////////////////////////////////////////////////
+    @Override
+    public void showEducateModal(ProtectedAction action, int reqCode) {
+        //  DO NOTHING
+    }
+
+    @Override
+    public void showEducate(ProtectedAction action) {
+        //  DO NOTHING
+    }
+
+    @Override
+    public void showDeniedCritical(ProtectedAction action) {
+        //  DO NOTHING
+    }
+
+    @Override
+    public void showDeniedReminder(ProtectedAction action) {
+        //  DO NOTHING
+    }
+
+    @Override
+    public void showDeniedFeedback(ProtectedAction action) {
+        //  DO NOTHING
+    }
+}
@@ -0,0 +1,77 @@
+package com.hiqes.andele;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+
+public class TestRequestTable {
+    private static Request newRequest() {
+        return new Request(null, new ProtectedAction[0], null);
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        RequestTable            table = new RequestTable();
+        Request                 req1 = newRequest();
+        Request                 req2 = newRequest();
+
+        assertTrue(table.isEmpty());
+        assertNull(table.put(5, req1));
+        assertNull(table.put(0x7F, req2));
+        assertEquals(2, table.size());
+
+        assertEquals(req1, table.get(5));
+        assertEquals(req2, table.get(0x7F));
+        assertNull(table.get(6));
+        assertTrue(table.containsKey(5));
+
+        //  Replacing a value returns the old one without changing the size
+        assertEquals(req1, table.put(5, req2));
+        assertEquals(2, table.size());
+
+        assertEquals(req2, table.remove(5));
+        assertNull(table.remove(5));
+        assertNull(table.get(5));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void testGrowAndCollide() {
+        RequestTable            table = new RequestTable();
+        HashMap<Integer, Request> expected = new HashMap<>();
+        Random                  rand = new Random(0x5a5a);
+
+        //  Mix of inserts and removals over a small key space so probe
+        //  chains collide and get shifted back on removal.
+        for (int i = 0; i < 20000; i++) {
+            int                 key = rand.nextInt(0x7F + 1);
+
+            if (rand.nextBoolean()) {
+                Request         req = newRequest();
+                assertEquals(expected.put(key, req), table.put(key, req));
+            } else {
+                assertEquals(expected.remove(key), table.remove(key));
+            }
+
+            assertEquals(expected.size(), table.size());
+        }
+
+        for (int key = 0; key <= 0x7F; key++) {
+            assertEquals(expected.get(key), table.get(key));
+        }
+
+        int                     found = 0;
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            if (table.valueAt(slot) != null) {
+                assertEquals(expected.get(table.keyAt(slot)), table.valueAt(slot));
+                found++;
+            }
+        }
+
+        assertEquals(expected.size(), found);
+    }
+}
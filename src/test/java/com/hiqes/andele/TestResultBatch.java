@@ -0,0 +1,216 @@
+package com.hiqes.andele;
+
+import android.content.pm.PackageManager;
+import android.os.Handler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+
+import static org.mockito.Mockito.*;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class TestResultBatch implements ProtectedAction.UserPromptCallback {
+    private static final String         DUMMY_PERMISSION = "com.hiqes.andele.test.DUMMY_PERMISSION";
+    private static final String         DUMMY_PERMISSION2 = "com.hiqes.andele.test.DUMMY_PERMISSION2";
+    private static final String         DUMMY_PERMISSION3 = "com.hiqes.andele.test.DUMMY_PERMISSION3";
+    private static final String         UNKNOWN_PERMISSION = "com.hiqes.andele.test.UNKNOWN_PERMISSION";
+
+    @Mock
+    private RequestOwner                mOwner;
+
+    @Mock
+    private Handler                     mHandler;
+
+    @Before
+    public void setup() {
+        when(mOwner.shouldShowRequestPermissionRationale(DUMMY_PERMISSION3)).thenReturn(true);
+    }
+
+    private ProtectedAction buildAction(String permission, PermissionUse usage) {
+        return new ProtectedAction.Builder()
+                .withPermission(permission)
+                .withUsage(usage)
+                .actionCallback(new ProtectedAction.ActionCallback() {
+                    @Override
+                    public void doAction(ProtectedAction action) {
+                        //  DO NOTHING
+                    }
+                })
+                .userPromptCallback(this)
+                .build();
+    }
+
+    @Test
+    public void testMatch() {
+        ProtectedAction[]       actions = new ProtectedAction[] {
+            buildAction(DUMMY_PERMISSION2, PermissionUse.CRITICAL),
+            buildAction(DUMMY_PERMISSION, PermissionUse.FEATURE),
+            buildAction(DUMMY_PERMISSION2, PermissionUse.OPTIONAL),
+            buildAction(DUMMY_PERMISSION3, PermissionUse.FEATURE),
+            buildAction(DUMMY_PERMISSION, PermissionUse.ESSENTIAL),
+        };
+        Request                 req = new Request(mOwner, actions, mHandler);
+        ResultBatch             batch;
+
+        batch = ResultBatch.match(req,
+                                  new String[] { DUMMY_PERMISSION, UNKNOWN_PERMISSION, DUMMY_PERMISSION2, DUMMY_PERMISSION3 },
+                                  new int[] {
+                                      PackageManager.PERMISSION_GRANTED,
+                                      PackageManager.PERMISSION_GRANTED,
+                                      PackageManager.PERMISSION_DENIED,
+                                      PackageManager.PERMISSION_DENIED,
+                                  },
+                                  0);
+
+        //  Every action of a permission gets its result, denials by usage
+        assertEquals(ResultBatch.OUTCOME_DENIED_CRITICAL, batch.getOutcome(0));
+        assertEquals(ResultBatch.OUTCOME_GRANTED, batch.getOutcome(1));
+        assertEquals(ResultBatch.OUTCOME_DENIED, batch.getOutcome(2));
+        assertEquals(ResultBatch.OUTCOME_DENIED_FEEDBACK, batch.getOutcome(3));
+        assertEquals(ResultBatch.OUTCOME_GRANTED, batch.getOutcome(4));
+        assertTrue(batch.hasGrants());
+        assertTrue(batch.hasDenials());
+        assertTrue(batch.hasPrompts());
+
+        //  Once the grants are handled elsewhere, only denials are left
+        batch.clear(1);
+        batch.clear(4);
+        assertFalse(batch.hasGrants());
+        batch.clear(0);
+        batch.clear(3);
+        assertFalse(batch.hasPrompts());
+        assertTrue(batch.hasDenials());
+    }
+
+    @Test
+    public void testPermissionSet() {
+        ProtectedAction         both = new ProtectedAction.Builder()
+                .withPermissions(DUMMY_PERMISSION2, DUMMY_PERMISSION, DUMMY_PERMISSION2)
+                .withUsage(PermissionUse.FEATURE)
+                .actionCallback(new ProtectedAction.ActionCallback() {
+                    @Override
+                    public void doAction(ProtectedAction action) {
+                        //  DO NOTHING
+                    }
+                })
+                .userPromptCallback(this)
+                .build();
+        Request                 req = new Request(mOwner,
+                                                  new ProtectedAction[] { both, buildAction(DUMMY_PERMISSION, PermissionUse.FEATURE) },
+                                                  mHandler);
+        ResultBatch             batch;
+
+        //  Duplicates are dropped, the first permission stays the main one
+        assertEquals(2, both.getAllPermissionDetails().length);
+        assertEquals(DUMMY_PERMISSION2, both.getPermissionDetails().getPermission());
+        assertEquals(3, req.getIndexSize());
+
+        //  One grant is not enough for the set
+        batch = ResultBatch.match(req,
+                                  new String[] { DUMMY_PERMISSION },
+                                  new int[] { PackageManager.PERMISSION_GRANTED },
+                                  0);
+        assertEquals(ResultBatch.OUTCOME_NONE, batch.getOutcome(0));
+        assertEquals(ResultBatch.OUTCOME_GRANTED, batch.getOutcome(1));
+
+        batch = ResultBatch.match(req,
+                                  new String[] { DUMMY_PERMISSION, DUMMY_PERMISSION2 },
+                                  new int[] { PackageManager.PERMISSION_GRANTED, PackageManager.PERMISSION_GRANTED },
+                                  0);
+        assertEquals(ResultBatch.OUTCOME_GRANTED, batch.getOutcome(0));
+
+        //  A permission repeated in the results is still only one of the set
+        batch = ResultBatch.match(req,
+                                  new String[] { DUMMY_PERMISSION, DUMMY_PERMISSION },
+                                  new int[] { PackageManager.PERMISSION_GRANTED, PackageManager.PERMISSION_GRANTED },
+                                  0);
+        assertEquals(ResultBatch.OUTCOME_NONE, batch.getOutcome(0));
+        assertEquals(ResultBatch.OUTCOME_GRANTED, batch.getOutcome(1));
+        assertFalse(batch.hasDenials());
+
+        //  Any denial denies the set, whatever order the results come in
+        batch = ResultBatch.match(req,
+                                  new String[] { DUMMY_PERMISSION2, DUMMY_PERMISSION },
+                                  new int[] { PackageManager.PERMISSION_DENIED, PackageManager.PERMISSION_GRANTED },
+                                  0);
+        assertEquals(ResultBatch.OUTCOME_DENIED, batch.getOutcome(0));
+        assertEquals(ResultBatch.OUTCOME_GRANTED, batch.getOutcome(1));
+        assertEquals(PackageManager.PERMISSION_DENIED, batch.getGrantResult(DUMMY_PERMISSION2));
+        assertEquals(ResultBatch.NO_RESULT, batch.getGrantResult(DUMMY_PERMISSION3));
+    }
+
+    @Test
+    public void testAsyncPermissionResults() throws Exception {
+        ProtectedAction         both = new ProtectedAction.Builder()
+                .withPermissions(DUMMY_PERMISSION, DUMMY_PERMISSION2)
+                .withUsage(PermissionUse.FEATURE)
+                .actionCallback(new ProtectedAction.ActionCallback() {
+                    @Override
+                    public void doAction(ProtectedAction action) {
+                        //  DO NOTHING
+                    }
+                })
+                .userPromptCallback(this)
+                .build();
+        AsyncRequest<Void>      async = new AsyncRequest<>(both, null);
+        Request                 req = new Request(mOwner, new ProtectedAction[] { async.getAction() }, mHandler);
+        PermissionResult<Void>  result;
+
+        async.setResults(ResultBatch.match(req,
+                                           new String[] { DUMMY_PERMISSION, DUMMY_PERMISSION2 },
+                                           new int[] { PackageManager.PERMISSION_GRANTED, PackageManager.PERMISSION_DENIED },
+                                           0));
+        async.onPermissionDenied(both.getPermissionDetails());
+
+        //  Each permission is reported as it was answered
+        result = async.getFuture().get();
+        assertFalse(result.isAllGranted());
+        assertTrue(result.isGranted(DUMMY_PERMISSION));
+        assertFalse(result.isGranted(DUMMY_PERMISSION2));
+    }
+
+    @Test
+    public void testNoResults() {
+        Request                 req = new Request(mOwner,
+                                                  new ProtectedAction[] { buildAction(DUMMY_PERMISSION, PermissionUse.FEATURE) },
+                                                  mHandler);
+        ResultBatch             batch = ResultBatch.match(req, new String[0], new int[0], 0);
+
+        //  A cancelled request has nothing to deliver
+        assertEquals(ResultBatch.OUTCOME_NONE, batch.getOutcome(0));
+        assertFalse(batch.hasGrants());
+        assertFalse(batch.hasDenials());
+    }
+
+    //////////////////////////////////////////////////////////////////////////
+    //  UI callbacks, do nothing
+    //////////////////////////////////////////////////////////////////////////
+    @Override
+    public void showEducateModal(ProtectedAction action, int reqCode) {
+        //  DO NOTHING
+    }
+
+    @Override
+    public void showEducate(ProtectedAction action) {
+        //  DO NOTHING
+    }
+
+    @Override
+    public void showDeniedCritical(ProtectedAction action) {
+        //  DO NOTHING
+    }
+
+    @Override
+    public void showDeniedReminder(ProtectedAction action) {
+        //  DO NOTHING
+    }
+
+    @Override
+    public void showDeniedFeedback(ProtectedAction action) {
+        //  DO NOTHING
+    }
+}